@@ -0,0 +1,47 @@
+package com.diy.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Set;
+
+/**
+ * 基准测试入口
+ * 参数与org.openjdk.jmh.Main相同，默认开启GC/分配分析（-prof gc），回归时可直接对比B/op
+ * 
+ * 运行：java -jar target/benchmarks.jar [JMH参数]
+ * 
+ * @author diy
+ */
+public class BenchmarkMain {
+
+    /**
+     * 只列出信息、不执行基准的参数，交给JMH原入口处理
+     */
+    private static final Set<String> INFO_OPTIONS = Set.of("-h", "-l", "-lp", "-lprof", "-lrf");
+
+    public static void main(String[] args) throws Exception {
+        for (String arg : args) {
+            if (INFO_OPTIONS.contains(arg)) {
+                org.openjdk.jmh.Main.main(args);
+                return;
+            }
+        }
+
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(commandLine);
+
+        // 命令行已指定gc分析器时不重复添加
+        boolean hasGcProfiler = commandLine.getProfilers().stream()
+                .anyMatch(profiler -> profiler.getKlass().equals(GCProfiler.class.getName())
+                        || "gc".equals(profiler.getKlass()));
+        if (!hasGcProfiler) {
+            options.addProfiler(GCProfiler.class);
+        }
+
+        new Runner(options.build()).run();
+    }
+}
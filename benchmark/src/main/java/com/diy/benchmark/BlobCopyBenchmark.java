@@ -0,0 +1,92 @@
+package com.diy.benchmark;
+
+import com.diy.metrics.RequestTiming;
+import com.diy.utils.StreamUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * blob下载复制循环基准测试
+ * 以内存流代替OSS和客户端连接，只衡量BlobController中StreamUtils.copyRange本身的开销，
+ * 对比缓冲区大小以及开启请求计时后的额外开销
+ * 
+ * 运行：java -jar target/benchmarks.jar BlobCopyBenchmark
+ * 
+ * @author diy
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Thread)
+public class BlobCopyBenchmark {
+
+    @Param({ "16777216" })
+    public int payloadSize;
+
+    @Param({ "8192", "65536" })
+    public int bufferSize;
+
+    private byte[] payload;
+
+    private byte[] buffer;
+
+    private OutputStream sink;
+
+    /**
+     * 按字节计数，Throughput模式下即为bytes/s
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class ByteCounter {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        payload = new byte[payloadSize];
+        new Random(42).nextBytes(payload);
+        buffer = new byte[bufferSize];
+        sink = OutputStream.nullOutputStream();
+    }
+
+    @Benchmark
+    public long copy(ByteCounter counter) throws IOException {
+        long copied = StreamUtils.copyRange(new ByteArrayInputStream(payload), sink, payloadSize, buffer, null);
+        counter.bytes += copied;
+        return copied;
+    }
+
+    @Benchmark
+    public long copyTimed(ByteCounter counter) throws IOException {
+        RequestTiming timing = RequestTiming.begin("GET", "/v2/benchmark/blobs/sha256");
+        try {
+            long copied = StreamUtils.copyRange(new ByteArrayInputStream(payload), sink, payloadSize, buffer,
+                    timing);
+            counter.bytes += copied;
+            return copied;
+        } finally {
+            RequestTiming.clear();
+        }
+    }
+
+    @Benchmark
+    public long copyRangeFromMiddle(ByteCounter counter) throws IOException {
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(payload);
+        StreamUtils.skipFully(inputStream, payloadSize / 2, buffer);
+        long copied = StreamUtils.copyRange(inputStream, sink, payloadSize / 4, buffer, null);
+        counter.bytes += copied;
+        return copied;
+    }
+}
@@ -0,0 +1,79 @@
+package com.diy.benchmark;
+
+import com.diy.utils.DigestUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DigestUtils基准测试
+ * 对比原commons-codec实现与当前实现的吞吐量（bytes/s）和单次分配量
+ * 
+ * 运行：java -jar target/benchmarks.jar DigestUtilsBenchmark -prof gc
+ * 
+ * @author diy
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Thread)
+public class DigestUtilsBenchmark {
+
+    /**
+     * 被hash的数据大小：manifest级别、小层、大层
+     */
+    @Param({ "4096", "1048576", "16777216" })
+    public int payloadSize;
+
+    private byte[] payload;
+
+    /**
+     * 按字节计数，Throughput模式下即为bytes/s
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class ByteCounter {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        payload = new byte[payloadSize];
+        new Random(42).nextBytes(payload);
+    }
+
+    @Benchmark
+    public String streamLegacy(ByteCounter counter) throws IOException {
+        counter.bytes += payloadSize;
+        return DigestUtils.SHA256_PREFIX
+                + org.apache.commons.codec.digest.DigestUtils.sha256Hex(new ByteArrayInputStream(payload));
+    }
+
+    @Benchmark
+    public String streamCurrent(ByteCounter counter) throws IOException {
+        counter.bytes += payloadSize;
+        return DigestUtils.calculateSHA256(new ByteArrayInputStream(payload));
+    }
+
+    @Benchmark
+    public String bytesLegacy(ByteCounter counter) {
+        counter.bytes += payloadSize;
+        return DigestUtils.SHA256_PREFIX + org.apache.commons.codec.digest.DigestUtils.sha256Hex(payload);
+    }
+
+    @Benchmark
+    public String bytesCurrent(ByteCounter counter) {
+        counter.bytes += payloadSize;
+        return DigestUtils.calculateSHA256(payload);
+    }
+}
@@ -0,0 +1,52 @@
+package com.diy.benchmark;
+
+import com.diy.utils.DigestUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * digest格式校验基准测试
+ * 对比原正则实现与当前逐字符校验实现
+ * 
+ * 运行：java -jar target/benchmarks.jar DigestValidationBenchmark -prof gc
+ * 
+ * @author diy
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DigestValidationBenchmark {
+
+    /**
+     * 原实现使用的digest校验正则
+     */
+    private static final Pattern LEGACY_DIGEST_PATTERN = Pattern.compile("^sha256:[a-f0-9]{64}$");
+
+    private String validDigest;
+
+    private String invalidDigest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        validDigest = DigestUtils.calculateSHA256("benchmark");
+        invalidDigest = validDigest.substring(0, validDigest.length() - 1) + "G";
+    }
+
+    @Benchmark
+    public void validateLegacy(Blackhole blackhole) {
+        blackhole.consume(LEGACY_DIGEST_PATTERN.matcher(validDigest).matches());
+        blackhole.consume(LEGACY_DIGEST_PATTERN.matcher(invalidDigest).matches());
+    }
+
+    @Benchmark
+    public void validateCurrent(Blackhole blackhole) {
+        blackhole.consume(DigestUtils.isValidDigest(validDigest));
+        blackhole.consume(DigestUtils.isValidDigest(invalidDigest));
+    }
+}
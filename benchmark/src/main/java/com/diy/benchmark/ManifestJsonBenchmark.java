@@ -0,0 +1,93 @@
+package com.diy.benchmark;
+
+import com.diy.dto.ManifestDto;
+import com.diy.utils.DigestUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manifest JSON基准测试
+ * 推送manifest时的ManifestDto解析，以及manifest list的序列化
+ * 
+ * 运行：java -jar target/benchmarks.jar ManifestJsonBenchmark
+ * 
+ * @author diy
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ManifestJsonBenchmark {
+
+    /**
+     * 镜像层数 / manifest list中的平台数
+     */
+    @Param({ "5", "50" })
+    public int entries;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private byte[] imageManifest;
+
+    private ManifestDto manifestList;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"schemaVersion\":2,")
+                .append("\"mediaType\":\"application/vnd.docker.distribution.manifest.v2+json\",")
+                .append("\"config\":{\"mediaType\":\"application/vnd.docker.container.image.v1+json\",")
+                .append("\"size\":7023,\"digest\":\"").append(digest("config")).append("\"},")
+                .append("\"layers\":[");
+        for (int i = 0; i < entries; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"mediaType\":\"application/vnd.docker.image.rootfs.diff.tar.gzip\",")
+                    .append("\"size\":").append(32_654L + i).append(',')
+                    .append("\"digest\":\"").append(digest("layer" + i)).append("\"}");
+        }
+        json.append("]}");
+        imageManifest = json.toString().getBytes(StandardCharsets.UTF_8);
+
+        List<ManifestDto.ManifestReferenceDto> references = new ArrayList<>();
+        for (int i = 0; i < entries; i++) {
+            ManifestDto.PlatformDto platform = new ManifestDto.PlatformDto();
+            platform.setArchitecture(i % 2 == 0 ? "amd64" : "arm64");
+            platform.setOs("linux");
+
+            ManifestDto.ManifestReferenceDto reference = new ManifestDto.ManifestReferenceDto();
+            reference.setMediaType("application/vnd.docker.distribution.manifest.v2+json");
+            reference.setDigest(digest("manifest" + i));
+            reference.setSize(1_152L + i);
+            reference.setPlatform(platform);
+            references.add(reference);
+        }
+        manifestList = new ManifestDto();
+        manifestList.setSchemaVersion(2);
+        manifestList.setMediaType("application/vnd.docker.distribution.manifest.list.v2+json");
+        manifestList.setManifests(references);
+    }
+
+    @Benchmark
+    public ManifestDto parseImageManifest() throws IOException {
+        return objectMapper.readValue(imageManifest, ManifestDto.class);
+    }
+
+    @Benchmark
+    public byte[] serializeManifestList() throws IOException {
+        return objectMapper.writeValueAsBytes(manifestList);
+    }
+
+    private static String digest(String seed) {
+        return DigestUtils.calculateSHA256(seed);
+    }
+}
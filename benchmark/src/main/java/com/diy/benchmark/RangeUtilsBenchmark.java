@@ -0,0 +1,53 @@
+package com.diy.benchmark;
+
+import com.diy.utils.RangeUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RangeUtils基准测试
+ * 覆盖下载时的Range头解析和分片上传时的Content-Range头解析
+ * 
+ * 运行：java -jar target/benchmarks.jar RangeUtilsBenchmark
+ * 
+ * @author diy
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RangeUtilsBenchmark {
+
+    private static final long CONTENT_LENGTH = 734_003_200L;
+
+    private String range = "bytes=104857600-209715199";
+
+    private String openEndedRange = "bytes=104857600-";
+
+    private String contentRange = "0-10485759";
+
+    private String contentRangeWithTotal = "104857600-115343359/734003200";
+
+    @Benchmark
+    public RangeUtils.RangeInfo parseRange() {
+        return RangeUtils.parseRange(range, CONTENT_LENGTH);
+    }
+
+    @Benchmark
+    public RangeUtils.RangeInfo parseOpenEndedRange() {
+        return RangeUtils.parseRange(openEndedRange, CONTENT_LENGTH);
+    }
+
+    @Benchmark
+    public RangeUtils.RangeInfo parseContentRange() {
+        return RangeUtils.parseContentRange(contentRange);
+    }
+
+    @Benchmark
+    public RangeUtils.RangeInfo parseContentRangeWithTotal() {
+        return RangeUtils.parseContentRange(contentRangeWithTotal);
+    }
+}
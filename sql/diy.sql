@@ -16,24 +16,96 @@ CREATE TABLE IF NOT EXISTS blobs (
     size BIGINT NOT NULL COMMENT '文件大小（字节）',
     oss_object_key VARCHAR(500) NOT NULL COMMENT 'OSS对象存储key',
     content_type VARCHAR(100) DEFAULT 'application/octet-stream' COMMENT 'MIME类型',
+    chunk_count INT NOT NULL DEFAULT 0 COMMENT '分块数，0表示整体存储在oss_object_key',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     INDEX idx_created_at (created_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='Blob存储表';
 
--- Manifest存储表
+-- 分块索引表（按内容寻址，每个分块只存储一份）
+CREATE TABLE IF NOT EXISTS chunks (
+    digest VARCHAR(71) PRIMARY KEY COMMENT '分块的SHA256值',
+    size INT NOT NULL COMMENT '分块大小（字节）',
+    oss_object_key VARCHAR(500) NOT NULL COMMENT 'OSS对象存储key',
+    ref_count INT NOT NULL DEFAULT 0 COMMENT '引用该分块的blob数',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    INDEX idx_ref_count (ref_count, digest)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='分块索引表';
+
+-- blob的分块列表（按seq顺序拼接即为blob内容）
+CREATE TABLE IF NOT EXISTS blob_chunks (
+    blob_digest VARCHAR(71) NOT NULL COMMENT 'Blob的SHA256值',
+    seq INT NOT NULL COMMENT '分块序号，从0开始',
+    chunk_digest VARCHAR(71) NOT NULL COMMENT '分块的SHA256值',
+    chunk_offset BIGINT NOT NULL COMMENT '分块在blob中的起始位置',
+    size INT NOT NULL COMMENT '分块大小（字节）',
+    PRIMARY KEY (blob_digest, seq)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='Blob分块列表';
+
+-- Manifest存储表（按仓库内容寻址）
 CREATE TABLE IF NOT EXISTS manifests (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
-    digest VARCHAR(71) NOT NULL UNIQUE COMMENT 'Manifest的SHA256值',
+    digest VARCHAR(71) NOT NULL COMMENT 'Manifest的SHA256值',
     repository VARCHAR(255) NOT NULL COMMENT '仓库名称',
-    tag VARCHAR(128) COMMENT '标签（可为空，通过digest访问时为空）',
-    content TEXT NOT NULL COMMENT 'Manifest JSON内容',
+    content MEDIUMBLOB NOT NULL COMMENT 'Manifest原始字节，超过1KB时以gzip压缩存储',
     media_type VARCHAR(100) NOT NULL COMMENT 'Content-Type',
+    refs_indexed BOOLEAN NOT NULL DEFAULT FALSE COMMENT '引用的blob是否已写入manifest_blobs',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    INDEX idx_repo_tag (repository, tag),
-    INDEX idx_repo_digest (repository, digest),
+    UNIQUE KEY uk_repo_digest (repository, digest),
+    INDEX idx_refs_indexed (refs_indexed, id),
     INDEX idx_created_at (created_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='Manifest存储表';
 
+-- Manifest引用blob的反向索引（GC、删除安全检查、影响分析使用）
+CREATE TABLE IF NOT EXISTS manifest_blobs (
+    repository VARCHAR(255) NOT NULL COMMENT '仓库名称',
+    manifest_digest VARCHAR(71) NOT NULL COMMENT 'Manifest的SHA256值',
+    blob_digest VARCHAR(71) NOT NULL COMMENT '被引用的blob（config或layer）',
+    PRIMARY KEY (repository, manifest_digest, blob_digest),
+    INDEX idx_blob_digest (blob_digest),
+    INDEX idx_repo_blob (repository, blob_digest)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='Manifest引用blob索引表';
+
+-- Tag表（tag移动为单行upsert，tag解析为主键点查）
+CREATE TABLE IF NOT EXISTS tags (
+    repository VARCHAR(255) NOT NULL COMMENT '仓库名称',
+    tag VARCHAR(128) NOT NULL COMMENT '标签',
+    digest VARCHAR(71) NOT NULL COMMENT 'tag当前指向的manifest digest',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '最近一次指向变更的时间',
+    PRIMARY KEY (repository, tag),
+    INDEX idx_repo_digest (repository, digest)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='Tag表';
+
+-- 仓库索引表（_catalog接口使用，随manifest写入增量维护）
+CREATE TABLE IF NOT EXISTS repositories (
+    name VARCHAR(255) PRIMARY KEY COMMENT '仓库名称',
+    manifest_count BIGINT NOT NULL DEFAULT 0 COMMENT '仓库下的manifest记录数，归零时删除该行',
+    tag_count BIGINT NOT NULL DEFAULT 0 COMMENT '仓库下的tag数',
+    blob_count BIGINT NOT NULL DEFAULT 0 COMMENT '仓库manifest引用的不重复blob数',
+    blob_bytes BIGINT NOT NULL DEFAULT 0 COMMENT '仓库manifest引用的不重复blob总大小（字节），用于配额',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '首个manifest写入时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='仓库索引表';
+
+-- 从已有manifest回填仓库索引（可重复执行）
+INSERT IGNORE INTO repositories (name, manifest_count)
+SELECT repository, COUNT(*) FROM manifests GROUP BY repository;
+
+-- 全局存储计数器（随写入增量维护，按shard分行以减少热点行竞争，读取时求和）
+CREATE TABLE IF NOT EXISTS storage_counters (
+    name VARCHAR(32) NOT NULL COMMENT '计数器名称：blobs/blob_bytes/manifests/tags/repositories/chunks/chunk_bytes/chunked_blobs/chunked_bytes',
+    shard TINYINT NOT NULL COMMENT '分片号',
+    value BIGINT NOT NULL DEFAULT 0 COMMENT '分片计数值',
+    PRIMARY KEY (name, shard)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='全局存储计数器表';
+
+-- 主从复制延迟心跳表（开启读写分离时，各实例定期在主库更新，从库读取到的值与主库之差即复制延迟）
+CREATE TABLE IF NOT EXISTS replication_heartbeat (
+    id TINYINT NOT NULL COMMENT '固定为1',
+    beat_at BIGINT NOT NULL COMMENT '最近一次心跳的时间（毫秒时间戳）',
+    PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='主从复制延迟心跳表';
+
+INSERT IGNORE INTO replication_heartbeat (id, beat_at) VALUES (1, 0);
+
 -- 上传会话表
 CREATE TABLE IF NOT EXISTS upload_sessions (
     uuid VARCHAR(36) PRIMARY KEY COMMENT '上传会话UUID',
@@ -0,0 +1,35 @@
+-- 升级脚本：将manifests.tag拆分到独立的tags表
+-- 适用于由旧版diy.sql创建的数据库，执行前请先备份
+
+USE docker_registry;
+
+-- 1. 创建tags表
+CREATE TABLE IF NOT EXISTS tags (
+    repository VARCHAR(255) NOT NULL COMMENT '仓库名称',
+    tag VARCHAR(128) NOT NULL COMMENT '标签',
+    digest VARCHAR(71) NOT NULL COMMENT 'tag当前指向的manifest digest',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '最近一次指向变更的时间',
+    PRIMARY KEY (repository, tag),
+    INDEX idx_repo_digest (repository, digest)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='Tag表';
+
+-- 2. 回填：每个tag取最新的一条manifest（与旧版按created_at DESC, id DESC取最新的语义一致）
+INSERT IGNORE INTO tags (repository, tag, digest, updated_at)
+SELECT m.repository, m.tag, m.digest, m.created_at
+FROM manifests m
+WHERE m.tag IS NOT NULL
+  AND NOT EXISTS (
+      SELECT 1 FROM manifests newer
+      WHERE newer.repository = m.repository
+        AND newer.tag = m.tag
+        AND (newer.created_at > m.created_at
+             OR (newer.created_at = m.created_at AND newer.id > m.id))
+  );
+
+-- 3. manifests改为按(repository, digest)唯一，去掉tag列
+ALTER TABLE manifests
+    DROP INDEX digest,
+    DROP INDEX idx_repo_tag,
+    DROP INDEX idx_repo_digest,
+    ADD UNIQUE KEY uk_repo_digest (repository, digest),
+    DROP COLUMN tag;
@@ -0,0 +1,7 @@
+-- 升级脚本：manifests.content由TEXT改为MEDIUMBLOB，按原始字节存储
+-- 已有的utf8mb4文本按原字节转换，digest不变；应用写入新数据时按需gzip压缩，读取时自动识别
+
+USE docker_registry;
+
+ALTER TABLE manifests
+    MODIFY content MEDIUMBLOB NOT NULL COMMENT 'Manifest原始字节，超过1KB时以gzip压缩存储';
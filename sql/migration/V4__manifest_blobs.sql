@@ -0,0 +1,17 @@
+-- 升级脚本：增加manifest引用blob的反向索引
+-- 已有manifest的引用由应用在下一轮blob垃圾回收开始时回填（refs_indexed=FALSE的记录），
+-- 回填完成前垃圾回收不会删除任何blob
+
+USE docker_registry;
+
+CREATE TABLE IF NOT EXISTS manifest_blobs (
+    repository VARCHAR(255) NOT NULL COMMENT '仓库名称',
+    manifest_digest VARCHAR(71) NOT NULL COMMENT 'Manifest的SHA256值',
+    blob_digest VARCHAR(71) NOT NULL COMMENT '被引用的blob（config或layer）',
+    PRIMARY KEY (repository, manifest_digest, blob_digest),
+    INDEX idx_blob_digest (blob_digest)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='Manifest引用blob索引表';
+
+ALTER TABLE manifests
+    ADD COLUMN refs_indexed BOOLEAN NOT NULL DEFAULT FALSE COMMENT '引用的blob是否已写入manifest_blobs' AFTER media_type,
+    ADD INDEX idx_refs_indexed (refs_indexed, id);
@@ -0,0 +1,43 @@
+-- 升级脚本：仓库级与全局存储计数器
+-- 回填需要扫描现有数据，只在升级时执行一次；之后由应用随写入增量维护
+-- 执行前需先完成V4升级，并至少跑完一轮blob垃圾回收以回填manifest_blobs
+
+USE docker_registry;
+
+ALTER TABLE manifest_blobs
+    ADD INDEX idx_repo_blob (repository, blob_digest);
+
+ALTER TABLE repositories
+    ADD COLUMN tag_count BIGINT NOT NULL DEFAULT 0 COMMENT '仓库下的tag数' AFTER manifest_count,
+    ADD COLUMN blob_count BIGINT NOT NULL DEFAULT 0 COMMENT '仓库manifest引用的不重复blob数' AFTER tag_count,
+    ADD COLUMN blob_bytes BIGINT NOT NULL DEFAULT 0 COMMENT '仓库manifest引用的不重复blob总大小（字节），用于配额' AFTER blob_count;
+
+-- 回填仓库级计数
+UPDATE repositories r
+SET r.tag_count = (SELECT COUNT(*) FROM tags t WHERE t.repository = r.name);
+
+UPDATE repositories r
+JOIN (
+    SELECT rb.repository, COUNT(*) AS blob_count, COALESCE(SUM(b.size), 0) AS blob_bytes
+    FROM (SELECT DISTINCT repository, blob_digest FROM manifest_blobs) rb
+    JOIN blobs b ON b.digest = rb.blob_digest
+    GROUP BY rb.repository
+) s ON s.repository = r.name
+SET r.blob_count = s.blob_count, r.blob_bytes = s.blob_bytes;
+
+-- 全局计数器
+CREATE TABLE IF NOT EXISTS storage_counters (
+    name VARCHAR(32) NOT NULL COMMENT '计数器名称：blobs/blob_bytes/manifests/tags/repositories',
+    shard TINYINT NOT NULL COMMENT '分片号',
+    value BIGINT NOT NULL DEFAULT 0 COMMENT '分片计数值',
+    PRIMARY KEY (name, shard)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='全局存储计数器表';
+
+-- 回填到0号分片
+DELETE FROM storage_counters;
+INSERT INTO storage_counters (name, shard, value)
+SELECT 'blobs', 0, COUNT(*) FROM blobs
+UNION ALL SELECT 'blob_bytes', 0, COALESCE(SUM(size), 0) FROM blobs
+UNION ALL SELECT 'manifests', 0, COUNT(*) FROM manifests
+UNION ALL SELECT 'tags', 0, COUNT(*) FROM tags
+UNION ALL SELECT 'repositories', 0, COUNT(*) FROM repositories;
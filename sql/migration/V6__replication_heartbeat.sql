@@ -0,0 +1,13 @@
+-- 升级脚本：读写分离的复制延迟心跳表
+-- 只需在主库执行，表和初始行会随复制同步到从库
+
+USE docker_registry;
+
+-- 主从复制延迟心跳表（开启读写分离时，各实例定期在主库更新，从库读取到的值与主库之差即复制延迟）
+CREATE TABLE IF NOT EXISTS replication_heartbeat (
+    id TINYINT NOT NULL COMMENT '固定为1',
+    beat_at BIGINT NOT NULL COMMENT '最近一次心跳的时间（毫秒时间戳）',
+    PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='主从复制延迟心跳表';
+
+INSERT IGNORE INTO replication_heartbeat (id, beat_at) VALUES (1, 0);
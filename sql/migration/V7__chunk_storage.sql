@@ -0,0 +1,27 @@
+-- 升级脚本：内容定义分块存储（docker-registry.storage.chunking）
+-- 只增加表和列，已有blob保持整体存储（chunk_count=0），无需回填
+
+USE docker_registry;
+
+ALTER TABLE blobs
+    ADD COLUMN chunk_count INT NOT NULL DEFAULT 0 COMMENT '分块数，0表示整体存储在oss_object_key' AFTER content_type;
+
+-- 分块索引表（按内容寻址，每个分块只存储一份）
+CREATE TABLE IF NOT EXISTS chunks (
+    digest VARCHAR(71) PRIMARY KEY COMMENT '分块的SHA256值',
+    size INT NOT NULL COMMENT '分块大小（字节）',
+    oss_object_key VARCHAR(500) NOT NULL COMMENT 'OSS对象存储key',
+    ref_count INT NOT NULL DEFAULT 0 COMMENT '引用该分块的blob数',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    INDEX idx_ref_count (ref_count, digest)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='分块索引表';
+
+-- blob的分块列表（按seq顺序拼接即为blob内容）
+CREATE TABLE IF NOT EXISTS blob_chunks (
+    blob_digest VARCHAR(71) NOT NULL COMMENT 'Blob的SHA256值',
+    seq INT NOT NULL COMMENT '分块序号，从0开始',
+    chunk_digest VARCHAR(71) NOT NULL COMMENT '分块的SHA256值',
+    chunk_offset BIGINT NOT NULL COMMENT '分块在blob中的起始位置',
+    size INT NOT NULL COMMENT '分块大小（字节）',
+    PRIMARY KEY (blob_digest, seq)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='Blob分块列表';
@@ -1,8 +1,10 @@
 package com.diy;
 
+import com.diy.config.NativeHints;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
@@ -13,6 +15,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @SpringBootApplication
 @MapperScan("com.diy.mapper")
 @EnableScheduling
+@ImportRuntimeHints(NativeHints.class)
 public class Diy {
 
     public static void main(String[] args) {
@@ -0,0 +1,173 @@
+package com.diy.bandwidth;
+
+import com.diy.config.RegistryProperties;
+import com.diy.metrics.RegistryMetrics;
+import com.diy.utils.DigestUtils;
+import com.diy.utils.StreamUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * blob下载限速
+ * 每次写出前先等待客户端的令牌桶，再按仓库权重从本实例的总带宽中排队获取份额；
+ * 限速在下载的写出循环中进行，不额外复制数据
+ * 
+ * 客户端令牌桶只保存在本实例，多实例部署时每个实例分别限速
+ * 
+ * @author diy
+ */
+@Slf4j
+@Component
+public class BandwidthShaper {
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    @Autowired
+    private RegistryMetrics registryMetrics;
+
+    /**
+     * 客户端 -> 令牌桶，长时间没有下载的客户端被移除
+     */
+    private Cache<String, TokenBucket> clients;
+
+    private FairScheduler scheduler;
+
+    private boolean enabled;
+
+    /**
+     * 初始化
+     */
+    @PostConstruct
+    public void init() {
+        RegistryProperties.Bandwidth config = registryProperties.getBandwidth();
+        this.enabled = config.isEnabled() && (config.getGlobalRate() > 0 || config.getClientRate() > 0);
+
+        this.clients = Caffeine.newBuilder()
+                .maximumSize(100000)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        if (enabled && config.getGlobalRate() > 0) {
+            this.scheduler = new FairScheduler(config.getGlobalRate(), config.getBurst());
+        }
+
+        log.info("Bandwidth shaping initialized: enabled={}, global_rate={}, client_rate={}, client_key={}",
+                enabled, config.getGlobalRate(), config.getClientRate(), config.getClientKey());
+    }
+
+    /**
+     * 获取请求的客户端标识，需在请求线程中调用
+     * 
+     * @param request HTTP请求
+     * @return 客户端标识，未启用限速时返回null
+     */
+    public String clientKey(HttpServletRequest request) {
+        if (!enabled) {
+            return null;
+        }
+        if (registryProperties.getBandwidth().getClientKey() == RegistryProperties.ClientKey.TOKEN) {
+            String authorization = request.getHeader("Authorization");
+            if (authorization != null && !authorization.isEmpty()) {
+                // 只在内存中保存凭证的摘要
+                return DigestUtils.calculateSHA256(authorization);
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    /**
+     * 开始一次下载的限速
+     * 
+     * @param repository 仓库名
+     * @param client     客户端标识（clientKey的返回值）
+     * @return 写出限速，未启用时返回null；下载结束后需调用close记录限速等待时间
+     */
+    public Download open(String repository, String client) {
+        if (!enabled) {
+            return null;
+        }
+
+        RegistryProperties.Bandwidth config = registryProperties.getBandwidth();
+        TokenBucket bucket = null;
+        if (config.getClientRate() > 0 && client != null) {
+            bucket = clients.get(client, key -> new TokenBucket(config.getClientRate(), config.getBurst()));
+        }
+        return new Download(repository, config.getWeight(repository), bucket);
+    }
+
+    /**
+     * 一次下载的写出限速
+     */
+    public class Download implements StreamUtils.Throttle, AutoCloseable {
+
+        private final String repository;
+
+        private final int weight;
+
+        private final TokenBucket bucket;
+
+        private long clientWaitNanos;
+
+        private long globalWaitNanos;
+
+        private Download(String repository, int weight, TokenBucket bucket) {
+            this.repository = repository;
+            this.weight = weight;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public void acquire(int bytes) throws InterruptedIOException {
+            if (bucket != null) {
+                long delay = bucket.reserve(bytes);
+                if (delay > 0) {
+                    sleep(delay);
+                    clientWaitNanos += delay;
+                }
+            }
+            if (scheduler != null) {
+                try {
+                    globalWaitNanos += scheduler.acquire(repository, weight, bytes);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for bandwidth");
+                }
+            }
+        }
+
+        /**
+         * 记录本次下载的限速等待时间
+         */
+        @Override
+        public void close() {
+            if (bucket != null) {
+                registryMetrics.recordThrottle("client", clientWaitNanos);
+            }
+            if (scheduler != null) {
+                registryMetrics.recordThrottle("global", globalWaitNanos);
+            }
+        }
+
+        private void sleep(long nanos) throws InterruptedIOException {
+            long deadline = System.nanoTime() + nanos;
+            long remaining = nanos;
+            while (remaining > 0) {
+                LockSupport.parkNanos(remaining);
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for bandwidth");
+                }
+                remaining = deadline - System.nanoTime();
+            }
+        }
+    }
+}
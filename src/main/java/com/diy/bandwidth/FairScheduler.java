@@ -0,0 +1,135 @@
+package com.diy.bandwidth;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按权重分享总带宽的调度器（带令牌桶的Start-time Fair Queuing）
+ * 每个流（仓库）维护虚拟完成时间，每次写出推进 字节数/权重；带宽不足时等待者按虚拟完成时间依次放行，
+ * 持续有下载的仓库之间按权重比例分配带宽，与各仓库的并发下载数无关；空闲仓库的份额由其他仓库使用
+ * 
+ * 只有队首等待者计时等待，放行后唤醒新的队首，每次写出的开销与等待者数量的对数成正比
+ * 
+ * @author diy
+ */
+public class FairScheduler {
+
+    private final double nanosPerByte;
+
+    private final long burstNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+
+    /**
+     * 流 -> 最近一次写出的虚拟完成时间，只在有等待者期间有意义，队列清空时重置
+     */
+    private final Map<String, Double> finishTags = new HashMap<>();
+
+    private double virtualTime;
+
+    /**
+     * 已放行的字节按速率发送完毕的时刻
+     */
+    private long linkFree = System.nanoTime();
+
+    private long sequence;
+
+    /**
+     * @param rate  总速率（字节/秒）
+     * @param burst 允许的突发字节数
+     */
+    public FairScheduler(long rate, long burst) {
+        this.nanosPerByte = 1e9 / rate;
+        this.burstNanos = (long) (burst * nanosPerByte);
+    }
+
+    /**
+     * 等待直到允许写出指定字节数
+     * 
+     * @param flow   流标识（仓库名）
+     * @param weight 流的权重
+     * @param bytes  字节数
+     * @return 等待的纳秒数
+     * @throws InterruptedException 等待被中断
+     */
+    public long acquire(String flow, int weight, int bytes) throws InterruptedException {
+        long startNanos = System.nanoTime();
+        lock.lock();
+        try {
+            double start = Math.max(virtualTime, finishTags.getOrDefault(flow, 0.0));
+            double finish = start + (double) bytes / weight;
+            finishTags.put(flow, finish);
+
+            Waiter waiter = new Waiter(start, finish, sequence++, lock.newCondition());
+            waiters.add(waiter);
+            try {
+                while (true) {
+                    if (waiters.peek() == waiter) {
+                        long now = System.nanoTime();
+                        long delay = linkFree - burstNanos - now;
+                        if (delay <= 0) {
+                            linkFree = Math.max(linkFree, now - burstNanos) + (long) (bytes * nanosPerByte);
+                            break;
+                        }
+                        waiter.condition.awaitNanos(delay);
+                    } else {
+                        waiter.condition.await();
+                    }
+                }
+            } catch (InterruptedException e) {
+                waiters.remove(waiter);
+                signalHead();
+                throw e;
+            }
+
+            waiters.poll();
+            virtualTime = waiter.start;
+            if (waiters.isEmpty()) {
+                // 没有积压时各流重新开始，不保留历史份额
+                finishTags.clear();
+                virtualTime = 0;
+            } else {
+                signalHead();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return System.nanoTime() - startNanos;
+    }
+
+    private void signalHead() {
+        Waiter head = waiters.peek();
+        if (head != null) {
+            head.condition.signal();
+        }
+    }
+
+    private static class Waiter implements Comparable<Waiter> {
+
+        private final double start;
+
+        private final double finish;
+
+        private final long sequence;
+
+        private final Condition condition;
+
+        Waiter(double start, double finish, long sequence, Condition condition) {
+            this.start = start;
+            this.finish = finish;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int result = Double.compare(finish, other.finish);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.diy.bandwidth;
+
+/**
+ * 令牌桶
+ * 令牌按固定速率补充，最多积累capacity个；预订时令牌可以透支，透支部分按速率折算为调用方需要等待的时间，
+ * 并发预订依次排在前一个预订之后，同一个桶内先到先得
+ * 
+ * @author diy
+ */
+public class TokenBucket {
+
+    private final double bytesPerNano;
+
+    private final double capacity;
+
+    private double tokens;
+
+    private long lastRefill;
+
+    /**
+     * @param rate     速率（字节/秒）
+     * @param capacity 桶容量（字节）
+     */
+    public TokenBucket(long rate, long capacity) {
+        this.bytesPerNano = rate / 1e9;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * 预订令牌
+     * 
+     * @param bytes 字节数
+     * @return 调用方需要等待的纳秒数，0表示可以立即写出
+     */
+    public synchronized long reserve(int bytes) {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * bytesPerNano);
+        lastRefill = now;
+        tokens -= bytes;
+        return tokens >= 0 ? 0 : (long) (-tokens / bytesPerNano);
+    }
+}
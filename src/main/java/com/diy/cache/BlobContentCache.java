@@ -0,0 +1,199 @@
+package com.diy.cache;
+
+import com.diy.config.RegistryProperties;
+import com.diy.utils.DigestUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Blob内容本地缓存
+ * blob内容以digest命名存放在本机磁盘，索引保存在内存中，总大小超过上限时按最近最少使用淘汰并删除文件；
+ * 内容按digest寻址不可变，缓存无需过期，只在blob被删除时失效
+ * 
+ * 索引不持久化，启动时清空缓存目录；各实例的缓存互相独立
+ * 
+ * @author diy
+ */
+@Slf4j
+@Component
+public class BlobContentCache {
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    /**
+     * digest -> blob大小
+     */
+    private Cache<String, Long> entries;
+
+    /**
+     * 已缓存文件的总字节数
+     */
+    private final AtomicLong bytes = new AtomicLong();
+
+    private Path directory;
+
+    private boolean enabled;
+
+    /**
+     * 初始化缓存目录
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        RegistryProperties.BlobContentCache config = registryProperties.getCache().getContent();
+        this.enabled = config.isEnabled();
+        this.directory = Paths.get(config.getDirectory());
+
+        // 按KB计权，避免大blob超出int权重
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(Math.max(1, config.getMaxBytes() / 1024))
+                .weigher((String digest, Long size) -> (int) Math.min(Integer.MAX_VALUE, (size + 1023) / 1024))
+                .removalListener(this::onRemoval)
+                .build();
+
+        if (enabled) {
+            Files.createDirectories(directory);
+            clearDirectory();
+        }
+
+        log.info("Blob content cache initialized: enabled={}, directory={}, max_bytes={}",
+                enabled, directory, config.getMaxBytes());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 检查blob是否已缓存
+     * 
+     * @param digest SHA256值
+     * @return 是否已缓存
+     */
+    public boolean contains(String digest) {
+        return enabled && entries.getIfPresent(digest) != null;
+    }
+
+    /**
+     * 打开缓存的blob
+     * 返回的流支持skip直接定位，用于Range请求
+     * 
+     * @param digest SHA256值
+     * @return 输入流，未缓存时返回null
+     */
+    public InputStream open(String digest) {
+        if (!enabled || entries.getIfPresent(digest) == null) {
+            return null;
+        }
+        try {
+            // 打开后文件即使被淘汰删除，已打开的流仍可读完
+            return new FileInputStream(path(digest).toFile());
+        } catch (FileNotFoundException e) {
+            log.warn("Cached blob file missing: digest={}", digest);
+            entries.invalidate(digest);
+            return null;
+        }
+    }
+
+    /**
+     * 把blob内容写入缓存
+     * 先写临时文件，校验大小后再改名为正式文件，读取方不会看到写了一半的内容
+     * 
+     * @param digest       SHA256值
+     * @param inputStream  blob内容
+     * @param expectedSize blob大小
+     * @throws IOException 读取或写入失败，或内容大小不符
+     */
+    public void put(String digest, InputStream inputStream, long expectedSize) throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        Path target = path(digest);
+        Path temp = Files.createTempFile(directory, DigestUtils.extractHash(digest), ".tmp");
+        try {
+            long written;
+            try (OutputStream outputStream = Files.newOutputStream(temp)) {
+                written = inputStream.transferTo(outputStream);
+            }
+            if (written != expectedSize) {
+                throw new IOException("Size mismatch: expected " + expectedSize + ", got " + written);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        if (entries.asMap().putIfAbsent(digest, expectedSize) == null) {
+            bytes.addAndGet(expectedSize);
+        }
+    }
+
+    /**
+     * 使缓存失效并删除文件
+     * 
+     * @param digest SHA256值
+     */
+    public void invalidate(String digest) {
+        if (enabled) {
+            entries.invalidate(digest);
+        }
+    }
+
+    /**
+     * 已缓存文件的总字节数
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * 淘汰或失效时删除文件
+     */
+    private void onRemoval(String digest, Long size, RemovalCause cause) {
+        if (digest == null || size == null || cause == RemovalCause.REPLACED) {
+            return;
+        }
+        bytes.addAndGet(-size);
+        try {
+            Files.deleteIfExists(path(digest));
+        } catch (IOException e) {
+            log.warn("Failed to delete cached blob file: digest={}, error={}", digest, e.getMessage());
+        }
+    }
+
+    private Path path(String digest) {
+        return directory.resolve(DigestUtils.extractHash(digest));
+    }
+
+    /**
+     * 删除上次运行留下的文件
+     */
+    private void clearDirectory() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.diy.cache;
+
+import com.diy.config.RegistryProperties;
+import com.diy.entity.Blob;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Blob元数据本地缓存
+ * Blob按digest内容寻址，记录写入后不可变，但GC会删除未被引用的blob；删除只使执行GC的实例的缓存失效，
+ * 正向缓存因此按TTL过期，其他实例最多在TTL内仍返回已删除的blob。
+ * 不存在的digest以较短TTL做负缓存，避免反复探测同一个缺失的blob
+ * 
+ * 缓存中的Blob对象为共享实例，调用方不应修改
+ * 
+ * @author diy
+ */
+@Slf4j
+@Component
+public class BlobMetadataCache {
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    /**
+     * 正向缓存：digest -> Blob
+     */
+    private Cache<String, Blob> blobs;
+
+    /**
+     * 负缓存：已确认不存在的digest
+     */
+    private Cache<String, Boolean> misses;
+
+    private boolean enabled;
+
+    /**
+     * 初始化缓存
+     */
+    @PostConstruct
+    public void init() {
+        RegistryProperties.BlobCache config = registryProperties.getCache().getBlob();
+        this.enabled = config.isEnabled();
+
+        this.blobs = Caffeine.newBuilder()
+                .maximumSize(config.getMaxEntries())
+                .expireAfterWrite(Duration.ofMillis(config.getTtl()))
+                .recordStats()
+                .build();
+
+        this.misses = Caffeine.newBuilder()
+                .maximumSize(config.getMaxNegativeEntries())
+                .expireAfterWrite(Duration.ofMillis(config.getNegativeTtl()))
+                .recordStats()
+                .build();
+
+        log.info("Blob metadata cache initialized: enabled={}, max_entries={}, ttl={}ms, negative_ttl={}ms",
+                enabled, config.getMaxEntries(), config.getTtl(), config.getNegativeTtl());
+    }
+
+    /**
+     * 获取缓存的blob
+     * 
+     * @param digest SHA256值
+     * @return Blob实体，未缓存时返回null
+     */
+    public Blob get(String digest) {
+        return enabled ? blobs.getIfPresent(digest) : null;
+    }
+
+    /**
+     * 检查digest是否在负缓存中
+     * 
+     * @param digest SHA256值
+     * @return 是否已确认不存在
+     */
+    public boolean isKnownMissing(String digest) {
+        return enabled && misses.getIfPresent(digest) != null;
+    }
+
+    /**
+     * 缓存blob，同时清除该digest的负缓存
+     * 
+     * @param blob Blob实体
+     */
+    public void put(Blob blob) {
+        if (!enabled) {
+            return;
+        }
+        misses.invalidate(blob.getDigest());
+        blobs.put(blob.getDigest(), blob);
+    }
+
+    /**
+     * 记录不存在的digest
+     * 
+     * @param digest SHA256值
+     */
+    public void putMissing(String digest) {
+        if (enabled) {
+            misses.put(digest, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * 使digest的正向和负缓存失效
+     * 
+     * @param digest SHA256值
+     */
+    public void invalidate(String digest) {
+        blobs.invalidate(digest);
+        misses.invalidate(digest);
+    }
+
+    /**
+     * 获取正向缓存条目数（估算值）
+     * 
+     * @return 条目数
+     */
+    public long size() {
+        return blobs.estimatedSize();
+    }
+}
@@ -0,0 +1,166 @@
+package com.diy.cache;
+
+import com.diy.config.RegistryProperties;
+import com.diy.dto.ManifestDto;
+import com.diy.entity.Blob;
+import com.diy.entity.Manifest;
+import com.diy.metrics.RegistryMetrics;
+import com.diy.service.BlobService;
+import com.diy.utils.DigestUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Manifest驱动的blob预取
+ * 客户端拿到镜像manifest后几乎一定会接着拉取其中的config和层，返回manifest时在后台把这些blob
+ * 读入BlobContentCache，随后的blob请求直接命中本机缓存
+ * 
+ * 预取在独立的有界线程池中执行，同一digest同时只有一个预取；线程池队列满时直接放弃，不阻塞manifest请求。
+ * 代理模式下本地缺失的blob会触发上游下载，与客户端直接请求该blob的效果相同
+ * 
+ * @author diy
+ */
+@Slf4j
+@Component
+public class BlobPrefetcher {
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    @Autowired
+    private BlobContentCache blobContentCache;
+
+    @Autowired
+    private BlobService blobService;
+
+    @Autowired
+    private RegistryMetrics registryMetrics;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("prefetchExecutor")
+    private TaskExecutor prefetchExecutor;
+
+    /**
+     * 正在预取的digest
+     */
+    private final Set<String> inflight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 预取manifest引用的blob
+     * 只提交后台任务，不等待预取完成；manifest list / OCI index没有层，不预取
+     * 
+     * @param repository 仓库名
+     * @param manifest   返回给客户端的manifest
+     */
+    public void prefetch(String repository, Manifest manifest) {
+        if (!blobContentCache.isEnabled() || manifest.getContent() == null) {
+            return;
+        }
+
+        Map<String, Long> blobs;
+        try {
+            blobs = collectBlobs(objectMapper.readValue(manifest.getContent(), ManifestDto.class));
+        } catch (IOException e) {
+            log.debug("Skipped prefetch for unparseable manifest: repository={}, digest={}",
+                    repository, manifest.getDigest());
+            return;
+        }
+
+        long maxBlobSize = registryProperties.getCache().getContent().getMaxBlobSize();
+        for (Map.Entry<String, Long> blob : blobs.entrySet()) {
+            String digest = blob.getKey();
+            Long size = blob.getValue();
+            if (size != null && size > maxBlobSize) {
+                registryMetrics.recordPrefetch("skipped", 0);
+                continue;
+            }
+            if (blobContentCache.contains(digest)) {
+                registryMetrics.recordPrefetch("cached", 0);
+                continue;
+            }
+            if (!inflight.add(digest)) {
+                registryMetrics.recordPrefetch("inflight", 0);
+                continue;
+            }
+
+            try {
+                prefetchExecutor.execute(() -> {
+                    try {
+                        fetch(repository, digest, maxBlobSize);
+                    } finally {
+                        inflight.remove(digest);
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                inflight.remove(digest);
+                registryMetrics.recordPrefetch("rejected", 0);
+            }
+        }
+    }
+
+    /**
+     * 读取blob写入本地缓存
+     */
+    private void fetch(String repository, String digest, long maxBlobSize) {
+        // 排队期间可能已被其他请求预取
+        if (blobContentCache.contains(digest)) {
+            registryMetrics.recordPrefetch("cached", 0);
+            return;
+        }
+
+        try {
+            // manifest中的size由客户端填写，以存储的元数据为准
+            Blob blob = blobService.getBlob(repository, digest);
+            if (blob.getSize() > maxBlobSize) {
+                registryMetrics.recordPrefetch("skipped", 0);
+                return;
+            }
+
+            try (InputStream inputStream = blobService.getBlobInputStream(repository, digest)) {
+                blobContentCache.put(digest, inputStream, blob.getSize());
+            }
+            registryMetrics.recordPrefetch("fetched", blob.getSize());
+            log.debug("Prefetched blob: repository={}, digest={}, size={}", repository, digest, blob.getSize());
+        } catch (Exception e) {
+            registryMetrics.recordPrefetch("failed", 0);
+            log.warn("Failed to prefetch blob: repository={}, digest={}, error={}",
+                    repository, digest, e.getMessage());
+        }
+    }
+
+    /**
+     * 收集manifest引用的blob及其声明的大小，顺序与客户端拉取顺序一致（config在前）
+     */
+    private static Map<String, Long> collectBlobs(ManifestDto manifestDto) {
+        Map<String, Long> blobs = new LinkedHashMap<>();
+
+        ManifestDto.ConfigDto config = manifestDto.getConfig();
+        if (config != null && config.getData() == null && DigestUtils.isValidDigest(config.getDigest())) {
+            blobs.put(config.getDigest(), config.getSize());
+        }
+
+        if (manifestDto.getLayers() != null) {
+            for (ManifestDto.LayerDto layer : manifestDto.getLayers()) {
+                if (DigestUtils.isValidDigest(layer.getDigest())) {
+                    blobs.putIfAbsent(layer.getDigest(), layer.getSize());
+                }
+            }
+        }
+        return blobs;
+    }
+}
@@ -0,0 +1,160 @@
+package com.diy.cache;
+
+import com.diy.config.RegistryProperties;
+import com.diy.entity.Manifest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Manifest本地缓存
+ * 包含两部分：
+ * 1. 内容缓存：(repository, digest) -> Manifest，按digest寻址的内容不可变，按字节容量淘汰
+ * 2. tag索引：(repository, tag) -> digest，tag可被移动，写入时更新，另有短TTL兜底多实例间的变更
+ * 
+ * 缓存中的Manifest对象为共享实例，调用方不应修改
+ * 
+ * @author diy
+ */
+@Slf4j
+@Component
+public class ManifestCache {
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    /**
+     * 内容缓存
+     */
+    private Cache<String, Manifest> manifests;
+
+    /**
+     * tag -> digest索引
+     */
+    private Cache<String, String> tags;
+
+    private boolean enabled;
+
+    /**
+     * 初始化缓存
+     */
+    @PostConstruct
+    public void init() {
+        RegistryProperties.ManifestCache config = registryProperties.getCache().getManifest();
+        this.enabled = config.isEnabled();
+
+        this.manifests = Caffeine.newBuilder()
+                .maximumWeight(config.getMaxBytes())
+                .weigher((String key, Manifest manifest) -> weigh(manifest))
+                .recordStats()
+                .build();
+
+        this.tags = Caffeine.newBuilder()
+                .maximumSize(config.getMaxTags())
+                .expireAfterWrite(Duration.ofMillis(config.getTagTtl()))
+                .recordStats()
+                .build();
+
+        log.info("Manifest cache initialized: enabled={}, max_bytes={}, max_tags={}, tag_ttl={}ms",
+                enabled, config.getMaxBytes(), config.getMaxTags(), config.getTagTtl());
+    }
+
+    /**
+     * 按digest获取缓存的manifest
+     * 
+     * @param repository 仓库名
+     * @param digest     SHA256值
+     * @return Manifest实体，未缓存时返回null
+     */
+    public Manifest get(String repository, String digest) {
+        return enabled ? manifests.getIfPresent(key(repository, digest)) : null;
+    }
+
+    /**
+     * 缓存manifest内容
+     * 
+     * @param manifest Manifest实体
+     */
+    public void put(Manifest manifest) {
+        if (enabled) {
+            manifests.put(key(manifest.getRepository(), manifest.getDigest()), manifest);
+        }
+    }
+
+    /**
+     * 使manifest内容缓存失效
+     * 
+     * @param repository 仓库名
+     * @param digest     SHA256值
+     */
+    public void invalidate(String repository, String digest) {
+        manifests.invalidate(key(repository, digest));
+    }
+
+    /**
+     * 解析tag对应的digest
+     * 
+     * @param repository 仓库名
+     * @param tag        标签
+     * @return digest，未缓存时返回null
+     */
+    public String resolveTag(String repository, String tag) {
+        return enabled ? tags.getIfPresent(key(repository, tag)) : null;
+    }
+
+    /**
+     * 更新tag索引
+     * 
+     * @param repository 仓库名
+     * @param tag        标签
+     * @param digest     tag当前指向的digest
+     */
+    public void putTag(String repository, String tag, String digest) {
+        if (enabled) {
+            tags.put(key(repository, tag), digest);
+        }
+    }
+
+    /**
+     * 使tag索引失效
+     * 
+     * @param repository 仓库名
+     * @param tag        标签
+     */
+    public void invalidateTag(String repository, String tag) {
+        tags.invalidate(key(repository, tag));
+    }
+
+    /**
+     * 使指向某个digest的所有tag索引失效
+     * 
+     * @param repository 仓库名
+     * @param digest     SHA256值
+     */
+    public void invalidateTagsPointingTo(String repository, String digest) {
+        String prefix = repository + "@";
+        tags.asMap().entrySet().removeIf(entry ->
+                entry.getKey().startsWith(prefix) && entry.getValue().equals(digest));
+    }
+
+    /**
+     * 构造缓存key，tag和digest都不包含'@'，不会产生歧义
+     */
+    private static String key(String repository, String reference) {
+        return repository + "@" + reference;
+    }
+
+    /**
+     * 估算manifest占用的字节数
+     */
+    private static int weigh(Manifest manifest) {
+        int contentLength = manifest.getContent() != null ? manifest.getContent().length : 0;
+        int gzipLength = manifest.getGzipContent() != null ? manifest.getGzipContent().length : 0;
+        return 256 + contentLength + gzipLength;
+    }
+}
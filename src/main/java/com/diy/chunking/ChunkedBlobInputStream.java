@@ -0,0 +1,166 @@
+package com.diy.chunking;
+
+import com.diy.entity.BlobChunk;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * 分块存储blob的输入流：按顺序拼接各分块
+ * 分块在读到时才打开，同一时刻只持有一个存储连接；skip只移动位置，
+ * 之后打开的分块从对应位置开始以Range请求读取，Range下载不读取目标位置之前的分块
+ * 
+ * 非线程安全
+ * 
+ * @author diy
+ */
+public class ChunkedBlobInputStream extends InputStream {
+
+    /**
+     * 按位置打开分块对象
+     */
+    @FunctionalInterface
+    public interface ChunkOpener {
+        /**
+         * @param ossObjectKey 分块的OSS key
+         * @param offset       分块内的起始位置
+         * @return 从offset开始的分块内容
+         * @throws IOException 打开失败时抛出
+         */
+        InputStream open(String ossObjectKey, long offset) throws IOException;
+    }
+
+    private final List<BlobChunk> chunks;
+
+    private final long size;
+
+    private final ChunkOpener opener;
+
+    /**
+     * 关闭时回调本次读取打开的分块数
+     */
+    private final IntConsumer onClose;
+
+    private long position;
+
+    private InputStream current;
+
+    /**
+     * 当前分块结束位置（blob内的位置）
+     */
+    private long currentEnd;
+
+    private int opened;
+
+    private boolean closed;
+
+    /**
+     * @param chunks  分块列表（按seq排序）
+     * @param size    blob大小
+     * @param opener  分块打开方式
+     * @param onClose 关闭时回调打开的分块数
+     */
+    public ChunkedBlobInputStream(List<BlobChunk> chunks, long size, ChunkOpener opener, IntConsumer onClose) {
+        this.chunks = chunks;
+        this.size = size;
+        this.opener = opener;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int n = read(single, 0, 1);
+        return n < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= size) {
+            return -1;
+        }
+        if (current == null) {
+            openAt(position);
+        }
+
+        int n = current.read(b, off, (int) Math.min(len, currentEnd - position));
+        if (n < 0) {
+            throw new EOFException("Chunk ended before expected size at blob offset " + position);
+        }
+        position += n;
+        if (position >= currentEnd) {
+            closeCurrent();
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = Math.min(Math.max(n, 0), size - position);
+        if (skipped > 0) {
+            // 下次读取时从新位置以Range请求打开分块
+            closeCurrent();
+            position += skipped;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return current != null ? (int) Math.min(current.available(), currentEnd - position) : 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            closeCurrent();
+        } finally {
+            onClose.accept(opened);
+        }
+    }
+
+    private void openAt(long offset) throws IOException {
+        BlobChunk chunk = chunks.get(indexOf(offset));
+        current = opener.open(chunk.getOssObjectKey(), offset - chunk.getChunkOffset());
+        currentEnd = chunk.getChunkOffset() + chunk.getSize();
+        opened++;
+    }
+
+    /**
+     * 二分查找包含offset的分块
+     */
+    private int indexOf(long offset) {
+        int low = 0;
+        int high = chunks.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (chunks.get(mid).getChunkOffset() <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private void closeCurrent() throws IOException {
+        if (current != null) {
+            InputStream stream = current;
+            current = null;
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.diy.chunking;
+
+import java.util.SplittableRandom;
+
+/**
+ * 内容定义分块的切分点查找（FastCDC）
+ * 使用Gear滚动哈希：每读入一个字节，hash = (hash << 1) + GEAR[byte]，hash只取决于最近64个字节，
+ * 插入或删除内容只影响附近的切分点，其余分块保持不变
+ * 
+ * 分块起始的minSize字节不计算哈希；达到平均大小前使用位数更多的掩码（更难切分），之后使用位数更少的掩码（更易切分），
+ * 使分块大小集中在平均值附近；达到maxSize时强制切分
+ * 
+ * 非线程安全，每个写入流使用一个实例
+ * 
+ * @author diy
+ */
+public class GearChunker {
+
+    /**
+     * Gear表的随机种子，修改后所有切分点都会变化，新旧分块之间无法去重
+     */
+    private static final long GEAR_SEED = 0x6469792d63646321L;
+
+    private static final long[] GEAR = new long[256];
+
+    static {
+        SplittableRandom random = new SplittableRandom(GEAR_SEED);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final int minSize;
+
+    private final int avgSize;
+
+    private final int maxSize;
+
+    /**
+     * 达到平均大小前使用的掩码（多2位）
+     */
+    private final long maskSmall;
+
+    /**
+     * 达到平均大小后使用的掩码（少2位）
+     */
+    private final long maskLarge;
+
+    private long hash;
+
+    /**
+     * 当前分块已扫描到的位置
+     */
+    private int position;
+
+    /**
+     * @param minSize 最小分块大小
+     * @param avgSize 平均分块大小（按2的幂向下取整）
+     * @param maxSize 最大分块大小
+     */
+    public GearChunker(int minSize, int avgSize, int maxSize) {
+        if (minSize <= 0 || minSize >= avgSize || avgSize >= maxSize) {
+            throw new IllegalArgumentException(String.format(
+                    "Chunk sizes must satisfy 0 < min < avg < max: min=%d, avg=%d, max=%d",
+                    minSize, avgSize, maxSize));
+        }
+        int bits = 31 - Integer.numberOfLeadingZeros(avgSize);
+        this.minSize = minSize;
+        this.avgSize = 1 << bits;
+        this.maxSize = maxSize;
+        // 哈希高位受更多字节影响，掩码取高位
+        this.maskSmall = highBits(bits + 2);
+        this.maskLarge = highBits(bits - 2);
+    }
+
+    /**
+     * 在当前分块的数据中继续查找切分点
+     * data[0, length)是当前分块从起始位置开始已读入的数据，之前扫描过的部分不会重复计算
+     * 
+     * @param data   当前分块的数据
+     * @param length 已读入的长度
+     * @return 切分点（当前分块的长度），数据不足以确定切分点时返回-1
+     */
+    public int findBoundary(byte[] data, int length) {
+        int limit = Math.min(length, maxSize);
+        int normal = Math.min(avgSize, limit);
+        int i = Math.max(position, Math.min(minSize, limit));
+
+        long h = hash;
+        for (; i < normal; i++) {
+            h = (h << 1) + GEAR[data[i] & 0xff];
+            if ((h & maskSmall) == 0) {
+                return cut(i + 1);
+            }
+        }
+        for (; i < limit; i++) {
+            h = (h << 1) + GEAR[data[i] & 0xff];
+            if ((h & maskLarge) == 0) {
+                return cut(i + 1);
+            }
+        }
+
+        if (limit == maxSize) {
+            return cut(maxSize);
+        }
+        hash = h;
+        position = i;
+        return -1;
+    }
+
+    /**
+     * 最大分块大小
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 开始新的分块（输入结束时剩余数据作为最后一个分块后调用）
+     */
+    public void reset() {
+        hash = 0;
+        position = 0;
+    }
+
+    private int cut(int length) {
+        reset();
+        return length;
+    }
+
+    private static long highBits(int count) {
+        return count <= 0 ? 0 : -1L << (64 - count);
+    }
+}
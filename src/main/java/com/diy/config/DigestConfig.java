@@ -0,0 +1,35 @@
+package com.diy.config;
+
+import com.diy.utils.DigestUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 摘要计算配置
+ * 启动时将配置的JCA提供者和缓冲区大小应用到DigestUtils
+ * 
+ * @author diy
+ */
+@Slf4j
+@Configuration
+public class DigestConfig {
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    /**
+     * 初始化DigestUtils
+     */
+    @PostConstruct
+    public void init() {
+        RegistryProperties.Digest digest = registryProperties.getDigest();
+
+        DigestUtils.setProvider(digest.getProvider());
+        DigestUtils.setBufferSize(digest.getBufferSize());
+
+        log.info("Digest engine initialized: provider={}, buffer_size={}",
+                DigestUtils.getProviderName(), digest.getBufferSize());
+    }
+}
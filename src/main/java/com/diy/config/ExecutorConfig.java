@@ -0,0 +1,77 @@
+package com.diy.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 线程池配置
+ * 
+ * @author diy
+ */
+@Configuration
+public class ExecutorConfig {
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    /**
+     * 存储校验线程池
+     * 用于并行检查OSS对象，队列满时由调用线程执行，天然限流
+     */
+    @Bean(name = "storageExecutor")
+    public ThreadPoolTaskExecutor storageExecutor() {
+        int parallelism = registryProperties.getStorage().getVerifyParallelism();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(parallelism * 32);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("storage-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 代理模式的blob下载线程池
+     * 每个线程负责一个blob从上游下载到写入本地存储的全过程，超出并发上限的下载排队等待；
+     * 队列有界，队列满时execute抛出TaskRejectedException，由调用方直接转发上游内容
+     */
+    @Bean(name = "proxyExecutor")
+    public ThreadPoolTaskExecutor proxyExecutor() {
+        RegistryProperties.Proxy config = registryProperties.getProxy();
+        int parallelism = config.getFillParallelism();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(config.getFillQueueCapacity());
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("proxy-fill-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * blob预取线程池
+     * 队列有界，队列满时execute抛出TaskRejectedException，由调用方放弃本次预取，不占用请求线程
+     */
+    @Bean(name = "prefetchExecutor")
+    public ThreadPoolTaskExecutor prefetchExecutor() {
+        RegistryProperties.BlobContentCache config = registryProperties.getCache().getContent();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(config.getParallelism());
+        executor.setMaxPoolSize(config.getParallelism());
+        executor.setQueueCapacity(config.getQueueCapacity());
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("prefetch-");
+        executor.initialize();
+        return executor;
+    }
+}
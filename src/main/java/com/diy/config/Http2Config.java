@@ -0,0 +1,44 @@
+package com.diy.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.UpgradeProtocol;
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * HTTP/2配置
+ * Spring Boot在server.http2.enabled时为Tomcat连接器注册Http2Protocol（明文连接支持h2c，TLS连接通过ALPN协商h2），
+ * 这里调整Spring Boot未暴露的流控参数
+ * 
+ * @author diy
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "server.http2", name = "enabled", havingValue = "true")
+public class Http2Config {
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    /**
+     * 设置每个流的初始流控窗口
+     */
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> http2WindowCustomizer() {
+        int initialWindowSize = registryProperties.getHttp2().getInitialWindowSize();
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            for (UpgradeProtocol protocol : connector.findUpgradeProtocols()) {
+                if (protocol instanceof Http2Protocol http2) {
+                    http2.setInitialWindowSize(initialWindowSize);
+                    log.info("HTTP/2 enabled: initial_window_size={}, max_concurrent_streams={}",
+                            initialWindowSize, http2.getMaxConcurrentStreams());
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package com.diy.config;
+
+import com.diy.metrics.RegistryMetrics;
+import com.diy.metrics.RepositoryTagLimitFilter;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.config.MeterFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * 指标配置
+ * 
+ * @author diy
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    /**
+     * 限制repository标签的取值个数
+     */
+    @Bean
+    public MeterFilter repositoryTagLimitFilter() {
+        return new RepositoryTagLimitFilter(registryProperties.getMetrics().getMaxRepositoryTags());
+    }
+
+    /**
+     * 开启repository标签时，为http.server.requests增加仓库维度
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "docker-registry.metrics", name = "repository-tag", havingValue = "true")
+    public ServerRequestObservationConvention repositoryServerRequestObservationConvention() {
+        return new DefaultServerRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+                return super.getLowCardinalityKeyValues(context)
+                        .and(RegistryMetrics.REPOSITORY_TAG, repository(context.getCarrier()));
+            }
+        };
+    }
+
+    /**
+     * 从匹配的路径变量中取仓库名
+     */
+    @SuppressWarnings("unchecked")
+    private static String repository(HttpServletRequest request) {
+        Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables instanceof Map) {
+            String name = ((Map<String, String>) variables).get("name");
+            if (name != null) {
+                return name;
+            }
+        }
+        return RegistryMetrics.NO_REPOSITORY;
+    }
+}
@@ -0,0 +1,76 @@
+package com.diy.config;
+
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.mapper.MapperFactoryBean;
+import org.mybatis.spring.mapper.MapperScannerConfigurer;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.aot.BeanRegistrationAotContribution;
+import org.springframework.beans.factory.aot.BeanRegistrationAotProcessor;
+import org.springframework.beans.factory.aot.BeanRegistrationExcludeFilter;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.MergedBeanDefinitionPostProcessor;
+import org.springframework.beans.factory.support.RegisteredBean;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.ResolvableType;
+import org.springframework.util.ClassUtils;
+
+/**
+ * MyBatis mapper的AOT处理（Spring AOT构建时生效，普通启动时不改变行为）
+ * 1. mapper的bean定义在构建时已由@MapperScan生成，运行时不再需要MapperScannerConfigurer；
+ *    保留它会重新扫描mapper包，与已生成的定义同名冲突
+ * 2. @MapperScan以类名字符串作为MapperFactoryBean的构造参数，AOT生成的代码无法据此构造，
+ *    改为mapper接口的Class，并补充泛型类型以便按类型注入时不必提前创建FactoryBean
+ * 3. @MapperScan通过按类型自动装配注入SqlSessionTemplate，AOT生成的代码不保留这种装配方式，改为显式引用
+ * 
+ * @author diy
+ */
+public class MyBatisAotProcessor implements BeanRegistrationAotProcessor, BeanRegistrationExcludeFilter,
+        MergedBeanDefinitionPostProcessor {
+
+    @Override
+    public BeanRegistrationAotContribution processAheadOfTime(RegisteredBean registeredBean) {
+        return null;
+    }
+
+    @Override
+    public boolean isExcludedFromAotProcessing(RegisteredBean registeredBean) {
+        return MapperScannerConfigurer.class.isAssignableFrom(registeredBean.getBeanClass());
+    }
+
+    @Override
+    public void postProcessMergedBeanDefinition(RootBeanDefinition beanDefinition, Class<?> beanType, String beanName) {
+        if (!MapperFactoryBean.class.isAssignableFrom(beanType)) {
+            return;
+        }
+        Class<?> mapperInterface = getMapperInterface(beanDefinition);
+        if (mapperInterface == null) {
+            return;
+        }
+
+        ConstructorArgumentValues arguments = new ConstructorArgumentValues();
+        arguments.addGenericArgumentValue(mapperInterface);
+        beanDefinition.setConstructorArgumentValues(arguments);
+        beanDefinition.setTargetType(ResolvableType.forClassWithGenerics(beanType, mapperInterface));
+
+        MutablePropertyValues properties = beanDefinition.getPropertyValues();
+        if (beanDefinition.getAutowireMode() == AutowireCapableBeanFactory.AUTOWIRE_BY_TYPE
+                && !properties.contains("sqlSessionTemplate") && !properties.contains("sqlSessionFactory")) {
+            properties.add("sqlSessionTemplate", new RuntimeBeanReference(SqlSessionTemplate.class));
+        }
+    }
+
+    private static Class<?> getMapperInterface(RootBeanDefinition beanDefinition) {
+        PropertyValue property = beanDefinition.getPropertyValues().getPropertyValue("mapperInterface");
+        Object value = property != null ? property.getValue() : null;
+        if (value instanceof Class<?> type) {
+            return type;
+        }
+        if (value instanceof String className) {
+            return ClassUtils.resolveClassName(className, beanDefinition.getBeanClass().getClassLoader());
+        }
+        return null;
+    }
+}
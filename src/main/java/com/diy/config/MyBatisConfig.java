@@ -0,0 +1,42 @@
+package com.diy.config;
+
+import org.apache.ibatis.mapping.DatabaseIdProvider;
+import org.apache.ibatis.mapping.VendorDatabaseIdProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Properties;
+
+/**
+ * MyBatis配置
+ * 1. 注册databaseId，mapper中可通过_databaseId区分MySQL专有语法（如LOCK IN SHARE MODE），
+ *    以便压测时使用H2内存库
+ * 2. 支持Spring AOT构建（见MyBatisAotProcessor）
+ * 
+ * @author diy
+ */
+@Configuration
+public class MyBatisConfig {
+
+    /**
+     * 按JDBC驱动报告的产品名识别数据库
+     */
+    @Bean
+    public DatabaseIdProvider databaseIdProvider() {
+        Properties properties = new Properties();
+        properties.setProperty("MySQL", "mysql");
+        properties.setProperty("H2", "h2");
+
+        VendorDatabaseIdProvider provider = new VendorDatabaseIdProvider();
+        provider.setProperties(properties);
+        return provider;
+    }
+
+    /**
+     * mapper的AOT处理，static方法使其不依赖本配置类的实例化
+     */
+    @Bean
+    public static MyBatisAotProcessor myBatisAotProcessor() {
+        return new MyBatisAotProcessor();
+    }
+}
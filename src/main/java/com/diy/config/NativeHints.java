@@ -0,0 +1,136 @@
+package com.diy.config;
+
+import com.aliyun.oss.OSS;
+import com.diy.dto.CatalogDto;
+import com.diy.dto.ErrorResponse;
+import com.diy.dto.ManifestDto;
+import com.diy.dto.TagListDto;
+import com.diy.entity.Blob;
+import com.diy.entity.BlobChunk;
+import com.diy.entity.Chunk;
+import com.diy.entity.Manifest;
+import com.diy.entity.Repository;
+import com.diy.entity.UploadSession;
+import com.diy.handler.CompressedBytesTypeHandler;
+import com.diy.handler.StoredGzipTypeHandler;
+import com.diy.mapper.BlobChunkMapper;
+import com.diy.mapper.BlobMapper;
+import com.diy.mapper.ChunkMapper;
+import com.diy.mapper.ManifestBlobMapper;
+import com.diy.mapper.ManifestMapper;
+import com.diy.mapper.RepositoryMapper;
+import com.diy.mapper.StorageCounterMapper;
+import com.diy.mapper.TagMapper;
+import com.diy.mapper.UploadSessionMapper;
+import org.apache.ibatis.cache.decorators.FifoCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SoftCache;
+import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.logging.nologging.NoLoggingImpl;
+import org.apache.ibatis.logging.slf4j.Slf4jImpl;
+import org.apache.ibatis.logging.stdout.StdOutImpl;
+import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
+import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
+import org.apache.ibatis.type.EnumTypeHandler;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * GraalVM原生镜像的运行时提示
+ * Spring AOT只处理Spring管理的反射，以下内容需要手动声明：
+ * 1. MyBatis：mapper接口和插件的JDK代理、mapper XML及其DTD、结果映射用到的实体类和类型处理器、
+ *    MyBatis按名称实例化的日志/缓存/语言驱动
+ * 2. Jackson：直接用ObjectMapper解析的DTO（控制器返回值由Spring AOT处理，这里一并声明）
+ * 3. 阿里云OSS SDK：资源包、MIME类型表和按类名加载的类
+ * 4. SpEL：@Scheduled表达式读取的配置属性
+ * 5. @Lazy注入点使用的延迟代理
+ * 
+ * @author diy
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    private static final List<Class<?>> MAPPERS = List.of(BlobMapper.class, BlobChunkMapper.class,
+            ChunkMapper.class, ManifestMapper.class, ManifestBlobMapper.class, RepositoryMapper.class,
+            StorageCounterMapper.class, TagMapper.class, UploadSessionMapper.class);
+
+    private static final List<Class<?>> ENTITIES = List.of(Blob.class, BlobChunk.class, Chunk.class,
+            Manifest.class, Repository.class, UploadSession.class, UploadSession.UploadStatus.class);
+
+    private static final List<Class<?>> DTOS = List.of(ManifestDto.class, CatalogDto.class, TagListDto.class,
+            ErrorResponse.class);
+
+    /**
+     * MyBatis通过反射实例化的内部类型
+     */
+    private static final List<Class<?>> MYBATIS_TYPES = List.of(RawLanguageDriver.class, XMLLanguageDriver.class,
+            Slf4jImpl.class, StdOutImpl.class, NoLoggingImpl.class, PerpetualCache.class, FifoCache.class,
+            LruCache.class, SoftCache.class, WeakCache.class, EnumTypeHandler.class,
+            CompressedBytesTypeHandler.class, StoredGzipTypeHandler.class, ArrayList.class, HashMap.class, HashSet.class, TreeSet.class);
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        registerMyBatis(hints);
+
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                DTOS.toArray(new Class<?>[0]));
+
+        registerOss(hints);
+
+        hints.reflection().registerType(RegistryProperties.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+        for (Class<?> nested : RegistryProperties.class.getDeclaredClasses()) {
+            hints.reflection().registerType(nested, MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+
+        hints.proxies().registerJdkProxy(AopProxyUtils.completeJdkProxyInterfaces(OSS.class));
+    }
+
+    private void registerMyBatis(RuntimeHints hints) {
+        hints.resources().registerPattern("mapper/*.xml");
+        hints.resources().registerPattern("org/apache/ibatis/builder/xml/*.dtd");
+        hints.resources().registerPattern("org/apache/ibatis/builder/xml/*.xsd");
+
+        for (Class<?> mapper : MAPPERS) {
+            hints.proxies().registerJdkProxy(mapper);
+            hints.reflection().registerType(mapper, MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+        // 结果映射通过无参构造和setter填充，参数通过getter读取
+        for (Class<?> entity : ENTITIES) {
+            hints.reflection().registerType(entity, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_DECLARED_METHODS, MemberCategory.DECLARED_FIELDS);
+        }
+        for (Class<?> type : MYBATIS_TYPES) {
+            hints.reflection().registerType(type, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+        // DbTimingInterceptor以JDK代理包装Executor
+        hints.proxies().registerJdkProxy(Executor.class);
+        hints.reflection().registerType(Executor.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+    }
+
+    private void registerOss(RuntimeHints hints) {
+        hints.resources().registerResourceBundle("common");
+        hints.resources().registerResourceBundle("oss");
+        hints.resources().registerPattern("oss.mime.types");
+        hints.resources().registerPattern("versioninfo.properties");
+        hints.resources().registerPattern("org/apache/http/version.properties");
+        hints.resources().registerPattern("org/apache/http/client/version.properties");
+
+        // DefaultServiceClient按类名探测HttpClient版本，XML解析按类名创建SAXParserFactory
+        hints.reflection().registerType(TypeReference.of("org.apache.http.client.config.RequestConfig$Builder"));
+        hints.reflection().registerType(
+                TypeReference.of("com.sun.org.apache.xerces.internal.jaxp.SAXParserFactoryImpl"),
+                MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+    }
+}
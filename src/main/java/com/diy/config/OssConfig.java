@@ -7,9 +7,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 /**
  * 阿里云OSS配置
+ * 客户端在首次使用时创建，存储桶检查由OssHealthIndicator按aliyun.oss.startup-check执行
  * 
  * @author diy
  */
@@ -22,9 +24,10 @@ public class OssConfig {
     private OssProperties ossProperties;
 
     /**
-     * 创建OSS客户端
+     * 创建OSS客户端（不访问网络）
      */
     @Bean
+    @Lazy
     public OSS ossClient() {
         if (!ossProperties.isConfigValid()) {
             throw new IllegalStateException("OSS configuration is invalid. " +
@@ -35,25 +38,9 @@ public class OssConfig {
                 ossProperties.getEndpoint(), ossProperties.getBucketName());
 
         // 直接使用AccessKey创建OSS客户端（简化方案，兼容性更好）
-        OSS ossClient = new OSSClientBuilder().build(
+        return new OSSClientBuilder().build(
                 ossProperties.getEndpoint(),
                 ossProperties.getAccessKeyId(),
                 ossProperties.getAccessKeySecret());
-
-        // 验证连接
-        try {
-            if (ossClient.doesBucketExist(ossProperties.getBucketName())) {
-                log.info("OSS client initialized successfully. Bucket '{}' exists.",
-                        ossProperties.getBucketName());
-            } else {
-                log.warn("OSS bucket '{}' does not exist. Please create it first.",
-                        ossProperties.getBucketName());
-            }
-        } catch (Exception e) {
-            log.error("Failed to verify OSS connection: {}", e.getMessage());
-            throw new RuntimeException("OSS connection verification failed", e);
-        }
-
-        return ossClient;
     }
 }
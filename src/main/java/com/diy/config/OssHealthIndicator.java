@@ -0,0 +1,125 @@
+package com.diy.config;
+
+import com.aliyun.oss.OSS;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * OSS存储桶检查（健康检查名为oss）
+ * BLOCKING：启动时同步检查，OSS不可达时启动失败
+ * ASYNC：启动完成后在后台线程重试直到成功，期间报告DOWN，可加入readiness分组使实例在检查通过后才接收流量
+ * 
+ * 健康检查返回最近一次的检查结果，探针请求不访问OSS
+ * 
+ * @author diy
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "aliyun.oss", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class OssHealthIndicator implements HealthIndicator {
+
+    /**
+     * 后台检查失败后的最大重试间隔（毫秒）
+     */
+    private static final long MAX_RETRY_DELAY = 30000;
+
+    @Autowired
+    private OssProperties ossProperties;
+
+    @Lazy
+    @Autowired
+    private OSS ossClient;
+
+    private volatile Health health = Health.unknown().build();
+
+    /**
+     * 同步检查
+     */
+    @PostConstruct
+    public void init() {
+        switch (ossProperties.getStartupCheck()) {
+            case BLOCKING -> {
+                try {
+                    verify();
+                } catch (Exception e) {
+                    log.error("Failed to verify OSS connection: {}", e.getMessage());
+                    throw new RuntimeException("OSS connection verification failed", e);
+                }
+            }
+            case NONE -> health = Health.up().withDetail("bucket", bucketName())
+                    .withDetail("verified", false).build();
+            case ASYNC -> health = Health.down().withDetail("bucket", bucketName())
+                    .withDetail("reason", "verification pending").build();
+        }
+    }
+
+    /**
+     * 启动完成后开始后台检查
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startAsyncCheck() {
+        if (ossProperties.getStartupCheck() != OssProperties.StartupCheck.ASYNC) {
+            return;
+        }
+        Thread thread = new Thread(this::verifyUntilUp, "oss-bucket-check");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public Health health() {
+        return health;
+    }
+
+    private void verifyUntilUp() {
+        long delay = 1000;
+        while (true) {
+            try {
+                if (verify()) {
+                    return;
+                }
+            } catch (Exception e) {
+                log.warn("OSS verification failed, retrying in {}ms: {}", delay, e.getMessage());
+                health = Health.down(e).withDetail("bucket", bucketName()).build();
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            delay = Math.min(delay * 2, MAX_RETRY_DELAY);
+        }
+    }
+
+    private String bucketName() {
+        return Objects.toString(ossProperties.getBucketName(), "");
+    }
+
+    /**
+     * 检查存储桶是否存在
+     * 
+     * @return 存储桶是否存在
+     */
+    private boolean verify() {
+        String bucket = bucketName();
+        if (ossClient.doesBucketExist(bucket)) {
+            log.info("OSS client initialized successfully. Bucket '{}' exists.", bucket);
+            health = Health.up().withDetail("bucket", bucket).build();
+            return true;
+        }
+        log.warn("OSS bucket '{}' does not exist. Please create it first.", bucket);
+        health = Health.down().withDetail("bucket", bucket).withDetail("reason", "bucket does not exist").build();
+        return false;
+    }
+}
@@ -49,6 +49,11 @@ public class OssProperties {
      */
     private String tempPrefix = "temp/";
 
+    /**
+     * 分块存储路径前缀（storage.chunking开启时使用）
+     */
+    private String chunkPrefix = "chunks/";
+
     /**
      * 连接超时时间（毫秒）
      */
@@ -64,6 +69,11 @@ public class OssProperties {
      */
     private int maxConnections = 100;
 
+    /**
+     * 启动时的存储桶检查方式
+     */
+    private StartupCheck startupCheck = StartupCheck.BLOCKING;
+
     /**
      * 验证配置是否完整
      */
@@ -74,4 +84,16 @@ public class OssProperties {
                 accessKeyId != null && !accessKeyId.trim().isEmpty() &&
                 accessKeySecret != null && !accessKeySecret.trim().isEmpty();
     }
+
+    /**
+     * 存储桶检查方式
+     */
+    public enum StartupCheck {
+        /** 启动时同步检查，OSS不可达时启动失败 */
+        BLOCKING,
+        /** 启动完成后在后台检查，通过前readiness探针（需包含oss）报告未就绪 */
+        ASYNC,
+        /** 不检查 */
+        NONE
+    }
 }
@@ -0,0 +1,85 @@
+package com.diy.config;
+
+import com.diy.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离数据源配置
+ * 主库沿用spring.datasource配置，从库由docker-registry.read-replicas.nodes配置，各自使用独立的连接池
+ * 
+ * @author diy
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "docker-registry.read-replicas", name = "enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    /**
+     * 主库和从库连接池
+     */
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties,
+            Environment environment) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        if (primary.getPoolName() == null) {
+            primary.setPoolName("registry-primary");
+        }
+
+        List<RegistryProperties.Node> nodes = registryProperties.getReadReplicas().getNodes();
+        List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            RegistryProperties.Node node = nodes.get(i);
+            boolean ownCredentials = StringUtils.hasText(node.getUsername());
+
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(node.getUrl())
+                    .username(ownCredentials ? node.getUsername() : properties.determineUsername())
+                    .password(ownCredentials ? node.getPassword() : properties.determinePassword())
+                    .build();
+            String name = "replica-" + i;
+            dataSource.setPoolName("registry-" + name);
+            dataSource.setMaximumPoolSize(node.getMaximumPoolSize());
+            dataSource.setConnectionTimeout(node.getConnectionTimeout());
+            dataSource.setReadOnly(true);
+            replicas.add(new ReplicaRoutingDataSource.Replica(name, dataSource));
+
+            log.info("Configured read replica: name={}, url={}, maximum_pool_size={}",
+                    name, node.getUrl(), node.getMaximumPoolSize());
+        }
+
+        return new ReplicaRoutingDataSource(primary, replicas);
+    }
+
+    /**
+     * 应用使用的数据源
+     * 连接延迟到第一条SQL执行时获取，此时已能判断是否处于读写事务中
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
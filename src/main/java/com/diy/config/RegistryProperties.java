@@ -4,6 +4,11 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Docker Registry配置属性
  * 
@@ -24,6 +29,56 @@ public class RegistryProperties {
      */
     private Storage storage = new Storage();
 
+    /**
+     * 摘要计算配置
+     */
+    private Digest digest = new Digest();
+
+    /**
+     * 缓存配置
+     */
+    private Cache cache = new Cache();
+
+    /**
+     * 分页配置
+     */
+    private Pagination pagination = new Pagination();
+
+    /**
+     * 配额配置
+     */
+    private Quota quota = new Quota();
+
+    /**
+     * 指标配置
+     */
+    private Metrics metrics = new Metrics();
+
+    /**
+     * 请求分阶段计时配置
+     */
+    private Timing timing = new Timing();
+
+    /**
+     * 代理（pull-through cache）配置
+     */
+    private Proxy proxy = new Proxy();
+
+    /**
+     * 读写分离配置
+     */
+    private ReadReplicas readReplicas = new ReadReplicas();
+
+    /**
+     * HTTP/2配置
+     */
+    private Http2 http2 = new Http2();
+
+    /**
+     * blob下载限速配置
+     */
+    private Bandwidth bandwidth = new Bandwidth();
+
     /**
      * 上传相关配置
      */
@@ -75,21 +130,457 @@ public class RegistryProperties {
          */
         private boolean enableValidation = true;
 
+        /**
+         * 存储校验的最大并发数（manifest上传时并行检查依赖blob）
+         */
+        private int verifyParallelism = 8;
+
         /**
          * 存储清理策略
          */
         private Cleanup cleanup = new Cleanup();
+
+        /**
+         * 内容定义分块存储
+         */
+        private Chunking chunking = new Chunking();
+    }
+
+    /**
+     * 摘要计算相关配置
+     */
+    @Data
+    public static class Digest {
+        /**
+         * SHA-256使用的JCA提供者名称（为空时使用JDK默认提供者）
+         */
+        private String provider;
+
+        /**
+         * 流式计算时的读缓冲区大小（字节）
+         */
+        private int bufferSize = 65536; // 64KB
+    }
+
+    /**
+     * 缓存相关配置
+     */
+    @Data
+    public static class Cache {
+        /**
+         * Blob元数据缓存
+         */
+        private BlobCache blob = new BlobCache();
+
+        /**
+         * Manifest缓存
+         */
+        private ManifestCache manifest = new ManifestCache();
+
+        /**
+         * Blob内容本地缓存（由manifest预取填充）
+         */
+        private BlobContentCache content = new BlobContentCache();
+    }
+
+    /**
+     * Blob元数据缓存配置
+     */
+    @Data
+    public static class BlobCache {
+        /**
+         * 是否启用缓存
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最大缓存条目数
+         */
+        private long maxEntries = 100000;
+
+        /**
+         * 存在记录（正向缓存）的存活时间（毫秒）
+         * GC删除blob后只有执行GC的实例立即失效，其他实例在此时间后才不再返回已删除的blob
+         */
+        private long ttl = 60000; // 1分钟
+
+        /**
+         * 不存在记录（负缓存）的存活时间（毫秒）
+         */
+        private long negativeTtl = 5000; // 5秒
+
+        /**
+         * 负缓存最大条目数
+         */
+        private long maxNegativeEntries = 10000;
+    }
+
+    /**
+     * Manifest缓存配置
+     */
+    @Data
+    public static class ManifestCache {
+        /**
+         * 是否启用缓存
+         */
+        private boolean enabled = true;
+
+        /**
+         * 内容缓存最大占用（字节）
+         */
+        private long maxBytes = 67108864; // 64MB
+
+        /**
+         * tag索引最大条目数
+         */
+        private long maxTags = 100000;
+
+        /**
+         * tag索引存活时间（毫秒），用于感知其他实例上的tag变更
+         */
+        private long tagTtl = 10000; // 10秒
+    }
+
+    /**
+     * Blob内容本地缓存配置
+     * 客户端拉取manifest后会紧接着拉取其中的层，命中manifest时在后台把层预取到本机磁盘，
+     * 随后的blob请求直接从本地文件读取
+     */
+    @Data
+    public static class BlobContentCache {
+        /**
+         * 是否启用预取和内容缓存
+         */
+        private boolean enabled = false;
+
+        /**
+         * 缓存目录，启动时清空
+         */
+        private String directory = System.getProperty("java.io.tmpdir") + "/registry-blob-cache";
+
+        /**
+         * 本机缓存占用上限（字节），超出后按最近最少使用淘汰
+         */
+        private long maxBytes = 10737418240L; // 10GB
+
+        /**
+         * 单个blob大小上限（字节），更大的层不预取
+         */
+        private long maxBlobSize = 1073741824L; // 1GB
+
+        /**
+         * 并行预取的blob数
+         */
+        private int parallelism = 4;
+
+        /**
+         * 等待预取的blob数上限，队列满时放弃新的预取
+         */
+        private int queueCapacity = 256;
+    }
+
+    /**
+     * 列表接口分页配置
+     */
+    @Data
+    public static class Pagination {
+        /**
+         * 客户端未指定n时的默认页大小
+         */
+        private int defaultPageSize = 100;
+
+        /**
+         * 单页最大条数，客户端请求更多时截断并通过Link头分页
+         */
+        private int maxPageSize = 1000;
+    }
+
+    /**
+     * 指标配置
+     */
+    @Data
+    public static class Metrics {
+        /**
+         * 是否为HTTP和传输字节指标增加repository标签
+         */
+        private boolean repositoryTag = false;
+
+        /**
+         * repository标签最多保留的仓库数，超出的仓库归入"other"
+         */
+        private int maxRepositoryTags = 100;
+    }
+
+    /**
+     * 请求分阶段计时配置
+     */
+    @Data
+    public static class Timing {
+        /**
+         * 是否为/v2请求记录分阶段耗时
+         */
+        private boolean enabled = true;
+
+        /**
+         * 是否输出Server-Timing响应头
+         * 响应头会向客户端暴露数据库、存储等内部耗时，默认关闭，只在dev和loadtest环境开启
+         */
+        private boolean header = false;
+
+        /**
+         * trace记录输出文件（JSON Lines），留空不输出
+         */
+        private String traceFile = "";
+
+        /**
+         * trace记录写入队列容量，队列满时丢弃
+         */
+        private int traceQueueSize = 10000;
+    }
+
+    /**
+     * 代理模式配置
+     * 开启后本地不存在的manifest和blob从上游仓库拉取，返回给客户端的同时写入本地存储
+     */
+    @Data
+    public static class Proxy {
+        /**
+         * 是否开启代理模式
+         */
+        private boolean enabled = false;
+
+        /**
+         * 上游仓库地址
+         */
+        private String remoteUrl = "https://registry-1.docker.io";
+
+        /**
+         * 上游仓库用户名（为空时匿名访问）
+         */
+        private String username;
+
+        /**
+         * 上游仓库密码或访问令牌
+         */
+        private String password;
+
+        /**
+         * 访问上游时加在仓库名前的前缀，例如Docker Hub官方镜像为"library/"
+         */
+        private String repositoryPrefix = "";
+
+        /**
+         * tag的新鲜期（毫秒），超过后向上游确认tag是否移动
+         */
+        private long tagTtl = 300000; // 5分钟
+
+        /**
+         * 连接上游的超时时间（毫秒）
+         */
+        private long connectTimeout = 10000;
+
+        /**
+         * 等待上游响应头的超时时间（毫秒）
+         */
+        private long requestTimeout = 30000;
+
+        /**
+         * 同时从上游下载的blob数上限
+         */
+        private int fillParallelism = 8;
+
+        /**
+         * 排队等待下载的blob数上限，超出时请求直接转发上游内容，不写入本地存储
+         */
+        private int fillQueueCapacity = 64;
+
+        /**
+         * 等待下载开始（排队及上游响应头）的超时时间（毫秒）
+         */
+        private long fillStartTimeout = 60000;
+
+        /**
+         * blob下载的本地暂存目录（为空时使用系统临时目录）
+         */
+        private String spoolDirectory = "";
+    }
+
+    /**
+     * 读写分离配置
+     * 开启后GET/HEAD请求中事务外的查询发往健康的从库，写入和事务内的查询始终使用主库
+     */
+    @Data
+    public static class ReadReplicas {
+        /**
+         * 是否开启读写分离
+         */
+        private boolean enabled = false;
+
+        /**
+         * 从库列表
+         */
+        private List<Node> nodes = new ArrayList<>();
+
+        /**
+         * 允许的最大复制延迟（毫秒），超过后该从库不再接收读请求，直到延迟恢复
+         */
+        private long maxLag = 1000;
+
+        /**
+         * 复制延迟检测间隔（毫秒）
+         */
+        private long lagCheckInterval = 500;
+
+        /**
+         * 读己之写窗口（毫秒）：同一客户端写入后，此时间内的读请求使用主库
+         */
+        private long readYourWritesWindow = 5000;
+    }
+
+    /**
+     * 从库连接配置
+     */
+    @Data
+    public static class Node {
+        /**
+         * JDBC连接地址
+         */
+        private String url;
+
+        /**
+         * 用户名（为空时使用主库的用户名）
+         */
+        private String username;
+
+        /**
+         * 密码（用户名为空时使用主库的密码）
+         */
+        private String password;
+
+        /**
+         * 连接池最大连接数
+         */
+        private int maximumPoolSize = 20;
+
+        /**
+         * 获取连接的超时时间（毫秒），超时后本次读请求改用主库
+         */
+        private long connectionTimeout = 2000;
+    }
+
+    /**
+     * HTTP/2配置（server.http2.enabled开启时生效）
+     */
+    @Data
+    public static class Http2 {
+        /**
+         * 每个流的初始流控窗口（字节）
+         * 决定客户端在等待WINDOW_UPDATE前可发送的数据量，默认64KB时blob上传吞吐受往返时延限制
+         */
+        private int initialWindowSize = 1048576;
+    }
+
+    /**
+     * blob下载限速配置
+     * 每个客户端一个令牌桶；本实例的总带宽按仓库权重在有下载的仓库之间分配
+     */
+    @Data
+    public static class Bandwidth {
+        /**
+         * 是否启用限速
+         */
+        private boolean enabled = false;
+
+        /**
+         * 本实例blob下载总速率（字节/秒），0表示不限制
+         */
+        private long globalRate = 0;
+
+        /**
+         * 每个客户端的下载速率（字节/秒），0表示不限制
+         */
+        private long clientRate = 0;
+
+        /**
+         * 客户端的区分方式
+         */
+        private ClientKey clientKey = ClientKey.IP;
+
+        /**
+         * 令牌桶容量（字节），空闲后允许以此突发
+         */
+        private long burst = 1048576; // 1MB
+
+        /**
+         * 未单独配置的仓库权重
+         */
+        private int defaultWeight = 1;
+
+        /**
+         * 按仓库配置的权重，总带宽不足时各仓库按权重比例分配
+         */
+        private Map<String, Integer> repositoryWeights = new HashMap<>();
+
+        /**
+         * 获取仓库的权重
+         * 
+         * @param repository 仓库名
+         * @return 权重，至少为1
+         */
+        public int getWeight(String repository) {
+            return Math.max(1, repositoryWeights.getOrDefault(repository, defaultWeight));
+        }
+    }
+
+    /**
+     * 限速时区分客户端的方式
+     */
+    public enum ClientKey {
+        /**
+         * 客户端IP（经反向代理时需配置server.forward-headers-strategy）
+         */
+        IP,
+        /**
+         * Authorization头中的凭证，未携带时按IP区分
+         */
+        TOKEN
     }
 
     /**
-     * 清理策略配置
+     * 仓库配额配置
+     */
+    @Data
+    public static class Quota {
+        /**
+         * 默认的仓库存储配额（字节），0表示不限制
+         */
+        private long defaultBytes = 0;
+
+        /**
+         * 按仓库单独配置的存储配额（字节），0表示不限制
+         */
+        private Map<String, Long> repositories = new HashMap<>();
+
+        /**
+         * 获取仓库的存储配额
+         * 
+         * @param repository 仓库名
+         * @return 配额（字节），0表示不限制
+         */
+        public long getLimit(String repository) {
+            return repositories.getOrDefault(repository, defaultBytes);
+        }
+    }
+
+    /**
+     * 清理策略配置（未被引用blob的垃圾回收）
      */
     @Data
     public static class Cleanup {
         /**
          * 是否启用自动清理
          */
-        private boolean enabled = true;
+        private boolean enabled = false;
 
         /**
          * 清理间隔（小时）
@@ -97,8 +588,52 @@ public class RegistryProperties {
         private long intervalHours = 24;
 
         /**
-         * 保留天数
+         * 保留天数：未被引用的blob创建后至少保留的时间（宽限期），
+         * 覆盖已上传blob但manifest尚未推送的窗口
          */
         private long retentionDays = 30;
+
+        /**
+         * 标记和清理阶段每页读取的记录数
+         */
+        private int pageSize = 1000;
+
+        /**
+         * 每个删除事务最多删除的blob数
+         */
+        private int deleteBatchSize = 500;
+    }
+
+    /**
+     * 内容定义分块存储配置
+     * 开启后新上传的blob按滚动哈希切分为分块，相同分块只存储一份；已有blob和关闭后上传的blob整体存储
+     * 分块边界由内容和以下大小参数共同决定，修改后新旧blob之间的分块无法再去重
+     */
+    @Data
+    public static class Chunking {
+        /**
+         * 是否启用分块存储
+         */
+        private boolean enabled = false;
+
+        /**
+         * 小于该大小的blob整体存储（字节）
+         */
+        private long minBlobSize = 1048576; // 1MB
+
+        /**
+         * 最小分块大小（字节）
+         */
+        private int minChunkSize = 262144; // 256KB
+
+        /**
+         * 平均分块大小（字节，按2的幂取整）
+         */
+        private int avgChunkSize = 1048576; // 1MB
+
+        /**
+         * 最大分块大小（字节），也是写入时每个上传占用的缓冲区大小
+         */
+        private int maxChunkSize = 4194304; // 4MB
     }
 }
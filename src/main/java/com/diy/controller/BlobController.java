@@ -1,8 +1,16 @@
 package com.diy.controller;
 
+import com.diy.bandwidth.BandwidthShaper;
+import com.diy.cache.BlobContentCache;
 import com.diy.entity.Blob;
+import com.diy.exception.BlobNotFoundException;
+import com.diy.metrics.RegistryMetrics;
+import com.diy.metrics.RequestTiming;
 import com.diy.service.BlobService;
+import com.diy.utils.ETagUtils;
 import com.diy.utils.RangeUtils;
+import com.diy.utils.StreamUtils;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -27,25 +35,56 @@ public class BlobController {
     @Autowired
     private BlobService blobService;
 
+    @Autowired
+    private RegistryMetrics registryMetrics;
+
+    @Autowired
+    private BlobContentCache blobContentCache;
+
+    @Autowired
+    private BandwidthShaper bandwidthShaper;
+
     /**
      * GET /v2/{name}/blobs/{digest} - 下载blob
-     * 支持Range请求的分片下载
+     * 支持Range请求的分片下载，以及If-None-Match / If-Range条件请求
+     * 开启限速时按客户端和仓库权重控制写出速率
      * 
-     * @param name   仓库名
-     * @param digest blob的SHA256值
-     * @param range  Range请求头（可选）
-     * @return blob数据流
+     * @param name        仓库名
+     * @param digest      blob的SHA256值
+     * @param range       Range请求头（可选）
+     * @param ifNoneMatch If-None-Match头（可选）
+     * @param ifRange     If-Range头（可选）
+     * @param request     HTTP请求，用于区分限速的客户端
+     * @return blob数据流，或304 Not Modified
      */
     @GetMapping("/{digest}")
     public ResponseEntity<StreamingResponseBody> getBlob(
             @PathVariable String name,
             @PathVariable String digest,
-            @RequestHeader(value = "Range", required = false) String range) {
+            @RequestHeader(value = "Range", required = false) String range,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch,
+            @RequestHeader(value = "If-Range", required = false) String ifRange,
+            HttpServletRequest request) {
 
         log.debug("Get blob request: repository={}, digest={}, range={}", name, digest, range);
 
-        // 获取blob信息
-        Blob blob = blobService.getBlobByDigest(digest);
+        // 获取blob信息（代理模式下本地不存在时来自上游）
+        Blob blob = blobService.getBlob(name, digest);
+        String etag = ETagUtils.fromDigest(digest);
+
+        // 客户端已有相同内容，不读取存储
+        if (ETagUtils.matchesIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .header("Docker-Content-Digest", digest)
+                    .header("ETag", etag)
+                    .build();
+        }
+
+        // If-Range不匹配时忽略Range，返回完整内容
+        if (range != null && !ETagUtils.matchesIfRange(ifRange, etag)) {
+            log.debug("If-Range mismatch, ignoring range: digest={}, if_range={}", digest, ifRange);
+            range = null;
+        }
 
         // 处理Range请求
         RangeUtils.RangeInfo rangeInfo = null;
@@ -60,45 +99,31 @@ public class BlobController {
 
         // 创建流式响应
         final RangeUtils.RangeInfo finalRangeInfo = rangeInfo;
+        // 流式写出在异步线程执行，OSS读取和写出耗时计入同一请求
+        final RequestTiming timing = RequestTiming.current();
+        // 请求对象在异步线程中不可用，先取出客户端标识
+        final String client = bandwidthShaper.clientKey(request);
         StreamingResponseBody responseBody = outputStream -> {
-            try (InputStream inputStream = blobService.getBlobInputStream(digest)) {
+            long totalBytesRead = 0;
+            RequestTiming.bind(timing);
+            registryMetrics.streamStarted();
+            BandwidthShaper.Download throttle = bandwidthShaper.open(name, client);
+            try (InputStream inputStream = openBlob(name, digest)) {
 
-                byte[] buffer = new byte[8192];
-                long totalBytesRead = 0;
+                byte[] buffer = new byte[StreamUtils.DEFAULT_BUFFER_SIZE];
                 long startPosition = finalRangeInfo != null ? finalRangeInfo.getStart() : 0;
                 long endPosition = finalRangeInfo != null ? finalRangeInfo.getEnd() : blob.getSize() - 1;
                 long bytesToRead = endPosition - startPosition + 1;
 
                 // 跳过开始位置之前的数据
                 if (startPosition > 0) {
-                    long skipped = 0;
-                    while (skipped < startPosition) {
-                        long toSkip = startPosition - skipped;
-                        long actualSkipped = inputStream.skip(toSkip);
-                        if (actualSkipped <= 0) {
-                            // skip返回0时，用read方式跳过
-                            byte[] skipBuffer = new byte[(int) Math.min(8192, toSkip)];
-                            int readBytes = inputStream.read(skipBuffer);
-                            if (readBytes <= 0)
-                                break;
-                            skipped += readBytes;
-                        } else {
-                            skipped += actualSkipped;
-                        }
-                    }
+                    long skipped = StreamUtils.skipFully(inputStream, startPosition, buffer);
                     log.debug("Skipped {} bytes for range request", skipped);
                 }
 
-                // 读取并写入指定范围的数据
-                long remainingBytes = bytesToRead;
-                int bytesRead;
-                while (remainingBytes > 0 && (bytesRead = inputStream.read(buffer, 0,
-                        (int) Math.min(buffer.length, remainingBytes))) != -1) {
-
-                    outputStream.write(buffer, 0, bytesRead);
-                    remainingBytes -= bytesRead;
-                    totalBytesRead += bytesRead;
-                }
+                // 读取并写入指定范围的数据，计时开启时分别累计读OSS、限速等待和写客户端的耗时
+                totalBytesRead = StreamUtils.copyRange(inputStream, outputStream, bytesToRead, buffer, timing,
+                        throttle);
 
                 outputStream.flush();
                 log.debug("Blob download completed: digest={}, bytes_sent={}", digest, totalBytesRead);
@@ -117,6 +142,13 @@ public class BlobController {
                 } catch (IOException ignored) {
                 }
                 throw new RuntimeException("Blob streaming failed", e);
+            } finally {
+                if (throttle != null) {
+                    throttle.close();
+                }
+                registryMetrics.streamFinished();
+                registryMetrics.recordBytesSent("blob", name, totalBytesRead);
+                RequestTiming.clear();
             }
         };
 
@@ -135,9 +167,11 @@ public class BlobController {
                     .header("Content-Length", String.valueOf(blob.getSize()));
         }
 
+        // blob不参与响应压缩：带强ETag的响应Tomcat不会压缩，字节与digest和Range偏移保持一致
         return responseBuilder
                 .header("Content-Type", blob.getContentType())
                 .header("Docker-Content-Digest", digest)
+                .header("ETag", etag)
                 .header("Accept-Ranges", "bytes")
                 .body(responseBody);
     }
@@ -157,18 +191,34 @@ public class BlobController {
 
         log.debug("Head blob request: repository={}, digest={}", name, digest);
 
-        // 检查blob是否存在
-        if (blobService.existsByDigest(digest)) {
-            Blob blob = blobService.getBlobByDigest(digest);
-
-            return ResponseEntity.ok()
-                    .header("Content-Type", blob.getContentType())
-                    .header("Content-Length", String.valueOf(blob.getSize()))
-                    .header("Docker-Content-Digest", digest)
-                    .header("Accept-Ranges", "bytes")
-                    .build();
-        } else {
+        // 一次查询同时完成存在性检查和元数据获取
+        Blob blob;
+        try {
+            blob = blobService.getBlob(name, digest);
+        } catch (BlobNotFoundException e) {
             return ResponseEntity.notFound().build();
         }
+
+        return ResponseEntity.ok()
+                .header("Content-Type", blob.getContentType())
+                .header("Content-Length", String.valueOf(blob.getSize()))
+                .header("Docker-Content-Digest", digest)
+                .header("ETag", ETagUtils.fromDigest(digest))
+                .header("Accept-Ranges", "bytes")
+                .build();
+    }
+
+    /**
+     * 打开blob内容，优先读取预取到本机的缓存
+     */
+    private InputStream openBlob(String name, String digest) throws IOException {
+        if (blobContentCache.isEnabled()) {
+            InputStream cached = blobContentCache.open(digest);
+            registryMetrics.recordBlobCache(cached != null);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return blobService.getBlobInputStream(name, digest);
     }
 }
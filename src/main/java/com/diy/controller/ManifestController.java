@@ -1,9 +1,13 @@
 package com.diy.controller;
 
+import com.diy.cache.BlobPrefetcher;
 import com.diy.config.WebConfig;
 import com.diy.entity.Manifest;
 import com.diy.exception.UnsupportedMediaTypeException;
+import com.diy.metrics.RegistryMetrics;
 import com.diy.service.ManifestService;
+import com.diy.utils.ContentEncodingUtils;
+import com.diy.utils.ETagUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -26,82 +30,79 @@ public class ManifestController {
     @Autowired
     private ManifestService manifestService;
 
+    @Autowired
+    private RegistryMetrics registryMetrics;
+
+    @Autowired
+    private BlobPrefetcher blobPrefetcher;
+
     /**
      * GET /v2/{name}/manifests/{reference} - 获取manifest
      * 根据tag或digest获取manifest内容
+     * 支持If-None-Match条件请求，ETag由Docker-Content-Digest生成
+     * 客户端接受gzip且manifest有预压缩内容时直接返回gzip表示，不在请求时压缩
+     * 开启blob内容缓存时在后台预取manifest引用的blob
      * 
-     * @param name      仓库名
-     * @param reference 引用（tag或digest）
-     * @param accept    Accept头，指定期望的媒体类型
-     * @return manifest JSON内容
+     * @param name           仓库名
+     * @param reference      引用（tag或digest）
+     * @param accept         Accept头，指定期望的媒体类型
+     * @param acceptEncoding Accept-Encoding头（可选）
+     * @param ifNoneMatch    If-None-Match头（可选）
+     * @return manifest JSON内容（上传时的原始字节或其gzip表示），或304 Not Modified
      */
     @GetMapping("/{reference}")
-    public ResponseEntity<String> getManifest(
+    public ResponseEntity<byte[]> getManifest(
             @PathVariable String name,
             @PathVariable String reference,
-            @RequestHeader(value = "Accept", required = false) String accept) {
+            @RequestHeader(value = "Accept", required = false) String accept,
+            @RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
 
         log.debug("Get manifest request: repository={}, reference={}, accept={}", name, reference, accept);
 
-        if (manifestService.isDigestReference(reference)) {
-            // 通过digest获取具体的manifest
-            Manifest manifest = manifestService.getManifest(name, reference);
-
-            return ResponseEntity.ok()
-                    .header("Content-Type", manifest.getMediaType())
-                    .header("Docker-Content-Digest", manifest.getDigest())
-                    .body(manifest.getContent());
-
-        } else {
-            // 通过tag获取，需要判断返回manifest还是manifest list
-            if (isManifestListRequest(accept)) {
-                // 返回manifest list
-                String manifestListContent = manifestService.buildManifestList(name, reference);
-
-                return ResponseEntity.ok()
-                        .header("Content-Type", WebConfig.MANIFEST_LIST_V2_MEDIA_TYPE)
-                        .body(manifestListContent);
-            } else {
-                // 返回最新的manifest
-                Manifest manifest = manifestService.getManifest(name, reference);
-
-                return ResponseEntity.ok()
-                        .header("Content-Type", manifest.getMediaType())
-                        .header("Docker-Content-Digest", manifest.getDigest())
-                        .body(manifest.getContent());
+        // 条件请求：先只解析digest，未命中时不重复解析tag
+        if (ifNoneMatch != null) {
+            String digest = manifestService.resolveDigest(name, reference);
+            if (ETagUtils.matchesIfNoneMatch(ifNoneMatch, ETagUtils.fromDigest(digest))) {
+                log.debug("Manifest not modified: repository={}, reference={}, digest={}", name, reference, digest);
+                // 304的ETag和Vary需与所选表示的200一致，是否有gzip表示取决于内容（通常命中内容缓存）
+                Manifest manifest = manifestService.getManifest(name, digest);
+                return notModified(manifest, representation(manifest, acceptEncoding));
             }
         }
+
+        // 通过digest获取具体的manifest，或通过tag获取其指向的manifest（含推送时存储的manifest list）
+        // 直接返回存储的原始字节，不经过字符集转换
+        Manifest manifest = manifestService.getManifest(name, reference);
+        byte[] body = representation(manifest, acceptEncoding);
+        registryMetrics.recordBytesSent("manifest", name, body.length);
+        blobPrefetcher.prefetch(name, manifest);
+
+        return manifestResponse(manifest, body).body(body);
     }
 
     /**
      * HEAD /v2/{name}/manifests/{reference} - 检查manifest是否存在
-     * 返回manifest的元数据信息，不返回内容
+     * 返回manifest的元数据信息，不返回内容，响应头与相同Accept-Encoding的GET一致
      * 
-     * @param name      仓库名
-     * @param reference 引用（tag或digest）
-     * @param accept    Accept头，指定期望的媒体类型
+     * @param name           仓库名
+     * @param reference      引用（tag或digest）
+     * @param accept         Accept头，指定期望的媒体类型
+     * @param acceptEncoding Accept-Encoding头（可选）
      * @return 200 OK（存在）或 404 Not Found（不存在）
      */
     @RequestMapping(value = "/{reference}", method = RequestMethod.HEAD)
     public ResponseEntity<Void> headManifest(
             @PathVariable String name,
             @PathVariable String reference,
-            @RequestHeader(value = "Accept", required = false) String accept) {
+            @RequestHeader(value = "Accept", required = false) String accept,
+            @RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding) {
 
         log.debug("Head manifest request: repository={}, reference={}", name, reference);
 
         if (manifestService.existsManifest(name, reference)) {
             Manifest manifest = manifestService.getManifest(name, reference);
-
-            String contentType = manifest.getMediaType();
-            if (!manifestService.isDigestReference(reference) && isManifestListRequest(accept)) {
-                contentType = WebConfig.MANIFEST_LIST_V2_MEDIA_TYPE;
-            }
-
-            return ResponseEntity.ok()
-                    .header("Content-Type", contentType)
-                    .header("Docker-Content-Digest", manifest.getDigest())
-                    .build();
+            return manifestResponse(manifest, representation(manifest, acceptEncoding)).build();
         } else {
             return ResponseEntity.notFound().build();
         }
@@ -114,7 +115,7 @@ public class ManifestController {
      * @param name            仓库名
      * @param reference       引用（通常是tag）
      * @param contentType     Content-Type头，指定manifest类型
-     * @param manifestContent manifest JSON内容
+     * @param manifestContent manifest JSON内容（原始字节，digest按此计算）
      * @return 201 Created，Location头包含manifest的访问URL
      */
     @PutMapping("/{reference}")
@@ -122,7 +123,7 @@ public class ManifestController {
             @PathVariable String name,
             @PathVariable String reference,
             @RequestHeader("Content-Type") String contentType,
-            @RequestBody String manifestContent) {
+            @RequestBody byte[] manifestContent) {
 
         log.debug("Put manifest request: repository={}, reference={}, content_type={}",
                 name, reference, contentType);
@@ -133,6 +134,8 @@ public class ManifestController {
             throw new UnsupportedMediaTypeException(contentType);
         }
 
+        registryMetrics.recordBytesReceived("manifest", name, manifestContent.length);
+
         // 创建或更新manifest
         Manifest manifest = manifestService.putManifest(name, reference, manifestContent, contentType);
 
@@ -174,19 +177,61 @@ public class ManifestController {
     }
 
     /**
-     * 判断是否为manifest list请求
+     * 选择响应的内容编码：客户端接受gzip且有预压缩内容时使用gzip表示
+     * 
+     * @param manifest       Manifest实体
+     * @param acceptEncoding Accept-Encoding头
+     * @return 响应体
+     */
+    private byte[] representation(Manifest manifest, String acceptEncoding) {
+        if (manifest.getGzipContent() != null && ContentEncodingUtils.acceptsGzip(acceptEncoding)) {
+            return manifest.getGzipContent();
+        }
+        return manifest.getContent();
+    }
+
+    /**
+     * 构建manifest响应头
+     * Docker-Content-Digest始终为原始内容的digest；gzip表示使用弱ETag，仍可命中If-None-Match
      * 
-     * @param accept Accept头
-     * @return 是否请求manifest list
+     * @param manifest Manifest实体
+     * @param body     响应体（原始内容或gzip表示）
+     * @return 响应构建器
      */
-    private boolean isManifestListRequest(String accept) {
-        if (accept == null) {
-            return false;
+    private ResponseEntity.BodyBuilder manifestResponse(Manifest manifest, byte[] body) {
+        ResponseEntity.BodyBuilder builder = validators(ResponseEntity.ok(), manifest, body)
+                .header("Content-Type", manifest.getMediaType())
+                .contentLength(body.length);
+        if (body != manifest.getContent()) {
+            builder.header("Content-Encoding", ContentEncodingUtils.GZIP);
         }
+        return builder;
+    }
 
-        return accept.contains(WebConfig.MANIFEST_LIST_V2_MEDIA_TYPE) ||
-                accept.contains(WebConfig.OCI_INDEX_MEDIA_TYPE) ||
-                accept.contains("application/vnd.docker.distribution.manifest.list");
+    /**
+     * 构建304响应，ETag和Vary与同一表示的200响应一致
+     * 
+     * @param manifest Manifest实体
+     * @param body     客户端协商到的表示（原始内容或gzip表示）
+     * @return 304 Not Modified
+     */
+    private <T> ResponseEntity<T> notModified(Manifest manifest, byte[] body) {
+        return validators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), manifest, body).build();
+    }
+
+    /**
+     * 设置200和304共用的响应头：Docker-Content-Digest、ETag（gzip表示为弱ETag）和Vary
+     */
+    private static ResponseEntity.BodyBuilder validators(ResponseEntity.BodyBuilder builder, Manifest manifest,
+            byte[] body) {
+        builder.header("Docker-Content-Digest", manifest.getDigest())
+                .header("ETag", body != manifest.getContent()
+                        ? ETagUtils.weakFromDigest(manifest.getDigest())
+                        : ETagUtils.fromDigest(manifest.getDigest()));
+        if (manifest.getGzipContent() != null) {
+            builder.header("Vary", "Accept-Encoding");
+        }
+        return builder;
     }
 
     /**
@@ -1,12 +1,19 @@
 package com.diy.controller;
 
+import com.diy.config.RegistryProperties;
+import com.diy.dto.CatalogDto;
+import com.diy.service.RepositoryService;
+import com.diy.utils.PaginationUtils;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -20,6 +27,12 @@ import java.util.Map;
 @RequestMapping("/v2")
 public class RegistryController {
 
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
     /**
      * GET /v2/ - Registry API版本检查
      * 这是Docker客户端用来检测Registry是否支持v2 API的端点
@@ -55,4 +68,41 @@ public class RegistryController {
                 .header("Docker-Distribution-Api-Version", "registry/2.0")
                 .build();
     }
+
+    /**
+     * GET /v2/_catalog - 获取仓库列表
+     * 从repositories索引表分页读取，支持 n / last 分页，还有下一页时返回 Link 头
+     * 
+     * @param n    每页条数（可选）
+     * @param last 上一页最后一个仓库名（可选）
+     * @return 仓库列表
+     */
+    @GetMapping("/_catalog")
+    public ResponseEntity<CatalogDto> catalog(
+            @RequestParam(value = "n", required = false) Integer n,
+            @RequestParam(value = "last", required = false) String last) {
+
+        log.debug("Catalog request: n={}, last={}", n, last);
+
+        RegistryProperties.Pagination pagination = registryProperties.getPagination();
+        int pageSize = PaginationUtils.resolvePageSize(n, pagination.getDefaultPageSize(),
+                pagination.getMaxPageSize());
+
+        // 多取一条用于判断是否还有下一页
+        List<String> repositories = pageSize > 0
+                ? repositoryService.listRepositories(last, pageSize + 1)
+                : List.of();
+
+        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.ok()
+                .header("Content-Type", "application/json")
+                .header("Docker-Distribution-Api-Version", "registry/2.0");
+
+        if (pageSize > 0 && repositories.size() > pageSize) {
+            repositories = repositories.subList(0, pageSize);
+            responseBuilder.header("Link", PaginationUtils.buildNextLink(
+                    "/v2/_catalog", pageSize, repositories.get(pageSize - 1)));
+        }
+
+        return responseBuilder.body(new CatalogDto(repositories));
+    }
 }
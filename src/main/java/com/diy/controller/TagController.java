@@ -0,0 +1,67 @@
+package com.diy.controller;
+
+import com.diy.config.RegistryProperties;
+import com.diy.dto.TagListDto;
+import com.diy.service.ManifestService;
+import com.diy.utils.PaginationUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Tag相关API控制器
+ * 
+ * @author diy
+ */
+@Slf4j
+@RestController
+@RequestMapping("/v2/{name}/tags")
+public class TagController {
+
+    @Autowired
+    private ManifestService manifestService;
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    /**
+     * GET /v2/{name}/tags/list - 获取仓库的tag列表
+     * 支持 n / last 分页，还有下一页时返回 Link 头
+     * 
+     * @param name 仓库名
+     * @param n    每页条数（可选）
+     * @param last 上一页最后一个tag（可选）
+     * @return tag列表
+     */
+    @GetMapping("/list")
+    public ResponseEntity<TagListDto> listTags(
+            @PathVariable String name,
+            @RequestParam(value = "n", required = false) Integer n,
+            @RequestParam(value = "last", required = false) String last) {
+
+        log.debug("List tags request: repository={}, n={}, last={}", name, n, last);
+
+        RegistryProperties.Pagination pagination = registryProperties.getPagination();
+        int pageSize = PaginationUtils.resolvePageSize(n, pagination.getDefaultPageSize(),
+                pagination.getMaxPageSize());
+
+        // 多取一条用于判断是否还有下一页
+        List<String> tags = pageSize > 0
+                ? manifestService.listTags(name, last, pageSize + 1)
+                : List.of();
+
+        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.ok()
+                .header("Content-Type", "application/json");
+
+        if (pageSize > 0 && tags.size() > pageSize) {
+            tags = tags.subList(0, pageSize);
+            responseBuilder.header("Link", PaginationUtils.buildNextLink(
+                    String.format("/v2/%s/tags/list", name), pageSize, tags.get(pageSize - 1)));
+        }
+
+        return responseBuilder.body(new TagListDto(name, tags));
+    }
+}
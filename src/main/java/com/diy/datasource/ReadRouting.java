@@ -0,0 +1,84 @@
+package com.diy.datasource;
+
+/**
+ * 单个请求的读路由上下文
+ * 由ReadRoutingFilter在请求开始时绑定到当前线程，ReplicaRoutingDataSource据此选择主库或从库；
+ * 未绑定的线程（定时任务、后台下载等）始终使用主库
+ * 
+ * @author diy
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<ReadRouting> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 是否为只读请求（GET/HEAD），只读请求中事务外的查询可以发往从库
+     */
+    private final boolean readOnly;
+
+    /**
+     * 客户端在读己之写窗口内，查询使用主库
+     */
+    private final boolean pinned;
+
+    /**
+     * 本请求是否已在主库上执行过写事务
+     */
+    private boolean written;
+
+    private ReadRouting(boolean readOnly, boolean pinned) {
+        this.readOnly = readOnly;
+        this.pinned = pinned;
+    }
+
+    /**
+     * 开始一个请求的读路由，并绑定到当前线程
+     * 
+     * @param readOnly 是否为只读请求
+     * @param pinned   客户端是否在读己之写窗口内
+     * @return 路由上下文
+     */
+    public static ReadRouting begin(boolean readOnly, boolean pinned) {
+        ReadRouting routing = new ReadRouting(readOnly, pinned);
+        CURRENT.set(routing);
+        return routing;
+    }
+
+    /**
+     * 获取当前线程绑定的路由上下文
+     * 
+     * @return 路由上下文，未绑定时返回null
+     */
+    public static ReadRouting current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 解除当前线程的绑定
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * 查询是否需要使用主库以读到本客户端的写入
+     */
+    public boolean isPinned() {
+        return pinned || written;
+    }
+
+    /**
+     * 记录本请求已在主库上写入，之后的查询都使用主库
+     */
+    void markWritten() {
+        written = true;
+    }
+
+    public boolean hasWritten() {
+        return written;
+    }
+}
@@ -0,0 +1,77 @@
+package com.diy.datasource;
+
+import com.diy.config.RegistryProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * 读写分离的请求过滤器
+ * GET/HEAD请求允许事务外的查询读从库；其余请求以及刚写入过的客户端使用主库
+ * 
+ * 客户端按来源地址识别（docker客户端不保存cookie），写请求开始处理时即标记，结束后重新计时，窗口内该地址的读请求都使用主库，
+ * 例如推送manifest后立即拉取；窗口只在本实例内有效，多实例部署时需按来源地址会话保持
+ * 
+ * @author diy
+ */
+@Component
+@ConditionalOnProperty(prefix = "docker-registry.read-replicas", name = "enabled", havingValue = "true")
+public class ReadRoutingFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    /**
+     * 读己之写窗口内的客户端地址
+     */
+    private Cache<String, Boolean> recentWriters;
+
+    /**
+     * 初始化
+     */
+    @PostConstruct
+    public void init() {
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(100000)
+                .expireAfterWrite(Duration.ofMillis(registryProperties.getReadReplicas().getReadYourWritesWindow()))
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/v2");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+        String client = request.getRemoteAddr();
+        boolean read = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+        if (!read) {
+            // 写请求处理前就标记：响应发出后客户端立即（或在同一连接上并行）发出的读请求必须走主库
+            recentWriters.put(client, Boolean.TRUE);
+        }
+        ReadRouting routing = ReadRouting.begin(read, read && recentWriters.getIfPresent(client) != null);
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadRouting.clear();
+            // 写请求结束时重新计时；读请求也可能写入（代理模式下从上游填充）
+            if (!read || routing.hasWritten()) {
+                recentWriters.put(client, Boolean.TRUE);
+            }
+        }
+    }
+}
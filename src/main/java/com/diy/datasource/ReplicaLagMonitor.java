@@ -0,0 +1,155 @@
+package com.diy.datasource;
+
+import com.diy.config.RegistryProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 从库复制延迟检测
+ * 每个周期先读取主库和各从库的心跳值，再在主库写入新的心跳：
+ * 从库已追上主库的最新心跳时延迟记为0，否则为当前时间减去从库的心跳值（按检测间隔粒度偏大估算）
+ * 
+ * 需要直接访问指定的库，因此不经过MyBatis，使用JDBC执行固定的心跳SQL
+ * 
+ * @author diy
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "docker-registry.read-replicas", name = "enabled", havingValue = "true")
+public class ReplicaLagMonitor {
+
+    private static final String SELECT_BEAT = "SELECT beat_at FROM replication_heartbeat WHERE id = 1";
+
+    private static final String UPDATE_BEAT = "UPDATE replication_heartbeat SET beat_at = ? WHERE id = 1";
+
+    private static final String INSERT_BEAT = "INSERT INTO replication_heartbeat (id, beat_at) VALUES (1, ?)";
+
+    /**
+     * 心跳SQL的超时时间（秒）
+     */
+    private static final int QUERY_TIMEOUT_SECONDS = 2;
+
+    @Autowired
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 为从库连接池注册指标，主库连接池由Spring Boot注册
+     */
+    @PostConstruct
+    public void init() {
+        MicrometerMetricsTrackerFactory trackerFactory = new MicrometerMetricsTrackerFactory(meterRegistry);
+        for (ReplicaRoutingDataSource.Replica replica : routingDataSource.getReplicas()) {
+            replica.getDataSource().setMetricsTrackerFactory(trackerFactory);
+
+            Gauge.builder("registry.db.replica.lag", replica,
+                            r -> r.getLagMillis() < 0 ? Double.NaN : r.getLagMillis())
+                    .description("Replication lag measured through the heartbeat table, NaN when unreachable")
+                    .baseUnit("milliseconds")
+                    .tag("replica", replica.getName())
+                    .register(meterRegistry);
+        }
+
+        registerRoutes("replica", ReplicaRoutingDataSource::getReplicaReads);
+        registerRoutes("pinned", ReplicaRoutingDataSource::getPinnedReads);
+        registerRoutes("fallback", ReplicaRoutingDataSource::getFallbackReads);
+
+        RegistryProperties.ReadReplicas config = registryProperties.getReadReplicas();
+        log.info("Read replica routing enabled: replicas={}, max_lag={}ms, lag_check_interval={}ms, "
+                        + "read_your_writes_window={}ms",
+                routingDataSource.getReplicas().size(), config.getMaxLag(), config.getLagCheckInterval(),
+                config.getReadYourWritesWindow());
+    }
+
+    private void registerRoutes(String route, ToDoubleFunction<ReplicaRoutingDataSource> count) {
+        FunctionCounter.builder("registry.db.reads", routingDataSource, count)
+                .description("Read-eligible queries by routing decision")
+                .tag("route", route)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 检测各从库的复制延迟
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "#{@registryProperties.readReplicas.lagCheckInterval}")
+    public void check() {
+        long maxLag = registryProperties.getReadReplicas().getMaxLag();
+
+        Long primaryBeat;
+        try {
+            primaryBeat = readBeat(routingDataSource.getPrimary());
+        } catch (SQLException e) {
+            log.warn("Failed to read replication heartbeat from primary: {}", e.getMessage());
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (ReplicaRoutingDataSource.Replica replica : routingDataSource.getReplicas()) {
+            try {
+                Long replicaBeat = readBeat(replica.getDataSource());
+                if (primaryBeat == null || replicaBeat == null) {
+                    // 心跳行尚未写入或尚未同步到从库，暂不接收读请求
+                    replica.markDown(new SQLException("Replication heartbeat not found"));
+                } else {
+                    replica.updateLag(replicaBeat >= primaryBeat ? 0 : now - replicaBeat, maxLag);
+                }
+            } catch (SQLException e) {
+                replica.markDown(e);
+            }
+        }
+
+        try {
+            writeBeat(now);
+        } catch (SQLException e) {
+            log.warn("Failed to write replication heartbeat to primary: {}", e.getMessage());
+        }
+    }
+
+    private Long readBeat(HikariDataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(SELECT_BEAT)) {
+            statement.setQueryTimeout(QUERY_TIMEOUT_SECONDS);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : null;
+            }
+        }
+    }
+
+    private void writeBeat(long beatAt) throws SQLException {
+        try (Connection connection = routingDataSource.getPrimary().getConnection()) {
+            int updated;
+            try (PreparedStatement statement = connection.prepareStatement(UPDATE_BEAT)) {
+                statement.setQueryTimeout(QUERY_TIMEOUT_SECONDS);
+                statement.setLong(1, beatAt);
+                updated = statement.executeUpdate();
+            }
+            if (updated == 0) {
+                try (PreparedStatement statement = connection.prepareStatement(INSERT_BEAT)) {
+                    statement.setQueryTimeout(QUERY_TIMEOUT_SECONDS);
+                    statement.setLong(1, beatAt);
+                    statement.executeUpdate();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.diy.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 读写分离数据源
+ * 路由规则（按顺序）：
+ * 1. 未绑定ReadRouting，或不是只读请求：主库
+ * 2. 读写事务内：主库，并记录本请求已写入
+ * 3. 客户端刚写入过或本请求已写入过：主库（读己之写）
+ * 4. 轮询选择健康的从库；没有健康从库或获取连接失败时回退到主库
+ * 
+ * 事务开始时尚未建立同步上下文，需由LazyConnectionDataSourceProxy包装，使连接在第一条SQL执行时才获取
+ * 
+ * @author diy
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private final HikariDataSource primary;
+
+    private final List<Replica> replicas;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final LongAdder replicaReads = new LongAdder();
+
+    private final LongAdder pinnedReads = new LongAdder();
+
+    private final LongAdder fallbackReads = new LongAdder();
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<Replica> replicas) {
+        this.primary = primary;
+        this.replicas = replicas;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        ReadRouting routing = ReadRouting.current();
+        if (routing == null || !routing.isReadOnly()) {
+            return primary.getConnection();
+        }
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            routing.markWritten();
+            return primary.getConnection();
+        }
+
+        if (routing.isPinned()) {
+            pinnedReads.increment();
+            return primary.getConnection();
+        }
+
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(replicas.size(), 1));
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.isHealthy()) {
+                continue;
+            }
+            try {
+                Connection connection = replica.getDataSource().getConnection();
+                replicaReads.increment();
+                return connection;
+            } catch (SQLException e) {
+                replica.markDown(e);
+            }
+        }
+
+        fallbackReads.increment();
+        return primary.getConnection();
+    }
+
+    /**
+     * 连接池的账号在配置中固定，与HikariDataSource一样不支持按调用指定账号
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Routing data source does not accept per-call credentials");
+    }
+
+    /**
+     * 其余接口按主库处理，使连接池指标和健康检查能识别主库的HikariDataSource
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    public HikariDataSource getPrimary() {
+        return primary;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * 发往从库的查询数
+     */
+    public long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    /**
+     * 因读己之写改用主库的查询数
+     */
+    public long getPinnedReads() {
+        return pinnedReads.sum();
+    }
+
+    /**
+     * 没有可用从库而回退到主库的查询数
+     */
+    public long getFallbackReads() {
+        return fallbackReads.sum();
+    }
+
+    @Override
+    public void close() {
+        for (Replica replica : replicas) {
+            replica.getDataSource().close();
+        }
+        primary.close();
+    }
+
+    /**
+     * 从库及其健康状态
+     * 由ReplicaLagMonitor定期更新；首次检测完成前不接收读请求
+     */
+    public static class Replica {
+
+        private final String name;
+
+        private final HikariDataSource dataSource;
+
+        private volatile boolean healthy;
+
+        /**
+         * 最近一次测得的复制延迟（毫秒），不可达时为-1
+         */
+        private volatile long lagMillis = -1;
+
+        public Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public HikariDataSource getDataSource() {
+            return dataSource;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public long getLagMillis() {
+            return lagMillis;
+        }
+
+        /**
+         * 更新复制延迟
+         * 
+         * @param lagMillis 复制延迟（毫秒）
+         * @param maxLag    允许的最大延迟（毫秒）
+         */
+        void updateLag(long lagMillis, long maxLag) {
+            boolean nowHealthy = lagMillis <= maxLag;
+            if (nowHealthy != healthy) {
+                log.info("Replica {} {}: lag={}ms, max_lag={}ms",
+                        name, nowHealthy ? "back in rotation" : "lagging, routing reads to primary",
+                        lagMillis, maxLag);
+            }
+            this.lagMillis = lagMillis;
+            this.healthy = nowHealthy;
+        }
+
+        /**
+         * 标记从库不可达，直到下次检测成功
+         */
+        void markDown(Exception e) {
+            if (healthy) {
+                log.warn("Replica {} unavailable, routing reads to primary: {}", name, e.getMessage());
+            }
+            this.lagMillis = -1;
+            this.healthy = false;
+        }
+    }
+}
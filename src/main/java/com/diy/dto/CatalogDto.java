@@ -0,0 +1,26 @@
+package com.diy.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 仓库列表响应
+ * GET /v2/_catalog 的响应格式
+ * 
+ * @author diy
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogDto {
+
+    /**
+     * 当前页的仓库名列表（按字典序）
+     */
+    @JsonProperty("repositories")
+    private List<String> repositories;
+}
@@ -0,0 +1,32 @@
+package com.diy.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Tag列表响应
+ * GET /v2/{name}/tags/list 的响应格式
+ * 
+ * @author diy
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TagListDto {
+
+    /**
+     * 仓库名
+     */
+    @JsonProperty("name")
+    private String name;
+
+    /**
+     * 当前页的tag列表（按字典序）
+     */
+    @JsonProperty("tags")
+    private List<String> tags;
+}
@@ -31,6 +31,7 @@ public class Blob {
     /**
      * OSS对象存储key
      * 例如：blobs/ab/abc123def456.../data
+     * 分块存储的blob为空字符串，内容由blob_chunks中的分块拼接
      */
     private String ossObjectKey;
 
@@ -40,8 +41,20 @@ public class Blob {
      */
     private String contentType;
 
+    /**
+     * 分块数，0表示整体存储在ossObjectKey
+     */
+    private int chunkCount;
+
     /**
      * 创建时间
      */
     private LocalDateTime createdAt;
+
+    /**
+     * 是否以分块方式存储
+     */
+    public boolean isChunked() {
+        return chunkCount > 0;
+    }
 }
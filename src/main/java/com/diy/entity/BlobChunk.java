@@ -0,0 +1,42 @@
+package com.diy.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Blob分块列表中的一项
+ * 按seq顺序拼接blob的所有分块即为blob内容
+ * 
+ * @author diy
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BlobChunk {
+
+    /**
+     * 分块序号，从0开始
+     */
+    private Integer seq;
+
+    /**
+     * 分块的SHA256值
+     */
+    private String chunkDigest;
+
+    /**
+     * 分块在blob中的起始位置
+     */
+    private Long chunkOffset;
+
+    /**
+     * 分块大小（字节）
+     */
+    private Integer size;
+
+    /**
+     * 分块的OSS对象存储key（读取时从chunks表关联查询）
+     */
+    private String ossObjectKey;
+}
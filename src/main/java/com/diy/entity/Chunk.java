@@ -0,0 +1,45 @@
+package com.diy.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 分块实体类
+ * 分块存储模式下blob按内容切分得到的数据块，按SHA256寻址，相同内容只存储一份
+ * 
+ * @author diy
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Chunk {
+
+    /**
+     * 分块的SHA256值，格式：sha256:abc123def456...
+     */
+    private String digest;
+
+    /**
+     * 分块大小（字节）
+     */
+    private Integer size;
+
+    /**
+     * OSS对象存储key
+     * 例如：chunks/ab/abc123def456...
+     */
+    private String ossObjectKey;
+
+    /**
+     * 引用该分块的blob数，为0时由垃圾回收在宽限期后删除
+     */
+    private Integer refCount;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+}
@@ -9,6 +9,7 @@ import java.time.LocalDateTime;
 /**
  * Manifest实体类
  * 对应Docker镜像的元数据信息
+ * 按(repository, digest)内容寻址，tag与digest的对应关系保存在tags表
  * 
  * @author registry
  */
@@ -35,17 +36,17 @@ public class Manifest {
     private String repository;
 
     /**
-     * 标签（可为空）
-     * 当通过digest访问时为空
-     * 当通过tag访问时有值，例如：latest、v1.0、stable
+     * Manifest JSON内容（客户端上传的原始字节，digest按此计算）
+     * 包含镜像的所有层信息、配置信息等
      */
-    private String tag;
+    private byte[] content;
 
     /**
-     * Manifest JSON内容
-     * 包含镜像的所有层信息、配置信息等
+     * content的gzip表示（即数据库中的存储格式），不单独持久化
+     * 写入时生成，从数据库读取时直接取存储内容，响应Accept-Encoding: gzip的请求时无需再压缩；
+     * 内容较小或压缩无收益时为null
      */
-    private String content;
+    private byte[] gzipContent;
 
     /**
      * Content-Type
@@ -0,0 +1,50 @@
+package com.diy.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 仓库实体类
+ * 对应repositories索引表，计数随manifest/tag写入增量维护
+ * 
+ * @author diy
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Repository {
+
+    /**
+     * 仓库名称
+     */
+    private String name;
+
+    /**
+     * manifest数量
+     */
+    private Long manifestCount;
+
+    /**
+     * tag数量
+     */
+    private Long tagCount;
+
+    /**
+     * 仓库manifest引用的不重复blob数量
+     */
+    private Long blobCount;
+
+    /**
+     * 仓库manifest引用的不重复blob总大小（字节）
+     * 多个manifest共享的层只计算一次，用于配额检查
+     */
+    private Long blobBytes;
+
+    /**
+     * 首个manifest写入时间
+     */
+    private LocalDateTime createdAt;
+}
@@ -60,6 +60,79 @@ public class GlobalExceptionHandler {
                                 .body(error);
         }
 
+        /**
+         * Manifest引用的子manifest不存在异常
+         */
+        @ExceptionHandler(ManifestBlobUnknownException.class)
+        public ResponseEntity<ErrorResponse> handleManifestBlobUnknown(ManifestBlobUnknownException e,
+                        HttpServletRequest request) {
+                log.warn("Referenced manifest unknown: {}@{}, path: {}", e.getRepository(), e.getDigest(),
+                                request.getRequestURI());
+
+                ErrorResponse error = new ErrorResponse(
+                                "MANIFEST_BLOB_UNKNOWN",
+                                "manifest references a manifest or blob unknown to registry",
+                                e.getDigest());
+
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                                .header("Content-Type", "application/json")
+                                .body(error);
+        }
+
+        /**
+         * 仓库未找到异常
+         */
+        @ExceptionHandler(RepositoryNotFoundException.class)
+        public ResponseEntity<ErrorResponse> handleRepositoryNotFound(RepositoryNotFoundException e,
+                        HttpServletRequest request) {
+                log.warn("Repository not found: {}, path: {}", e.getRepository(), request.getRequestURI());
+
+                ErrorResponse error = new ErrorResponse(
+                                "NAME_UNKNOWN",
+                                "repository name not known to registry",
+                                e.getMessage());
+
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                                .header("Content-Type", "application/json")
+                                .body(error);
+        }
+
+        /**
+         * 仓库存储配额超限异常
+         */
+        @ExceptionHandler(QuotaExceededException.class)
+        public ResponseEntity<ErrorResponse> handleQuotaExceeded(QuotaExceededException e,
+                        HttpServletRequest request) {
+                log.warn("Quota exceeded: {}, path: {}", e.getRepository(), request.getRequestURI());
+
+                ErrorResponse error = new ErrorResponse(
+                                "DENIED",
+                                "requested access to the resource is denied",
+                                e.getMessage());
+
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                                .header("Content-Type", "application/json")
+                                .body(error);
+        }
+
+        /**
+         * 上游仓库不可用异常（代理模式）
+         */
+        @ExceptionHandler(UpstreamUnavailableException.class)
+        public ResponseEntity<ErrorResponse> handleUpstreamUnavailable(UpstreamUnavailableException e,
+                        HttpServletRequest request) {
+                log.warn("Upstream unavailable: {}, path: {}", e.getMessage(), request.getRequestURI());
+
+                ErrorResponse error = new ErrorResponse(
+                                "UNAVAILABLE",
+                                "upstream registry unavailable",
+                                e.getMessage());
+
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header("Content-Type", "application/json")
+                                .body(error);
+        }
+
         /**
          * 上传会话未找到异常
          */
@@ -95,6 +168,23 @@ public class GlobalExceptionHandler {
                                 .body(error);
         }
 
+        /**
+         * 无效标签异常
+         */
+        @ExceptionHandler(InvalidTagException.class)
+        public ResponseEntity<ErrorResponse> handleInvalidTag(InvalidTagException e, HttpServletRequest request) {
+                log.warn("Invalid tag: {}, path: {}", e.getTag(), request.getRequestURI());
+
+                ErrorResponse error = new ErrorResponse(
+                                "TAG_INVALID",
+                                "manifest tag did not match URI",
+                                e.getMessage());
+
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                                .header("Content-Type", "application/json")
+                                .body(error);
+        }
+
         /**
          * 不支持的媒体类型异常
          */
@@ -0,0 +1,20 @@
+package com.diy.exception;
+
+/**
+ * 无效标签异常
+ * 
+ * @author diy
+ */
+public class InvalidTagException extends RuntimeException {
+
+    private final String tag;
+
+    public InvalidTagException(String tag) {
+        super("Invalid tag format: " + tag);
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+}
@@ -0,0 +1,27 @@
+package com.diy.exception;
+
+/**
+ * Manifest引用的内容不存在异常
+ * manifest list / OCI index引用的子manifest在仓库中不存在时抛出
+ * 
+ * @author diy
+ */
+public class ManifestBlobUnknownException extends RuntimeException {
+
+    private final String repository;
+    private final String digest;
+
+    public ManifestBlobUnknownException(String repository, String digest) {
+        super(String.format("Referenced manifest unknown: %s@%s", repository, digest));
+        this.repository = repository;
+        this.digest = digest;
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+}
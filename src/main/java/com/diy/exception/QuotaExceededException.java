@@ -0,0 +1,21 @@
+package com.diy.exception;
+
+/**
+ * 仓库存储配额超限异常
+ * 
+ * @author diy
+ */
+public class QuotaExceededException extends RuntimeException {
+
+    private final String repository;
+
+    public QuotaExceededException(String repository, long usedBytes, long requestedBytes, long limitBytes) {
+        super(String.format("Repository storage quota exceeded: repository=%s, used=%d, requested=%d, limit=%d",
+                repository, usedBytes, requestedBytes, limitBytes));
+        this.repository = repository;
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+}
@@ -0,0 +1,25 @@
+package com.diy.exception;
+
+/**
+ * 仓库未找到异常
+ * 
+ * @author diy
+ */
+public class RepositoryNotFoundException extends RuntimeException {
+
+    private final String repository;
+
+    public RepositoryNotFoundException(String repository) {
+        super("Repository not found: " + repository);
+        this.repository = repository;
+    }
+
+    public RepositoryNotFoundException(String repository, String message) {
+        super(message);
+        this.repository = repository;
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+}
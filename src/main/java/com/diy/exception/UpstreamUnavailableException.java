@@ -0,0 +1,21 @@
+package com.diy.exception;
+
+/**
+ * 代理模式下上游仓库不可用异常（本地没有可用的缓存内容）
+ * 
+ * @author diy
+ */
+public class UpstreamUnavailableException extends RuntimeException {
+
+    private final String repository;
+
+    public UpstreamUnavailableException(String repository, String reference, Throwable cause) {
+        super("Upstream registry unavailable: repository=" + repository + ", reference=" + reference
+                + ", cause=" + cause.getMessage(), cause);
+        this.repository = repository;
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+}
@@ -0,0 +1,117 @@
+package com.diy.handler;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 可压缩的二进制字段类型处理器
+ * 写入时超过阈值且压缩有收益的内容以gzip存储，读取时按gzip魔数自动解压，
+ * 未压缩的历史数据可直接读取
+ * 
+ * 适用于manifest这类JSON内容：JSON不会以gzip魔数(0x1f 0x8b)开头，判断不会产生歧义
+ * 
+ * @author diy
+ */
+public class CompressedBytesTypeHandler extends BaseTypeHandler<byte[]> {
+
+    /**
+     * 小于该大小的内容不压缩（字节）
+     */
+    public static final int COMPRESSION_THRESHOLD = 1024;
+
+    private static final int GZIP_MAGIC_0 = 0x1f;
+    private static final int GZIP_MAGIC_1 = 0x8b;
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, byte[] parameter, JdbcType jdbcType)
+            throws SQLException {
+        ps.setBytes(i, encode(parameter));
+    }
+
+    @Override
+    public byte[] getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return decode(rs.getBytes(columnName));
+    }
+
+    @Override
+    public byte[] getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return decode(rs.getBytes(columnIndex));
+    }
+
+    @Override
+    public byte[] getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return decode(cs.getBytes(columnIndex));
+    }
+
+    /**
+     * 编码为存储格式，压缩后不比原内容小时保持原样
+     * 
+     * @param content 原始内容
+     * @return 存储内容
+     */
+    public static byte[] encode(byte[] content) {
+        if (content.length < COMPRESSION_THRESHOLD) {
+            return content;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compress content", e);
+        }
+
+        byte[] compressed = out.toByteArray();
+        return compressed.length < content.length ? compressed : content;
+    }
+
+    /**
+     * 由存储格式解码为原始内容
+     * 
+     * @param stored 存储内容
+     * @return 原始内容
+     */
+    public static byte[] decode(byte[] stored) {
+        if (stored == null || !isGzip(stored)) {
+            return stored;
+        }
+
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(stored))) {
+            return gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decompress content", e);
+        }
+    }
+
+    /**
+     * 生成gzip表示，内容小于阈值或压缩无收益时返回null
+     * 与存储格式一致，可直接作为Content-Encoding: gzip的响应体
+     * 
+     * @param content 原始内容
+     * @return gzip内容或null
+     */
+    public static byte[] gzipOrNull(byte[] content) {
+        byte[] encoded = encode(content);
+        return isGzip(encoded) ? encoded : null;
+    }
+
+    /**
+     * 是否为gzip格式（按魔数判断）
+     */
+    static boolean isGzip(byte[] bytes) {
+        return bytes.length >= 2
+                && (bytes[0] & 0xff) == GZIP_MAGIC_0
+                && (bytes[1] & 0xff) == GZIP_MAGIC_1;
+    }
+}
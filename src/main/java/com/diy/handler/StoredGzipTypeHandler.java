@@ -0,0 +1,50 @@
+package com.diy.handler;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 读写CompressedBytesTypeHandler字段中已压缩的存储内容
+ * 读取时字段以gzip存储则原样返回（可直接作为Content-Encoding: gzip的响应体），否则返回null；
+ * 写入时gzip内容原样写入，其他内容按CompressedBytesTypeHandler的规则编码，两者读取结果一致
+ * 
+ * 未注册为全局类型处理器，只在ManifestMapper.xml的ServedManifestResultMap中显式引用；
+ * 写入原始内容仍使用CompressedBytesTypeHandler
+ * 
+ * @author diy
+ */
+public class StoredGzipTypeHandler extends BaseTypeHandler<byte[]> {
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, byte[] parameter, JdbcType jdbcType)
+            throws SQLException {
+        // 已是gzip时原样写入，否则按原始内容编码
+        ps.setBytes(i, CompressedBytesTypeHandler.isGzip(parameter)
+                ? parameter
+                : CompressedBytesTypeHandler.encode(parameter));
+    }
+
+    @Override
+    public byte[] getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return gzipOrNull(rs.getBytes(columnName));
+    }
+
+    @Override
+    public byte[] getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return gzipOrNull(rs.getBytes(columnIndex));
+    }
+
+    @Override
+    public byte[] getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return gzipOrNull(cs.getBytes(columnIndex));
+    }
+
+    private static byte[] gzipOrNull(byte[] stored) {
+        return stored != null && CompressedBytesTypeHandler.isGzip(stored) ? stored : null;
+    }
+}
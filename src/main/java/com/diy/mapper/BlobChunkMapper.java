@@ -0,0 +1,44 @@
+package com.diy.mapper;
+
+import com.diy.entity.BlobChunk;
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+
+/**
+ * Blob分块列表数据访问层
+ * 
+ * @author diy
+ */
+@Mapper
+public interface BlobChunkMapper {
+
+    /**
+     * 批量写入blob的分块列表（SQL定义在BlobChunkMapper.xml）
+     * 
+     * @param blobDigest blob的digest
+     * @param chunks     分块列表，不能为空
+     * @return 影响行数
+     */
+    int insertAll(@Param("blobDigest") String blobDigest, @Param("chunks") List<BlobChunk> chunks);
+
+    /**
+     * 获取blob的分块列表及各分块的OSS key
+     * 
+     * @param blobDigest blob的digest
+     * @return 分块列表（按seq排序）
+     */
+    @Select("SELECT bc.seq, bc.chunk_digest, bc.chunk_offset, bc.size, c.oss_object_key " +
+            "FROM blob_chunks bc JOIN chunks c ON c.digest = bc.chunk_digest " +
+            "WHERE bc.blob_digest = #{blobDigest} ORDER BY bc.seq")
+    List<BlobChunk> findByBlob(@Param("blobDigest") String blobDigest);
+
+    /**
+     * 删除blob的分块列表
+     * 
+     * @param blobDigest blob的digest
+     * @return 影响行数
+     */
+    @Delete("DELETE FROM blob_chunks WHERE blob_digest = #{blobDigest}")
+    int deleteByBlob(@Param("blobDigest") String blobDigest);
+}
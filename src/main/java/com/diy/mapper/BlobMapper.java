@@ -3,6 +3,10 @@ package com.diy.mapper;
 import com.diy.entity.Blob;
 import org.apache.ibatis.annotations.*;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Blob数据访问层
  * 
@@ -17,10 +21,18 @@ public interface BlobMapper {
      * @param digest SHA256值
      * @return Blob实体
      */
-    @Select("SELECT digest, size, oss_object_key, content_type, created_at " +
+    @Select("SELECT digest, size, oss_object_key, content_type, chunk_count, created_at " +
             "FROM blobs WHERE digest = #{digest}")
     Blob findByDigest(@Param("digest") String digest);
 
+    /**
+     * 根据digest查找blob并加共享锁，读取最新提交的数据（SQL定义在BlobMapper.xml）
+     * 
+     * @param digest SHA256值
+     * @return Blob实体
+     */
+    Blob lockByDigest(@Param("digest") String digest);
+
     /**
      * 检查blob是否存在
      * 
@@ -31,37 +43,77 @@ public interface BlobMapper {
     boolean existsByDigest(@Param("digest") String digest);
 
     /**
-     * 插入新的blob记录
+     * 批量查询blob（SQL定义在BlobMapper.xml）
      * 
-     * @param blob Blob实体
-     * @return 影响行数
+     * @param digests SHA256值集合，不能为空
+     * @return 存在的Blob列表
      */
-    @Insert("INSERT INTO blobs (digest, size, oss_object_key, content_type, created_at) " +
-            "VALUES (#{digest}, #{size}, #{ossObjectKey}, #{contentType}, #{createdAt})")
-    int insert(Blob blob);
+    List<Blob> findByDigests(@Param("digests") Collection<String> digests);
 
     /**
-     * 根据digest删除blob
+     * 批量查询并加共享锁（manifest写入事务中使用，防止GC并发删除被引用的blob）
+     * SQL定义在BlobMapper.xml
      * 
-     * @param digest SHA256值
-     * @return 影响行数
+     * @param digests SHA256值集合，不能为空
+     * @return 存在的digest列表
      */
-    @Delete("DELETE FROM blobs WHERE digest = #{digest}")
-    int deleteByDigest(@Param("digest") String digest);
+    List<String> lockByDigests(@Param("digests") Collection<String> digests);
+
+    /**
+     * 分页获取早于指定时间创建、且未被任何manifest引用的blob
+     * GC清理候选，keyset分页，SQL定义在BlobMapper.xml
+     * 
+     * @param last   上一页最后一个digest（为空时从头开始）
+     * @param before 只返回早于该时间创建的blob
+     * @param limit  最多返回的条数
+     * @return Blob列表（按digest排序）
+     */
+    List<Blob> findUnreferencedPage(@Param("last") String last,
+            @Param("before") LocalDateTime before,
+            @Param("limit") int limit);
+
+    /**
+     * 批量查询并加排他锁（删除前使用，SQL定义在BlobMapper.xml）
+     * 
+     * @param digests SHA256值集合，不能为空
+     * @param before  只锁定早于该时间创建的blob（为空时不限制）
+     * @return 锁定的Blob列表
+     */
+    List<Blob> lockForDeletion(@Param("digests") Collection<String> digests,
+            @Param("before") LocalDateTime before);
 
     /**
-     * 获取blob总数
+     * 批量删除blob记录（SQL定义在BlobMapper.xml）
      * 
-     * @return 总数
+     * @param digests SHA256值集合，不能为空
+     * @return 影响行数
      */
-    @Select("SELECT COUNT(1) FROM blobs")
-    long countAll();
+    int deleteByDigests(@Param("digests") Collection<String> digests);
 
     /**
-     * 获取所有blob的总大小
+     * 计算一组blob的总大小（SQL定义在BlobMapper.xml）
      * 
+     * @param digests SHA256值集合，不能为空
      * @return 总大小（字节）
      */
-    @Select("SELECT COALESCE(SUM(size), 0) FROM blobs")
-    long sumSize();
+    long sumSizes(@Param("digests") Collection<String> digests);
+
+    /**
+     * 插入新的blob记录
+     * 
+     * @param blob Blob实体
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO blobs (digest, size, oss_object_key, content_type, chunk_count, created_at) " +
+            "VALUES (#{digest}, #{size}, #{ossObjectKey}, #{contentType}, #{chunkCount}, #{createdAt})")
+    int insert(Blob blob);
+
+    /**
+     * 根据digest删除blob
+     * 
+     * @param digest SHA256值
+     * @return 影响行数
+     */
+    @Delete("DELETE FROM blobs WHERE digest = #{digest}")
+    int deleteByDigest(@Param("digest") String digest);
 }
@@ -0,0 +1,87 @@
+package com.diy.mapper;
+
+import com.diy.entity.Chunk;
+import org.apache.ibatis.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 分块索引数据访问层
+ * chunks表按内容寻址，ref_count为引用该分块的blob数，在blob写入/删除的事务中维护
+ * 
+ * @author diy
+ */
+@Mapper
+public interface ChunkMapper {
+
+    /**
+     * 检查分块是否已存在
+     * 
+     * @param digest 分块的SHA256值
+     * @return 是否存在
+     */
+    @Select("SELECT COUNT(1) > 0 FROM chunks WHERE digest = #{digest}")
+    boolean existsByDigest(@Param("digest") String digest);
+
+    /**
+     * 写入新分块的索引记录，已存在时忽略
+     * 新分块的引用数为0，在引用它的blob提交前可被宽限期外的GC回收
+     * 
+     * @param chunk 分块实体
+     * @return 影响行数（已存在时为0）
+     */
+    @Insert("INSERT IGNORE INTO chunks (digest, size, oss_object_key, ref_count, created_at) " +
+            "VALUES (#{digest}, #{size}, #{ossObjectKey}, 0, #{createdAt})")
+    int insertIgnore(Chunk chunk);
+
+    /**
+     * 批量调整分块引用数（SQL定义在ChunkMapper.xml）
+     * 更新会对分块行加排他锁，与GC删除互斥
+     * 
+     * @param digests 分块digest集合（不重复），不能为空
+     * @param delta   增量
+     * @return 匹配的行数，小于digests个数说明有分块已被删除
+     */
+    int addRefs(@Param("digests") Collection<String> digests, @Param("delta") int delta);
+
+    /**
+     * 释放blob对其所有分块的引用（每个不同的分块减1）
+     * 
+     * @param blobDigest blob的digest
+     * @return 影响行数
+     */
+    @Update("UPDATE chunks SET ref_count = ref_count - 1 WHERE digest IN " +
+            "(SELECT DISTINCT chunk_digest FROM blob_chunks WHERE blob_digest = #{blobDigest})")
+    int releaseByBlob(@Param("blobDigest") String blobDigest);
+
+    /**
+     * 分页获取早于指定时间创建、且没有被引用的分块（SQL定义在ChunkMapper.xml）
+     * GC清理候选，keyset分页
+     * 
+     * @param last   上一页最后一个digest（第一页为空）
+     * @param before 只返回早于该时间创建的分块
+     * @param limit  最多返回的条数
+     * @return 分块列表（按digest排序）
+     */
+    List<Chunk> findReleasedPage(@Param("last") String last,
+            @Param("before") LocalDateTime before,
+            @Param("limit") int limit);
+
+    /**
+     * 批量锁定仍未被引用的分块（删除前使用，SQL定义在ChunkMapper.xml）
+     * 
+     * @param digests 分块digest集合，不能为空
+     * @return 锁定的分块列表
+     */
+    List<Chunk> lockReleased(@Param("digests") Collection<String> digests);
+
+    /**
+     * 批量删除分块记录（SQL定义在ChunkMapper.xml）
+     * 
+     * @param digests 分块digest集合，不能为空
+     * @return 影响行数
+     */
+    int deleteByDigests(@Param("digests") Collection<String> digests);
+}
@@ -0,0 +1,108 @@
+package com.diy.mapper;
+
+import org.apache.ibatis.annotations.*;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Manifest引用blob的反向索引数据访问层
+ * manifest_blobs表在manifest写入时填充、删除时清除，blob_digest上有索引
+ * 
+ * @author diy
+ */
+@Mapper
+public interface ManifestBlobMapper {
+
+    /**
+     * 批量写入manifest引用的blob（SQL定义在ManifestBlobMapper.xml）
+     * 
+     * @param repository     仓库名
+     * @param manifestDigest manifest的digest
+     * @param blobDigests    引用的blob digest集合，不能为空
+     * @return 影响行数
+     */
+    int insertAll(@Param("repository") String repository,
+            @Param("manifestDigest") String manifestDigest,
+            @Param("blobDigests") Collection<String> blobDigests);
+
+    /**
+     * 删除manifest的所有引用记录
+     * 
+     * @param repository     仓库名
+     * @param manifestDigest manifest的digest
+     * @return 影响行数
+     */
+    @Delete("DELETE FROM manifest_blobs WHERE repository = #{repository} AND manifest_digest = #{manifestDigest}")
+    int deleteByManifest(@Param("repository") String repository,
+            @Param("manifestDigest") String manifestDigest);
+
+    /**
+     * 获取manifest引用的blob
+     * 
+     * @param repository     仓库名
+     * @param manifestDigest manifest的digest
+     * @return blob digest列表
+     */
+    @Select("SELECT blob_digest FROM manifest_blobs " +
+            "WHERE repository = #{repository} AND manifest_digest = #{manifestDigest}")
+    List<String> findBlobsByManifest(@Param("repository") String repository,
+            @Param("manifestDigest") String manifestDigest);
+
+    /**
+     * 检查blob是否已被仓库中的manifest引用
+     * 
+     * @param repository 仓库名
+     * @param blobDigest blob的digest
+     * @return 是否被引用
+     */
+    @Select("SELECT EXISTS (SELECT 1 FROM manifest_blobs " +
+            "WHERE repository = #{repository} AND blob_digest = #{blobDigest})")
+    boolean existsByRepositoryAndBlob(@Param("repository") String repository,
+            @Param("blobDigest") String blobDigest);
+
+    /**
+     * 从给定的blob中找出已被仓库引用的，并加共享锁读取最新提交的数据
+     * 用于仓库级不重复blob计数，SQL定义在ManifestBlobMapper.xml
+     * 
+     * @param repository  仓库名
+     * @param blobDigests blob digest集合，不能为空
+     * @return 已被仓库引用的blob digest列表
+     */
+    List<String> lockReferencedInRepository(@Param("repository") String repository,
+            @Param("blobDigests") Collection<String> blobDigests);
+
+    /**
+     * 检查blob是否被任何manifest引用
+     * 
+     * @param blobDigest blob的digest
+     * @return 是否被引用
+     */
+    @Select("SELECT EXISTS (SELECT 1 FROM manifest_blobs WHERE blob_digest = #{blobDigest})")
+    boolean existsByBlob(@Param("blobDigest") String blobDigest);
+
+    /**
+     * 获取引用了blob的仓库
+     * 
+     * @param blobDigest blob的digest
+     * @return 仓库名列表
+     */
+    @Select("SELECT DISTINCT repository FROM manifest_blobs WHERE blob_digest = #{blobDigest} ORDER BY repository")
+    List<String> findRepositoriesByBlob(@Param("blobDigest") String blobDigest);
+
+    /**
+     * 获取引用了blob的仓库，并加共享锁读取最新提交的数据（SQL定义在ManifestBlobMapper.xml）
+     * 
+     * @param blobDigest blob的digest
+     * @return 仓库名列表（按字典序）
+     */
+    List<String> lockRepositoriesByBlob(@Param("blobDigest") String blobDigest);
+
+    /**
+     * 从给定的blob中找出仍被引用的（SQL定义在ManifestBlobMapper.xml）
+     * 
+     * @param blobDigests blob digest集合，不能为空
+     * @return 被引用的blob digest列表
+     */
+    List<String> findReferencedDigests(@Param("blobDigests") Collection<String> blobDigests);
+}
@@ -3,10 +3,13 @@ package com.diy.mapper;
 import com.diy.entity.Manifest;
 import org.apache.ibatis.annotations.*;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
  * Manifest数据访问层
+ * manifest按(repository, digest)内容寻址，tag单独存放在tags表（见TagMapper）
+ * content列保存原始字节，由CompressedBytesTypeHandler透明压缩（结果映射定义在ManifestMapper.xml）
  * 
  * @author diy
  */
@@ -18,36 +21,54 @@ public interface ManifestMapper {
      * 
      * @param repository 仓库名
      * @param digest     SHA256值
-     * @return Manifest实体
+     * @return Manifest实体（内容已压缩存储时包含gzipContent）
      */
-    @Select("SELECT id, digest, repository, tag, content, media_type, created_at " +
+    @Select("SELECT id, digest, repository, content, media_type, created_at " +
             "FROM manifests WHERE repository = #{repository} AND digest = #{digest}")
+    @ResultMap("ServedManifestResultMap")
     Manifest findByRepositoryAndDigest(@Param("repository") String repository,
             @Param("digest") String digest);
 
     /**
-     * 根据仓库名和tag查找manifest列表
+     * 根据仓库名查找所有manifest
      * 
      * @param repository 仓库名
-     * @param tag        标签
      * @return Manifest列表
      */
-    @Select("SELECT id, digest, repository, tag, content, media_type, created_at " +
-            "FROM manifests WHERE repository = #{repository} AND tag = #{tag} " +
+    @Select("SELECT id, digest, repository, content, media_type, created_at " +
+            "FROM manifests WHERE repository = #{repository} " +
             "ORDER BY created_at DESC")
-    List<Manifest> findByRepositoryAndTag(@Param("repository") String repository,
-            @Param("tag") String tag);
+    @ResultMap("ManifestResultMap")
+    List<Manifest> findByRepository(@Param("repository") String repository);
 
     /**
-     * 根据仓库名查找所有manifest
+     * 分页获取引用尚未写入manifest_blobs的manifest（升级前的历史数据，走idx_refs_indexed索引）
      * 
-     * @param repository 仓库名
-     * @return Manifest列表
+     * @param afterId 上一页最后一条的id（从头开始时传0）
+     * @param limit   最多返回的条数
+     * @return Manifest列表（按id排序）
      */
-    @Select("SELECT id, digest, repository, tag, content, media_type, created_at " +
-            "FROM manifests WHERE repository = #{repository} " +
-            "ORDER BY created_at DESC")
-    List<Manifest> findByRepository(@Param("repository") String repository);
+    @Select("SELECT id, digest, repository, content, media_type, created_at " +
+            "FROM manifests WHERE refs_indexed = FALSE AND id > #{afterId} ORDER BY id LIMIT #{limit}")
+    @ResultMap("ManifestResultMap")
+    List<Manifest> findUnindexedPage(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * 标记manifest的引用已写入manifest_blobs
+     * 
+     * @param id manifest主键
+     * @return 影响行数
+     */
+    @Update("UPDATE manifests SET refs_indexed = TRUE WHERE id = #{id}")
+    int markRefsIndexed(@Param("id") long id);
+
+    /**
+     * 检查是否还有引用未写入manifest_blobs的manifest
+     * 
+     * @return 是否存在
+     */
+    @Select("SELECT EXISTS (SELECT 1 FROM manifests WHERE refs_indexed = FALSE)")
+    boolean existsUnindexed();
 
     /**
      * 检查manifest是否存在
@@ -62,44 +83,45 @@ public interface ManifestMapper {
             @Param("digest") String digest);
 
     /**
-     * 插入新的manifest记录
+     * 批量查询仓库中已存在的digest（SQL定义在ManifestMapper.xml）
      * 
-     * @param manifest Manifest实体
-     * @return 影响行数
+     * @param repository 仓库名
+     * @param digests    待检查的digest集合
+     * @return 已存在的digest列表
      */
-    @Insert("INSERT INTO manifests (digest, repository, tag, content, media_type, created_at) " +
-            "VALUES (#{digest}, #{repository}, #{tag}, #{content}, #{mediaType}, #{createdAt})")
-    @Options(useGeneratedKeys = true, keyProperty = "id")
-    int insert(Manifest manifest);
+    List<String> findExistingDigests(@Param("repository") String repository,
+            @Param("digests") Collection<String> digests);
 
     /**
-     * 根据digest删除manifest
+     * 插入新的manifest记录，(repository, digest)已存在时抛出DuplicateKeyException
+     * 引用的blob需在同一事务中写入manifest_blobs
      * 
-     * @param digest SHA256值
+     * @param manifest Manifest实体
      * @return 影响行数
      */
-    @Delete("DELETE FROM manifests WHERE digest = #{digest}")
-    int deleteByDigest(@Param("digest") String digest);
+    @Insert("INSERT INTO manifests (digest, repository, content, media_type, refs_indexed, created_at) " +
+            "VALUES (#{digest}, #{repository}, " +
+            "#{content,typeHandler=com.diy.handler.CompressedBytesTypeHandler}, #{mediaType}, TRUE, #{createdAt})")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insert(Manifest manifest);
 
     /**
-     * 根据仓库名和tag删除manifest
+     * 根据仓库名和digest删除manifest
      * 
      * @param repository 仓库名
-     * @param tag        标签
+     * @param digest     SHA256值
      * @return 影响行数
      */
-    @Delete("DELETE FROM manifests WHERE repository = #{repository} AND tag = #{tag}")
-    int deleteByRepositoryAndTag(@Param("repository") String repository,
-            @Param("tag") String tag);
+    @Delete("DELETE FROM manifests WHERE repository = #{repository} AND digest = #{digest}")
+    int deleteByRepositoryAndDigest(@Param("repository") String repository,
+            @Param("digest") String digest);
 
     /**
-     * 获取仓库的所有tag
+     * 检查仓库是否存在（至少有一个manifest）
      * 
      * @param repository 仓库名
-     * @return tag列表
+     * @return 是否存在
      */
-    @Select("SELECT DISTINCT tag FROM manifests " +
-            "WHERE repository = #{repository} AND tag IS NOT NULL " +
-            "ORDER BY tag")
-    List<String> findTagsByRepository(@Param("repository") String repository);
+    @Select("SELECT EXISTS (SELECT 1 FROM manifests WHERE repository = #{repository})")
+    boolean existsByRepository(@Param("repository") String repository);
 }
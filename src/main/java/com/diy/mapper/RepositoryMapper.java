@@ -0,0 +1,96 @@
+package com.diy.mapper;
+
+import com.diy.entity.Repository;
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+
+/**
+ * 仓库索引数据访问层
+ * 
+ * @author diy
+ */
+@Mapper
+public interface RepositoryMapper {
+
+    /**
+     * 根据仓库名查找仓库
+     * 
+     * @param name 仓库名
+     * @return 仓库实体
+     */
+    @Select("SELECT name, manifest_count, tag_count, blob_count, blob_bytes, created_at " +
+            "FROM repositories WHERE name = #{name}")
+    Repository findByName(@Param("name") String name);
+
+    /**
+     * 锁定仓库行（排他锁），仓库不存在时不加锁
+     * 
+     * @param name 仓库名
+     * @return 仓库名，不存在时返回null
+     */
+    @Select("SELECT name FROM repositories WHERE name = #{name} FOR UPDATE")
+    String lockByName(@Param("name") String name);
+
+    /**
+     * 增加仓库的manifest计数，仓库不存在时创建
+     * 
+     * @param name  仓库名
+     * @param count 增加的数量
+     * @return 影响行数（新建仓库时为1，已存在时为2）
+     */
+    @Insert("INSERT INTO repositories (name, manifest_count, created_at) " +
+            "VALUES (#{name}, #{count}, CURRENT_TIMESTAMP) " +
+            "ON DUPLICATE KEY UPDATE manifest_count = manifest_count + #{count}")
+    int increment(@Param("name") String name, @Param("count") long count);
+
+    /**
+     * 减少仓库的manifest计数
+     * 
+     * @param name  仓库名
+     * @param count 减少的数量
+     * @return 影响行数
+     */
+    @Update("UPDATE repositories SET manifest_count = manifest_count - #{count} WHERE name = #{name}")
+    int decrement(@Param("name") String name, @Param("count") long count);
+
+    /**
+     * 累加仓库的tag计数
+     * 
+     * @param name  仓库名
+     * @param delta 增量（可为负数）
+     * @return 影响行数
+     */
+    @Update("UPDATE repositories SET tag_count = tag_count + #{delta} WHERE name = #{name}")
+    int addTags(@Param("name") String name, @Param("delta") long delta);
+
+    /**
+     * 累加仓库引用的不重复blob数量和字节数
+     * 
+     * @param name  仓库名
+     * @param count blob数量增量
+     * @param bytes 字节数增量
+     * @return 影响行数
+     */
+    @Update("UPDATE repositories SET blob_count = blob_count + #{count}, blob_bytes = blob_bytes + #{bytes} " +
+            "WHERE name = #{name}")
+    int addBlobs(@Param("name") String name, @Param("count") long count, @Param("bytes") long bytes);
+
+    /**
+     * 删除已没有manifest的仓库
+     * 
+     * @param name 仓库名
+     * @return 影响行数
+     */
+    @Delete("DELETE FROM repositories WHERE name = #{name} AND manifest_count <= 0")
+    int deleteIfEmpty(@Param("name") String name);
+
+    /**
+     * 分页获取仓库名（SQL定义在RepositoryMapper.xml）
+     * 
+     * @param last  上一页最后一个仓库名（为空时从头开始）
+     * @param limit 最多返回的条数
+     * @return 仓库名列表（按字典序）
+     */
+    List<String> findPage(@Param("last") String last, @Param("limit") int limit);
+}
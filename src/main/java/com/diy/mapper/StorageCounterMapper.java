@@ -0,0 +1,34 @@
+package com.diy.mapper;
+
+import org.apache.ibatis.annotations.*;
+
+/**
+ * 全局存储计数器数据访问层
+ * 每个计数器拆分为多个shard行，写入时随机选择shard累加，读取时求和
+ * 
+ * @author diy
+ */
+@Mapper
+public interface StorageCounterMapper {
+
+    /**
+     * 累加计数器的一个分片
+     * 
+     * @param name  计数器名称
+     * @param shard 分片号
+     * @param delta 增量（可为负数）
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO storage_counters (name, shard, value) VALUES (#{name}, #{shard}, #{delta}) " +
+            "ON DUPLICATE KEY UPDATE value = value + #{delta}")
+    int add(@Param("name") String name, @Param("shard") int shard, @Param("delta") long delta);
+
+    /**
+     * 获取计数器的值（所有分片求和，最多读取分片数行）
+     * 
+     * @param name 计数器名称
+     * @return 计数值
+     */
+    @Select("SELECT COALESCE(SUM(value), 0) FROM storage_counters WHERE name = #{name}")
+    long sum(@Param("name") String name);
+}
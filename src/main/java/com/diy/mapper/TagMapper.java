@@ -0,0 +1,93 @@
+package com.diy.mapper;
+
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+
+/**
+ * Tag数据访问层
+ * tags表以(repository, tag)为主键，每个tag只指向一个digest
+ * 
+ * @author diy
+ */
+@Mapper
+public interface TagMapper {
+
+    /**
+     * 解析tag当前指向的digest（主键点查）
+     * 
+     * @param repository 仓库名
+     * @param tag        标签
+     * @return digest，tag不存在时返回null
+     */
+    @Select("SELECT digest FROM tags WHERE repository = #{repository} AND tag = #{tag}")
+    String findDigest(@Param("repository") String repository, @Param("tag") String tag);
+
+    /**
+     * 创建tag（主键单行写入）
+     * tag已存在时抛出DuplicateKeyException；不使用INSERT IGNORE，超长等错误不会被降级为警告
+     * 
+     * @param repository 仓库名
+     * @param tag        标签
+     * @param digest     tag指向的manifest digest
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO tags (repository, tag, digest, updated_at) " +
+            "VALUES (#{repository}, #{tag}, #{digest}, CURRENT_TIMESTAMP)")
+    int insert(@Param("repository") String repository, @Param("tag") String tag,
+            @Param("digest") String digest);
+
+    /**
+     * 将已有tag移动到新的digest（主键单行更新）
+     * 
+     * @param repository 仓库名
+     * @param tag        标签
+     * @param digest     tag指向的manifest digest
+     * @return 影响行数
+     */
+    @Update("UPDATE tags SET digest = #{digest}, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE repository = #{repository} AND tag = #{tag}")
+    int updateDigest(@Param("repository") String repository, @Param("tag") String tag,
+            @Param("digest") String digest);
+
+    /**
+     * 删除tag
+     * 
+     * @param repository 仓库名
+     * @param tag        标签
+     * @return 影响行数
+     */
+    @Delete("DELETE FROM tags WHERE repository = #{repository} AND tag = #{tag}")
+    int delete(@Param("repository") String repository, @Param("tag") String tag);
+
+    /**
+     * 删除指向某个digest的所有tag
+     * 
+     * @param repository 仓库名
+     * @param digest     SHA256值
+     * @return 影响行数
+     */
+    @Delete("DELETE FROM tags WHERE repository = #{repository} AND digest = #{digest}")
+    int deleteByDigest(@Param("repository") String repository, @Param("digest") String digest);
+
+    /**
+     * 获取仓库的所有tag
+     * 
+     * @param repository 仓库名
+     * @return tag列表（按字典序）
+     */
+    @Select("SELECT tag FROM tags WHERE repository = #{repository} ORDER BY tag")
+    List<String> findByRepository(@Param("repository") String repository);
+
+    /**
+     * 分页获取仓库的tag（SQL定义在TagMapper.xml）
+     * 
+     * @param repository 仓库名
+     * @param last       上一页最后一个tag（为空时从头开始）
+     * @param limit      最多返回的条数
+     * @return tag列表（按字典序）
+     */
+    List<String> findPage(@Param("repository") String repository,
+            @Param("last") String last,
+            @Param("limit") int limit);
+}
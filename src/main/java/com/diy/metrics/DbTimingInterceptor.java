@@ -0,0 +1,42 @@
+package com.diy.metrics;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.stereotype.Component;
+
+/**
+ * 记录SQL执行耗时到当前请求的计时上下文
+ * 拦截Executor，耗时包含从连接池获取连接
+ * 
+ * @author diy
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = { MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class }),
+        @Signature(type = Executor.class, method = "query",
+                args = { MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class,
+                        CacheKey.class, BoundSql.class }),
+        @Signature(type = Executor.class, method = "update",
+                args = { MappedStatement.class, Object.class })
+})
+public class DbTimingInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        long start = RequestTiming.start();
+        try {
+            return invocation.proceed();
+        } finally {
+            RequestTiming.stop(RequestTiming.Phase.DB, start);
+        }
+    }
+}
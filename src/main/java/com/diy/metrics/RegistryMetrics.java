@@ -0,0 +1,286 @@
+package com.diy.metrics;
+
+import com.diy.cache.BlobContentCache;
+import com.diy.config.RegistryProperties;
+import com.diy.mapper.UploadSessionMapper;
+import com.diy.service.StorageAccountingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registry业务指标
+ * 包括：OSS调用耗时与结果、传输字节数、进行中的blob下载流和上传会话、分块存储的去重与读放大、
+ * blob内容缓存命中与预取、下载限速等待
+ * 
+ * 标签取值都是有限集合；repository标签需显式开启，且由RepositoryTagLimitFilter限制取值个数
+ * HTTP接口耗时由Spring的http.server.requests指标提供，DB连接池由hikaricp.*指标提供
+ * 
+ * @author diy
+ */
+@Slf4j
+@Component
+public class RegistryMetrics {
+
+    public static final String REPOSITORY_TAG = "repository";
+
+    /**
+     * 请求不属于任何仓库时的repository标签值
+     */
+    public static final String NO_REPOSITORY = "none";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    @Autowired
+    private UploadSessionMapper uploadSessionMapper;
+
+    @Autowired
+    private StorageAccountingService storageAccountingService;
+
+    @Autowired
+    private BlobContentCache blobContentCache;
+
+    /**
+     * 当前实例正在发送的blob流数量
+     */
+    private final AtomicInteger activeStreams = new AtomicInteger();
+
+    /**
+     * 注册gauge
+     */
+    @PostConstruct
+    public void init() {
+        Gauge.builder("registry.blob.streams.active", activeStreams, AtomicInteger::get)
+                .description("Blob downloads currently streaming from this instance")
+                .register(meterRegistry);
+
+        // 上传会话跨实例共享，在抓取时按status索引计数
+        Gauge.builder("registry.upload.sessions.active", uploadSessionMapper,
+                        UploadSessionMapper::countActiveSessions)
+                .description("Upload sessions in ACTIVE state")
+                .register(meterRegistry);
+
+        // 分块存储的逻辑大小与实际占用，二者之比即去重率；同样在抓取时读取全局计数
+        if (registryProperties.getStorage().getChunking().isEnabled()) {
+            Gauge.builder("registry.storage.chunked.bytes", storageAccountingService,
+                            service -> service.getStorageStats().getChunkedBlobBytes())
+                    .description("Logical size of blobs stored as chunks")
+                    .baseUnit("bytes")
+                    .tag("kind", "logical")
+                    .register(meterRegistry);
+            Gauge.builder("registry.storage.chunked.bytes", storageAccountingService,
+                            service -> service.getStorageStats().getChunkBytes())
+                    .description("Storage used by unique chunks")
+                    .baseUnit("bytes")
+                    .tag("kind", "stored")
+                    .register(meterRegistry);
+        }
+
+        if (blobContentCache.isEnabled()) {
+            Gauge.builder("registry.blob.cache.bytes", blobContentCache, BlobContentCache::getBytes)
+                    .description("Blob content cached on this instance's disk")
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+        }
+
+        log.info("Registry metrics initialized: repository_tag={}, max_repository_tags={}",
+                registryProperties.getMetrics().isRepositoryTag(),
+                registryProperties.getMetrics().getMaxRepositoryTags());
+    }
+
+    /**
+     * 开始计时
+     * 
+     * @return 计时样本，调用结束后传给recordStorage
+     */
+    public Timer.Sample startSample() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * 记录一次OSS调用
+     * 
+     * @param sample    开始时获取的计时样本
+     * @param operation 操作名（put、get、head、exists、delete、delete_batch、copy、append）
+     * @param success   调用是否成功
+     */
+    public void recordStorage(Timer.Sample sample, String operation, boolean success) {
+        long nanos = sample.stop(Timer.builder("registry.storage.requests")
+                .description("Object storage call latency")
+                .tag("operation", operation)
+                .tag("outcome", success ? "success" : "error")
+                .register(meterRegistry));
+        RequestTiming.record(RequestTiming.Phase.STORAGE, nanos);
+    }
+
+    /**
+     * 记录一次上游仓库调用（代理模式）
+     * 
+     * @param sample    开始时获取的计时样本
+     * @param operation 操作名（manifest_get、manifest_head、blob_get、blob_head、token）
+     * @param success   调用是否成功
+     */
+    public void recordUpstream(Timer.Sample sample, String operation, boolean success) {
+        long nanos = sample.stop(Timer.builder("registry.upstream.requests")
+                .description("Upstream registry call latency in proxy mode")
+                .tag("operation", operation)
+                .tag("outcome", success ? "success" : "error")
+                .register(meterRegistry));
+        RequestTiming.record(RequestTiming.Phase.UPSTREAM, nanos);
+    }
+
+    /**
+     * 记录接收的字节数
+     * 
+     * @param kind       内容类型（blob、manifest）
+     * @param repository 仓库名
+     * @param bytes      字节数
+     */
+    public void recordBytesReceived(String kind, String repository, long bytes) {
+        recordBytes("registry.bytes.received", kind, repository, bytes);
+    }
+
+    /**
+     * 记录发送的字节数
+     * 
+     * @param kind       内容类型（blob、manifest）
+     * @param repository 仓库名
+     * @param bytes      字节数
+     */
+    public void recordBytesSent(String kind, String repository, long bytes) {
+        recordBytes("registry.bytes.sent", kind, repository, bytes);
+    }
+
+    /**
+     * 记录写入的一个分块
+     * 
+     * @param duplicate 分块是否已存在（去重，未写入存储）
+     * @param bytes     分块大小
+     */
+    public void recordChunk(boolean duplicate, long bytes) {
+        String result = duplicate ? "deduplicated" : "stored";
+        Counter.builder("registry.chunks.written")
+                .description("Chunks produced by chunked uploads")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+        Counter.builder("registry.chunks.written.bytes")
+                .baseUnit("bytes")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment(bytes);
+    }
+
+    /**
+     * 记录一次分块存储blob的读取（读放大：每次读取发起的存储请求数）
+     * 
+     * @param chunks 本次读取打开的分块数
+     */
+    public void recordChunkedRead(int chunks) {
+        DistributionSummary.builder("registry.chunks.per.read")
+                .description("Storage objects opened per chunked blob read")
+                .register(meterRegistry)
+                .record(chunks);
+    }
+
+    /**
+     * 记录一次blob下载对本地内容缓存的查询
+     * 
+     * @param hit 是否命中
+     */
+    public void recordBlobCache(boolean hit) {
+        Counter.builder("registry.blob.cache.requests")
+                .description("Blob downloads looked up in the local content cache")
+                .tag("result", hit ? "hit" : "miss")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 记录一个blob的预取结果
+     * 
+     * @param result 结果（fetched、cached、inflight、skipped、rejected、failed）
+     * @param bytes  写入缓存的字节数，未写入时为0
+     */
+    public void recordPrefetch(String result, long bytes) {
+        Counter.builder("registry.prefetch.blobs")
+                .description("Blobs referenced by served manifests, by prefetch outcome")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+        if (bytes > 0) {
+            Counter.builder("registry.prefetch.bytes")
+                    .baseUnit("bytes")
+                    .register(meterRegistry)
+                    .increment(bytes);
+        }
+    }
+
+    /**
+     * 记录一次blob下载等待限速的总时间
+     * 
+     * @param limit 限速类型（client、global）
+     * @param nanos 等待的纳秒数
+     */
+    public void recordThrottle(String limit, long nanos) {
+        Timer.builder("registry.blob.throttle")
+                .description("Time blob downloads spent waiting for bandwidth")
+                .tag("limit", limit)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * blob下载流开始
+     */
+    public void streamStarted() {
+        activeStreams.incrementAndGet();
+    }
+
+    /**
+     * blob下载流结束（无论成功与否）
+     */
+    public void streamFinished() {
+        activeStreams.decrementAndGet();
+    }
+
+    /**
+     * 仓库标签，未开启时为空
+     * 
+     * @param repository 仓库名
+     * @return 标签
+     */
+    public Tags repositoryTags(String repository) {
+        if (!registryProperties.getMetrics().isRepositoryTag()) {
+            return Tags.empty();
+        }
+        return Tags.of(REPOSITORY_TAG, repository != null ? repository : NO_REPOSITORY);
+    }
+
+    private void recordBytes(String name, String kind, String repository, long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+
+        Counter.builder(name)
+                .baseUnit("bytes")
+                .tag("kind", kind)
+                .tags(repositoryTags(repository))
+                .register(meterRegistry)
+                .increment(bytes);
+    }
+}
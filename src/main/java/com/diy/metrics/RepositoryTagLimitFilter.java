@@ -0,0 +1,43 @@
+package com.diy.metrics;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.config.MeterFilter;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 限制repository标签的取值个数
+ * 先出现的前N个仓库保留原值，之后的仓库统一归入"other"，避免时间序列随仓库数增长
+ * 
+ * @author diy
+ */
+public class RepositoryTagLimitFilter implements MeterFilter {
+
+    public static final String OVERFLOW = "other";
+
+    private final int maxRepositories;
+
+    private final Set<String> repositories = ConcurrentHashMap.newKeySet();
+
+    public RepositoryTagLimitFilter(int maxRepositories) {
+        this.maxRepositories = maxRepositories;
+    }
+
+    @Override
+    public Meter.Id map(Meter.Id id) {
+        String repository = id.getTag(RegistryMetrics.REPOSITORY_TAG);
+        if (repository == null || repositories.contains(repository)) {
+            return id;
+        }
+
+        // 并发注册时可能略微超出上限，不影响有界性
+        if (repositories.size() < maxRepositories) {
+            repositories.add(repository);
+            return id;
+        }
+
+        return id.replaceTags(Tags.of(id.getTagsAsIterable()).and(RegistryMetrics.REPOSITORY_TAG, OVERFLOW));
+    }
+}
@@ -0,0 +1,221 @@
+package com.diy.metrics;
+
+/**
+ * 单个请求的分阶段耗时
+ * 由RequestTimingFilter在请求开始时绑定到当前线程，各层通过静态方法累加耗时；
+ * 未绑定时所有记录方法直接返回，不调用System.nanoTime()
+ * 
+ * 同一时刻只有一个线程使用（请求线程，或异步响应时的流式写出线程），不做同步
+ * 
+ * @author diy
+ */
+public final class RequestTiming {
+
+    /**
+     * 未开启计时时start()的返回值
+     */
+    public static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 计时阶段
+     */
+    public enum Phase {
+        /** MyBatis执行SQL（含获取连接） */
+        DB("db"),
+        /** OSS调用及读取OSS对象内容 */
+        STORAGE("storage"),
+        /** 摘要计算 */
+        DIGEST("digest"),
+        /** JSON解析与序列化 */
+        JSON("json"),
+        /** 向客户端写出响应体 */
+        WRITE("write"),
+        /** blob下载等待限速令牌 */
+        THROTTLE("throttle"),
+        /** 代理模式下访问上游仓库 */
+        UPSTREAM("upstream");
+
+        private final String metricName;
+
+        Phase(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final String method;
+    private final String path;
+    private final long startedAtMillis;
+    private final long startNanos;
+    private final long[] phaseNanos = new long[PHASES.length];
+
+    private RequestTiming(String method, String path) {
+        this.method = method;
+        this.path = path;
+        this.startedAtMillis = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * 开始一个请求的计时，并绑定到当前线程
+     * 
+     * @param method HTTP方法
+     * @param path   请求路径
+     * @return 计时上下文
+     */
+    public static RequestTiming begin(String method, String path) {
+        RequestTiming timing = new RequestTiming(method, path);
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    /**
+     * 获取当前线程绑定的计时上下文
+     * 
+     * @return 计时上下文，未绑定时返回null
+     */
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 将计时上下文绑定到当前线程（用于异步写出响应的线程）
+     * 
+     * @param timing 计时上下文，为null时解除绑定
+     */
+    public static void bind(RequestTiming timing) {
+        if (timing != null) {
+            CURRENT.set(timing);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * 解除当前线程的绑定
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 开始一个阶段
+     * 
+     * @return 开始时间，未绑定计时上下文时返回NOT_STARTED
+     */
+    public static long start() {
+        return CURRENT.get() != null ? System.nanoTime() : NOT_STARTED;
+    }
+
+    /**
+     * 结束一个阶段并累加耗时
+     * 
+     * @param phase 阶段
+     * @param start start()的返回值
+     */
+    public static void stop(Phase phase, long start) {
+        if (start == NOT_STARTED) {
+            return;
+        }
+
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.add(phase, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 累加已测得的耗时到当前线程的计时上下文
+     * 
+     * @param phase 阶段
+     * @param nanos 耗时（纳秒）
+     */
+    public static void record(Phase phase, long nanos) {
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.add(phase, nanos);
+        }
+    }
+
+    /**
+     * 累加阶段耗时
+     * 
+     * @param phase 阶段
+     * @param nanos 耗时（纳秒）
+     */
+    public void add(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * 获取阶段累计耗时
+     * 
+     * @param phase 阶段
+     * @return 耗时（纳秒）
+     */
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * 从请求开始到现在的耗时
+     * 
+     * @return 耗时（纳秒）
+     */
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getStartedAtMillis() {
+        return startedAtMillis;
+    }
+
+    /**
+     * 生成Server-Timing头，只包含耗时不为0的阶段
+     * 例如：db;dur=1.52, storage;dur=12.04, total;dur=14.87
+     * 
+     * @return Server-Timing头值
+     */
+    public String toServerTiming() {
+        StringBuilder header = new StringBuilder(96);
+        for (Phase phase : PHASES) {
+            long nanos = phaseNanos[phase.ordinal()];
+            if (nanos > 0) {
+                appendMetric(header, phase.getMetricName(), nanos);
+            }
+        }
+        appendMetric(header, "total", elapsedNanos());
+        return header.toString();
+    }
+
+    private static void appendMetric(StringBuilder header, String name, long nanos) {
+        if (header.length() > 0) {
+            header.append(", ");
+        }
+        header.append(name).append(";dur=").append(formatMillis(nanos));
+    }
+
+    /**
+     * 纳秒转为保留两位小数的毫秒字符串
+     */
+    static String formatMillis(long nanos) {
+        long hundredths = nanos / 10_000;
+        long fraction = hundredths % 100;
+        return (hundredths / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
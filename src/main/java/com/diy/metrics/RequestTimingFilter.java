@@ -0,0 +1,151 @@
+package com.diy.metrics;
+
+import com.diy.config.RegistryProperties;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * 请求分阶段计时过滤器
+ * 为每个/v2请求建立RequestTiming，在响应提交前写入Server-Timing头，请求结束后输出trace记录
+ * 
+ * Server-Timing只能包含响应头发出之前的阶段；流式下载blob时OSS读取和写出的耗时只出现在trace记录中
+ * 
+ * @author diy
+ */
+@Component
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    @Autowired
+    private TraceSpanWriter traceSpanWriter;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !registryProperties.getTiming().isEnabled() || !request.getRequestURI().startsWith("/v2");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+        RequestTiming timing = RequestTiming.begin(request.getMethod(), request.getRequestURI());
+        ServerTimingResponse timedResponse = new ServerTimingResponse(response, timing,
+                registryProperties.getTiming().isHeader());
+
+        try {
+            filterChain.doFilter(request, timedResponse);
+        } finally {
+            RequestTiming.clear();
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(timing, timedResponse));
+            } else {
+                timedResponse.writeServerTiming();
+                traceSpanWriter.write(timing, timedResponse.getStatus());
+            }
+        }
+    }
+
+    /**
+     * 异步请求（流式响应）完成后输出trace记录
+     */
+    private class CompletionListener implements AsyncListener {
+        private final RequestTiming timing;
+        private final HttpServletResponse response;
+
+        CompletionListener(RequestTiming timing, HttpServletResponse response) {
+            this.timing = timing;
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            traceSpanWriter.write(timing, response.getStatus());
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    /**
+     * 在响应体开始写出（即响应头提交）之前写入Server-Timing头
+     */
+    private static class ServerTimingResponse extends HttpServletResponseWrapper {
+        private final RequestTiming timing;
+        private boolean pending;
+
+        ServerTimingResponse(HttpServletResponse response, RequestTiming timing, boolean header) {
+            super(response);
+            this.timing = timing;
+            this.pending = header;
+        }
+
+        void writeServerTiming() {
+            if (pending) {
+                pending = false;
+                if (!isCommitted()) {
+                    setHeader(SERVER_TIMING_HEADER, timing.toServerTiming());
+                }
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeServerTiming();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeServerTiming();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeServerTiming();
+            super.sendRedirect(location);
+        }
+    }
+}
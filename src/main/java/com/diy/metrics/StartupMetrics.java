@@ -0,0 +1,62 @@
+package com.diy.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 启动耗时指标：从JVM启动到第一个/v2请求处理完成的时间
+ * 与Spring Boot的application.started.time、application.ready.time一起用于对比不同启动方式（AOT、CDS）
+ * 
+ * @author diy
+ */
+@Slf4j
+@Component
+public class StartupMetrics {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * JVM启动到第一个/v2请求完成的毫秒数，尚未收到请求时为-1
+     */
+    private volatile long firstRequestMillis = -1;
+
+    /**
+     * 注册gauge
+     */
+    @PostConstruct
+    public void init() {
+        Gauge.builder("registry.startup.first.request.time", this,
+                        metrics -> metrics.firstRequestMillis < 0
+                                ? Double.NaN : metrics.firstRequestMillis / 1000.0)
+                .description("Time from JVM start until the first /v2 request was served")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录第一个/v2请求
+     */
+    @EventListener
+    public void onRequestHandled(ServletRequestHandledEvent event) {
+        if (firstRequestMillis >= 0 || !event.getRequestUrl().startsWith("/v2")) {
+            return;
+        }
+        synchronized (this) {
+            if (firstRequestMillis >= 0) {
+                return;
+            }
+            firstRequestMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        }
+        log.info("First request served {}ms after JVM start: {} {}", firstRequestMillis,
+                event.getMethod(), event.getRequestUrl());
+    }
+}
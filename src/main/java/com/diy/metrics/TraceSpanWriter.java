@@ -0,0 +1,162 @@
+package com.diy.metrics;
+
+import com.diy.config.RegistryProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 将请求的分阶段耗时以JSON Lines格式写入本地文件
+ * 请求线程只做入队，由单独的后台线程写文件；队列满时丢弃并计数，不阻塞请求
+ * 
+ * @author diy
+ */
+@Slf4j
+@Component
+public class TraceSpanWriter {
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    private volatile BlockingQueue<String> queue;
+
+    private Thread writerThread;
+
+    private volatile boolean running;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * 配置了trace文件时启动后台写线程
+     */
+    @PostConstruct
+    public void init() {
+        RegistryProperties.Timing config = registryProperties.getTiming();
+        if (!config.isEnabled() || config.getTraceFile() == null || config.getTraceFile().isEmpty()) {
+            return;
+        }
+
+        Path file = Paths.get(config.getTraceFile());
+        queue = new ArrayBlockingQueue<>(config.getTraceQueueSize());
+        running = true;
+        writerThread = new Thread(() -> writeLoop(file), "trace-span-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        log.info("Request trace spans enabled: file={}, queue_size={}", file, config.getTraceQueueSize());
+    }
+
+    /**
+     * 停止后台写线程，写完队列中剩余的记录
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writerThread == null) {
+            return;
+        }
+
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        if (dropped.get() > 0) {
+            log.warn("Request trace spans dropped because the queue was full: count={}", dropped.get());
+        }
+    }
+
+    /**
+     * 是否开启了trace文件输出
+     * 
+     * @return 是否开启
+     */
+    public boolean isEnabled() {
+        return queue != null;
+    }
+
+    /**
+     * 提交一个请求的耗时记录
+     * 
+     * @param timing 计时上下文
+     * @param status 响应状态码
+     */
+    public void write(RequestTiming timing, int status) {
+        BlockingQueue<String> pending = queue;
+        if (pending == null) {
+            return;
+        }
+
+        if (!pending.offer(toJson(timing, status))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void writeLoop(Path file) {
+        BlockingQueue<String> queue = this.queue;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            while (running || !queue.isEmpty()) {
+                String line = queue.poll(1, TimeUnit.SECONDS);
+                if (line == null) {
+                    continue;
+                }
+
+                writer.write(line);
+                writer.newLine();
+                // 队列已空时才刷盘，高负载下合并写入
+                if (queue.isEmpty()) {
+                    writer.flush();
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to write request trace spans: file={}", file, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // 写线程退出后不再接受新记录
+            this.queue = null;
+        }
+    }
+
+    /**
+     * 序列化为一行JSON，路径中可能出现的引号和反斜杠需转义
+     */
+    private static String toJson(RequestTiming timing, int status) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"ts\":").append(timing.getStartedAtMillis())
+                .append(",\"method\":\"").append(timing.getMethod()).append('"')
+                .append(",\"path\":\"");
+        appendEscaped(json, timing.getPath());
+        json.append("\",\"status\":").append(status)
+                .append(",\"total_ms\":").append(RequestTiming.formatMillis(timing.elapsedNanos()));
+        for (RequestTiming.Phase phase : RequestTiming.Phase.values()) {
+            json.append(",\"").append(phase.getMetricName()).append("_ms\":")
+                    .append(RequestTiming.formatMillis(timing.getPhaseNanos(phase)));
+        }
+        return json.append('}').toString();
+    }
+
+    private static void appendEscaped(StringBuilder json, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.diy.proxy;
+
+import com.diy.exception.BlobNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次从上游下载blob的过程（代理模式）
+ * 下载线程把上游内容写入本地暂存文件，所有请求同一digest的客户端各自从暂存文件读取已写入的部分，
+ * 追上写入进度时等待；下载完成且digest校验通过后读取方才读到EOF，校验失败时读取方收到IOException
+ * 
+ * 暂存文件在下载结束且没有读取方时删除
+ * 
+ * @author diy
+ */
+@Slf4j
+public class BlobFill {
+
+    private final String digest;
+
+    private final long stallTimeoutNanos;
+
+    private final long startTimeoutNanos;
+
+    private final long createdNanos = System.nanoTime();
+
+    private Path spool;
+
+    private long size = -1;
+
+    private String contentType;
+
+    private InputStream upstream;
+
+    /**
+     * 已写入暂存文件的字节数
+     */
+    private long written;
+
+    private long lastProgressNanos;
+
+    private boolean started;
+
+    /**
+     * 下载完成且digest校验通过
+     */
+    private boolean verified;
+
+    private Exception failure;
+
+    /**
+     * 下载线程已结束，不再使用暂存文件
+     */
+    private boolean finished;
+
+    private int readers;
+
+    private boolean spoolDeleted;
+
+    BlobFill(String digest, long stallTimeoutMillis, long startTimeoutMillis) {
+        this.digest = digest;
+        this.stallTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(stallTimeoutMillis);
+        this.startTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(startTimeoutMillis);
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    /**
+     * 等待上游返回响应头
+     * 
+     * @return blob大小
+     * @throws RejectedException                       下载线程池排队已满，下载未执行
+     * @throws IOException                             上游不可用
+     * @throws com.diy.exception.BlobNotFoundException 上游不存在该blob
+     */
+    public synchronized long awaitSize() throws IOException {
+        while (!started && failure == null) {
+            waitForProgress();
+        }
+        if (!started) {
+            throwFailure();
+        }
+        return size;
+    }
+
+    /**
+     * 获取上游返回的Content-Type，需在awaitSize之后调用
+     */
+    public synchronized String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * 打开一个读取流，从头读取blob内容
+     * 
+     * @return 输入流；下载已结束且暂存文件已删除时返回null，此时blob应已写入本地存储
+     * @throws RejectedException                       下载线程池排队已满，下载未执行
+     * @throws IOException                             上游不可用或暂存文件无法打开
+     * @throws com.diy.exception.BlobNotFoundException 上游不存在该blob
+     */
+    public InputStream openStream() throws IOException {
+        Path path;
+        synchronized (this) {
+            awaitSize();
+            if (spoolDeleted) {
+                return null;
+            }
+            readers++;
+            path = spool;
+        }
+
+        try {
+            return new FillInputStream(FileChannel.open(path, StandardOpenOption.READ));
+        } catch (IOException e) {
+            releaseReader();
+            throw e;
+        }
+    }
+
+    /**
+     * 上游返回响应头，开始写入暂存文件
+     */
+    synchronized void start(Path spool, long size, String contentType, InputStream upstream) {
+        this.spool = spool;
+        this.size = size;
+        this.contentType = contentType;
+        this.upstream = upstream;
+        this.started = true;
+        this.lastProgressNanos = System.nanoTime();
+        notifyAll();
+    }
+
+    /**
+     * 记录写入进度
+     */
+    synchronized void advance(long bytes) {
+        written += bytes;
+        lastProgressNanos = System.nanoTime();
+        notifyAll();
+    }
+
+    /**
+     * 下载完成且digest校验通过，读取方可以读到EOF
+     */
+    synchronized void verify() {
+        verified = true;
+        notifyAll();
+    }
+
+    /**
+     * 是否已失败（读取方判定停滞时下载线程据此停止）
+     */
+    synchronized boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * 下载失败，关闭上游连接并唤醒所有读取方
+     */
+    synchronized void fail(Exception e) {
+        if (verified || failure != null) {
+            return;
+        }
+        failure = e;
+        closeUpstream();
+        notifyAll();
+    }
+
+    /**
+     * 下载线程结束，没有读取方时删除暂存文件
+     */
+    synchronized void finish() {
+        finished = true;
+        closeUpstream();
+        notifyAll();
+        deleteSpoolIfUnused();
+    }
+
+    private synchronized void releaseReader() {
+        readers--;
+        deleteSpoolIfUnused();
+    }
+
+    private void deleteSpoolIfUnused() {
+        if (!finished || readers > 0 || spoolDeleted) {
+            return;
+        }
+        spoolDeleted = true;
+        if (spool != null) {
+            try {
+                Files.deleteIfExists(spool);
+            } catch (IOException e) {
+                log.warn("Failed to delete proxy spool file: {}", spool, e);
+            }
+        }
+    }
+
+    private void closeUpstream() {
+        if (upstream != null) {
+            try {
+                upstream.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 等待写入进度，开始下载后上游长时间没有数据时判定下载停滞并使其失败；
+     * 开始下载前（排队、等待上游响应头）超过开始超时同样使其失败，排队中的下载随后直接放弃
+     */
+    private void waitForProgress() throws IOException {
+        long now = System.nanoTime();
+        if (started && now - lastProgressNanos > stallTimeoutNanos) {
+            fail(new IOException("Upstream download stalled: " + digest));
+            return;
+        }
+        if (!started && now - createdNanos > startTimeoutNanos) {
+            fail(new IOException("Upstream download did not start in time: " + digest));
+            return;
+        }
+        try {
+            wait(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for upstream: " + digest, e);
+        }
+    }
+
+    private void throwFailure() throws IOException {
+        if (failure instanceof BlobNotFoundException notFound) {
+            throw notFound;
+        }
+        if (failure instanceof RejectedException) {
+            throw new RejectedException(digest);
+        }
+        if (failure instanceof IOException io) {
+            throw new IOException(io.getMessage(), io);
+        }
+        throw new IOException("Upstream download failed: " + digest, failure);
+    }
+
+    /**
+     * 下载线程池排队已满，下载未执行；加入该下载的调用方应改为直接转发上游内容
+     */
+    public static class RejectedException extends IOException {
+
+        RejectedException(String digest) {
+            super("Proxy fill queue full: " + digest);
+        }
+    }
+
+    /**
+     * 从暂存文件读取的输入流，读到写入进度时等待
+     */
+    private class FillInputStream extends InputStream {
+
+        private final FileChannel channel;
+
+        private long position;
+
+        private boolean closed;
+
+        FillInputStream(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int n = read(single, 0, 1);
+            return n < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            long available;
+            synchronized (BlobFill.this) {
+                while (position >= written && !verified && failure == null) {
+                    waitForProgress();
+                }
+                if (failure != null) {
+                    throwFailure();
+                }
+                available = written - position;
+                if (available <= 0) {
+                    return -1;
+                }
+            }
+
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, available)), position);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                channel.close();
+            } finally {
+                releaseReader();
+            }
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package com.diy.proxy;
+
+import com.diy.config.RegistryProperties;
+import com.diy.exception.BlobNotFoundException;
+import com.diy.utils.DigestUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 代理模式（pull-through cache）的公共部分
+ * 1. 单飞（single-flight）：同一manifest或blob同时只有一个请求访问上游，其余请求等待并共享结果
+ * 2. tag新鲜期：tag在新鲜期内直接使用本地记录，过期后向上游确认
+ * 3. blob下载：后台线程下载到暂存文件并校验digest，客户端从暂存文件边下载边读取，校验通过后写入本地存储；
+ *    下载线程池排队已满时不再排队，由请求线程直接转发上游内容，不写入本地存储
+ * 
+ * manifest和blob的本地写入由ManifestService和BlobService完成
+ * 
+ * @author diy
+ */
+@Slf4j
+@Component
+public class PullThroughCache {
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    @Autowired
+    private UpstreamRegistryClient upstreamClient;
+
+    @Autowired
+    @Qualifier("proxyExecutor")
+    private TaskExecutor proxyExecutor;
+
+    private boolean enabled;
+
+    private Path spoolDirectory;
+
+    /**
+     * 新鲜期内的tag（repository@tag）
+     */
+    private Cache<String, Boolean> freshTags;
+
+    /**
+     * 进行中的上游manifest请求
+     */
+    private final Map<String, CompletableFuture<Object>> inflight = new ConcurrentHashMap<>();
+
+    /**
+     * 进行中的blob下载（按digest，与仓库无关）
+     */
+    private final Map<String, BlobFill> fills = new ConcurrentHashMap<>();
+
+    /**
+     * 初始化
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        RegistryProperties.Proxy config = registryProperties.getProxy();
+        this.enabled = config.isEnabled();
+
+        this.freshTags = Caffeine.newBuilder()
+                .maximumSize(100000)
+                .expireAfterWrite(Duration.ofMillis(config.getTagTtl()))
+                .build();
+
+        if (!enabled) {
+            return;
+        }
+
+        String directory = config.getSpoolDirectory();
+        this.spoolDirectory = directory == null || directory.isEmpty()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "registry-proxy")
+                : Paths.get(directory);
+        Files.createDirectories(spoolDirectory);
+
+        log.info("Pull-through cache enabled: remote={}, repository_prefix='{}', tag_ttl={}ms, "
+                        + "fill_parallelism={}, spool={}",
+                config.getRemoteUrl(), config.getRepositoryPrefix(), config.getTagTtl(),
+                config.getFillParallelism(), spoolDirectory);
+    }
+
+    /**
+     * 是否开启代理模式
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 获取上游仓库客户端
+     */
+    public UpstreamRegistryClient getUpstream() {
+        return upstreamClient;
+    }
+
+    /**
+     * tag是否在新鲜期内
+     * 
+     * @param repository 仓库名
+     * @param tag        标签
+     * @return 是否无需向上游确认
+     */
+    public boolean isTagFresh(String repository, String tag) {
+        return freshTags.getIfPresent(repository + "@" + tag) != null;
+    }
+
+    /**
+     * 标记tag已与上游确认
+     * 
+     * @param repository 仓库名
+     * @param tag        标签
+     */
+    public void markTagFresh(String repository, String tag) {
+        freshTags.put(repository + "@" + tag, Boolean.TRUE);
+    }
+
+    /**
+     * 单飞执行上游请求：同一key同时只执行一次，并发的调用方等待并共享结果或异常
+     * 
+     * @param key    请求标识
+     * @param loader 请求过程
+     * @return 请求结果
+     * @throws IOException 上游不可用
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T singleFlight(String key, Loader<T> loader) throws IOException {
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inflight.putIfAbsent(key, created);
+        if (existing == null) {
+            try {
+                T result = loader.load();
+                created.complete(result);
+                return result;
+            } catch (IOException | RuntimeException e) {
+                created.completeExceptionally(e);
+                throw e;
+            } finally {
+                inflight.remove(key, created);
+            }
+        }
+
+        try {
+            return (T) existing.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for upstream: " + key, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw new IOException(io.getMessage(), io);
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * 获取进行中的blob下载
+     * 
+     * @param digest blob的digest
+     * @return 下载过程，没有进行中的下载时返回null
+     */
+    public BlobFill getFill(String digest) {
+        return fills.get(digest);
+    }
+
+    /**
+     * 从上游下载blob，已有进行中的下载时直接加入
+     * 
+     * @param repository 仓库名（用于访问上游）
+     * @param digest     blob的digest
+     * @param committer  下载并校验通过后写入本地存储
+     * @return 下载过程，下载线程池排队已满时返回null，调用方应改用openDirect
+     */
+    public BlobFill fill(String repository, String digest, Committer committer) {
+        BlobFill fill = fills.get(digest);
+        if (fill != null) {
+            return fill;
+        }
+
+        RegistryProperties.Proxy config = registryProperties.getProxy();
+        BlobFill created = new BlobFill(digest, config.getRequestTimeout(), config.getFillStartTimeout());
+        fill = fills.putIfAbsent(digest, created);
+        if (fill != null) {
+            return fill;
+        }
+
+        log.info("Fetching blob from upstream: repository={}, digest={}", repository, digest);
+        try {
+            proxyExecutor.execute(() -> download(created, repository, committer));
+        } catch (TaskRejectedException e) {
+            log.warn("Proxy fill queue full, streaming blob directly from upstream: repository={}, digest={}",
+                    repository, digest);
+            fills.remove(digest, created);
+            created.fail(new BlobFill.RejectedException(digest));
+            created.finish();
+            return null;
+        }
+        return created;
+    }
+
+    /**
+     * 直接转发上游的blob内容，不经过暂存文件，也不写入本地存储
+     * 读到末尾时校验大小和digest，不一致时抛出IOException使客户端的下载失败
+     * 
+     * @param repository 仓库名（用于访问上游）
+     * @param digest     blob的digest
+     * @return 输入流
+     * @throws IOException                             上游不可用
+     * @throws com.diy.exception.BlobNotFoundException 上游不存在该blob
+     */
+    public InputStream openDirect(String repository, String digest) throws IOException {
+        UpstreamRegistryClient.UpstreamBlob blob = upstreamClient.getBlob(repository, digest);
+        if (blob == null) {
+            throw new BlobNotFoundException(digest);
+        }
+        return new VerifyingInputStream(blob.getContent(), digest, blob.getSize());
+    }
+
+    /**
+     * 下载blob到暂存文件，校验digest后写入本地存储
+     */
+    private void download(BlobFill fill, String repository, Committer committer) {
+        String digest = fill.getDigest();
+        boolean verified = false;
+        try {
+            if (fill.isFailed()) {
+                // 排队期间等待方已超时放弃
+                throw new IOException("Upstream download abandoned before start: " + digest);
+            }
+            UpstreamRegistryClient.UpstreamBlob blob = upstreamClient.getBlob(repository, digest);
+            if (blob == null) {
+                throw new BlobNotFoundException(digest);
+            }
+            if (blob.getSize() < 0) {
+                blob.getContent().close();
+                throw new IOException("Upstream did not report blob size: " + digest);
+            }
+
+            Path spool;
+            try {
+                spool = Files.createTempFile(spoolDirectory, "blob-", ".spool");
+            } catch (IOException e) {
+                blob.getContent().close();
+                throw e;
+            }
+            fill.start(spool, blob.getSize(), blob.getContentType(), blob.getContent());
+
+            long total = copyToSpool(fill, blob.getContent(), spool);
+            if (total != blob.getSize()) {
+                throw new IOException("Upstream blob truncated: digest=" + digest
+                        + ", expected=" + blob.getSize() + ", actual=" + total);
+            }
+            fill.verify();
+            verified = true;
+
+            committer.commit(spool, total, blob.getContentType());
+            log.info("Stored blob from upstream: repository={}, digest={}, size={}", repository, digest, total);
+
+        } catch (Exception e) {
+            if (verified) {
+                // 客户端已收到完整内容，下次请求重新下载
+                log.error("Failed to store blob from upstream: digest={}", digest, e);
+            } else {
+                log.warn("Failed to fetch blob from upstream: repository={}, digest={}, error={}",
+                        repository, digest, e.getMessage());
+                fill.fail(e);
+            }
+        } finally {
+            fills.remove(digest, fill);
+            fill.finish();
+        }
+    }
+
+    /**
+     * 复制上游内容到暂存文件，同时计算digest
+     * 
+     * @return 复制的字节数
+     */
+    private long copyToSpool(BlobFill fill, InputStream content, Path spool) throws IOException {
+        MessageDigest sha256 = DigestUtils.createSHA256Digest();
+        byte[] buffer = new byte[DigestUtils.DEFAULT_BUFFER_SIZE];
+        long total = 0;
+
+        try (InputStream in = content;
+                FileChannel out = FileChannel.open(spool, StandardOpenOption.WRITE)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                if (fill.isFailed()) {
+                    throw new IOException("Upstream download aborted: " + fill.getDigest());
+                }
+                sha256.update(buffer, 0, n);
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, n);
+                while (chunk.hasRemaining()) {
+                    out.write(chunk);
+                }
+                total += n;
+                fill.advance(n);
+            }
+        }
+
+        String actual = DigestUtils.toDigest(sha256.digest());
+        if (!actual.equals(fill.getDigest())) {
+            throw new IOException("Upstream blob digest mismatch: expected=" + fill.getDigest()
+                    + ", actual=" + actual);
+        }
+        return total;
+    }
+
+    /**
+     * 直接转发上游内容的输入流，读到末尾时校验大小和digest
+     */
+    private static class VerifyingInputStream extends FilterInputStream {
+
+        private final String digest;
+
+        private final long expectedSize;
+
+        private final MessageDigest sha256 = DigestUtils.createSHA256Digest();
+
+        private long total;
+
+        private boolean checked;
+
+        VerifyingInputStream(InputStream in, String digest, long expectedSize) {
+            super(in);
+            this.digest = digest;
+            this.expectedSize = expectedSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int n = read(single, 0, 1);
+            return n < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                sha256.update(b, off, n);
+                total += n;
+            } else if (n < 0) {
+                check();
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // 跳过的内容同样需要计入digest
+            byte[] buffer = new byte[(int) Math.min(n, DigestUtils.DEFAULT_BUFFER_SIZE)];
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (read < 0) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void check() throws IOException {
+            if (checked) {
+                return;
+            }
+            checked = true;
+            if (expectedSize >= 0 && total != expectedSize) {
+                throw new IOException("Upstream blob truncated: digest=" + digest
+                        + ", expected=" + expectedSize + ", actual=" + total);
+            }
+            String actual = DigestUtils.toDigest(sha256.digest());
+            if (!actual.equals(digest)) {
+                throw new IOException("Upstream blob digest mismatch: expected=" + digest + ", actual=" + actual);
+            }
+        }
+    }
+
+    /**
+     * 上游请求过程
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    /**
+     * 将校验通过的blob写入本地存储
+     */
+    @FunctionalInterface
+    public interface Committer {
+        /**
+         * @param spool       暂存文件
+         * @param size        blob大小
+         * @param contentType 上游返回的Content-Type
+         */
+        void commit(Path spool, long size, String contentType) throws IOException;
+    }
+}
@@ -0,0 +1,478 @@
+package com.diy.proxy;
+
+import com.diy.config.RegistryProperties;
+import com.diy.config.WebConfig;
+import com.diy.metrics.RegistryMetrics;
+import com.diy.utils.DigestUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 上游仓库客户端（代理模式）
+ * 按Registry HTTP API V2访问上游，支持匿名/Basic认证和Bearer token认证（如Docker Hub）：
+ * 收到401时按WWW-Authenticate质询获取token，token按仓库缓存到过期前
+ * 
+ * blob下载的重定向（如跳转到CDN或对象存储）手动跟随，且不携带Authorization头
+ * 
+ * @author diy
+ */
+@Slf4j
+@Component
+public class UpstreamRegistryClient {
+
+    /**
+     * 请求manifest时接受的媒体类型
+     */
+    private static final String MANIFEST_ACCEPT = String.join(", ",
+            WebConfig.OCI_INDEX_MEDIA_TYPE,
+            WebConfig.OCI_MANIFEST_MEDIA_TYPE,
+            WebConfig.MANIFEST_LIST_V2_MEDIA_TYPE,
+            WebConfig.MANIFEST_V2_MEDIA_TYPE);
+
+    /**
+     * 最多跟随的重定向次数
+     */
+    private static final int MAX_REDIRECTS = 5;
+
+    /**
+     * token响应未给出有效期时的默认有效期（秒），与Docker token规范一致
+     */
+    private static final long DEFAULT_TOKEN_TTL_SECONDS = 60;
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    @Autowired
+    private RegistryMetrics registryMetrics;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private HttpClient httpClient;
+
+    private String remoteUrl;
+
+    private Duration requestTimeout;
+
+    /**
+     * 仓库 -> Authorization头
+     */
+    private final Map<String, Credential> credentials = new ConcurrentHashMap<>();
+
+    /**
+     * 初始化HTTP客户端
+     */
+    @PostConstruct
+    public void init() {
+        RegistryProperties.Proxy config = registryProperties.getProxy();
+        this.remoteUrl = config.getRemoteUrl().replaceAll("/+$", "");
+        this.requestTimeout = Duration.ofMillis(config.getRequestTimeout());
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(config.getConnectTimeout()))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    /**
+     * 获取manifest
+     * 
+     * @param repository 本地仓库名
+     * @param reference  tag或digest
+     * @return manifest，上游不存在时返回null
+     * @throws IOException 上游不可用或返回错误
+     */
+    public UpstreamManifest getManifest(String repository, String reference) throws IOException {
+        Timer.Sample sample = registryMetrics.startSample();
+        boolean success = false;
+        try {
+            HttpResponse<byte[]> response = send(repository, manifestUri(repository, reference), "GET",
+                    MANIFEST_ACCEPT, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() == 404) {
+                success = true;
+                return null;
+            }
+            checkStatus(response, "get manifest " + repository + ":" + reference);
+
+            byte[] content = response.body();
+            String digest = DigestUtils.calculateSHA256(content);
+            // 按digest拉取时内容必须与digest一致；按tag拉取时上游返回的digest仅用于校验
+            String expected = DigestUtils.isValidDigest(reference)
+                    ? reference
+                    : response.headers().firstValue("Docker-Content-Digest").orElse(digest);
+            if (!digest.equals(expected)) {
+                throw new IOException("Upstream manifest digest mismatch: expected=" + expected
+                        + ", actual=" + digest);
+            }
+
+            String mediaType = response.headers().firstValue("Content-Type")
+                    .map(UpstreamRegistryClient::stripParameters)
+                    .orElse(WebConfig.MANIFEST_V2_MEDIA_TYPE);
+            success = true;
+            return new UpstreamManifest(digest, mediaType, content);
+        } finally {
+            registryMetrics.recordUpstream(sample, "manifest_get", success);
+        }
+    }
+
+    /**
+     * 查询tag当前指向的digest（HEAD请求，Docker Hub不计入拉取限额）
+     * 
+     * @param repository 本地仓库名
+     * @param tag        标签
+     * @return digest，上游不存在时返回null；上游未返回Docker-Content-Digest时返回空字符串
+     * @throws IOException 上游不可用或返回错误
+     */
+    public String headManifest(String repository, String tag) throws IOException {
+        Timer.Sample sample = registryMetrics.startSample();
+        boolean success = false;
+        try {
+            HttpResponse<Void> response = send(repository, manifestUri(repository, tag), "HEAD",
+                    MANIFEST_ACCEPT, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() == 404) {
+                success = true;
+                return null;
+            }
+            checkStatus(response, "head manifest " + repository + ":" + tag);
+            success = true;
+            return response.headers().firstValue("Docker-Content-Digest").orElse("");
+        } finally {
+            registryMetrics.recordUpstream(sample, "manifest_head", success);
+        }
+    }
+
+    /**
+     * 查询blob元数据
+     * 
+     * @param repository 本地仓库名
+     * @param digest     blob的digest
+     * @return blob元数据（content为null），上游不存在时返回null
+     * @throws IOException 上游不可用或返回错误
+     */
+    public UpstreamBlob headBlob(String repository, String digest) throws IOException {
+        Timer.Sample sample = registryMetrics.startSample();
+        boolean success = false;
+        try {
+            HttpResponse<Void> response = sendFollowingRedirects(repository, blobUri(repository, digest),
+                    "HEAD", HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() == 404) {
+                success = true;
+                return null;
+            }
+            checkStatus(response, "head blob " + digest);
+            success = true;
+            return new UpstreamBlob(contentLength(response), contentType(response), null);
+        } finally {
+            registryMetrics.recordUpstream(sample, "blob_head", success);
+        }
+    }
+
+    /**
+     * 下载blob，调用方负责关闭返回的输入流
+     * 只计入获取响应头的耗时
+     * 
+     * @param repository 本地仓库名
+     * @param digest     blob的digest
+     * @return blob元数据和内容流，上游不存在时返回null
+     * @throws IOException 上游不可用或返回错误
+     */
+    public UpstreamBlob getBlob(String repository, String digest) throws IOException {
+        Timer.Sample sample = registryMetrics.startSample();
+        boolean success = false;
+        try {
+            HttpResponse<InputStream> response = sendFollowingRedirects(repository, blobUri(repository, digest),
+                    "GET", HttpResponse.BodyHandlers.ofInputStream());
+            if (response.statusCode() != 200) {
+                response.body().close();
+                if (response.statusCode() == 404) {
+                    success = true;
+                    return null;
+                }
+                throw new IOException("Upstream get blob " + digest + " failed: status=" + response.statusCode());
+            }
+            success = true;
+            return new UpstreamBlob(contentLength(response), contentType(response), response.body());
+        } finally {
+            registryMetrics.recordUpstream(sample, "blob_get", success);
+        }
+    }
+
+    /**
+     * 发送请求并跟随重定向，重定向后的请求不携带认证信息
+     */
+    private <T> HttpResponse<T> sendFollowingRedirects(String repository, URI uri, String method,
+            HttpResponse.BodyHandler<T> handler) throws IOException {
+        HttpResponse<T> response = send(repository, uri, method, null, handler);
+        for (int i = 0; i < MAX_REDIRECTS && isRedirect(response.statusCode()); i++) {
+            discard(response);
+            URI location = response.uri().resolve(response.headers().firstValue("Location")
+                    .orElseThrow(() -> new IOException("Upstream redirect without Location: " + uri)));
+            response = execute(HttpRequest.newBuilder(location)
+                    .timeout(requestTimeout)
+                    .method(method, HttpRequest.BodyPublishers.noBody())
+                    .build(), handler);
+        }
+        return response;
+    }
+
+    /**
+     * 发送请求，收到401时按质询完成认证后重试一次
+     */
+    private <T> HttpResponse<T> send(String repository, URI uri, String method, String accept,
+            HttpResponse.BodyHandler<T> handler) throws IOException {
+        Credential credential = credentials.get(repository);
+        if (credential != null && credential.isExpired()) {
+            credentials.remove(repository, credential);
+            credential = null;
+        }
+
+        HttpResponse<T> response = execute(request(uri, method, accept, credential), handler);
+        if (response.statusCode() != 401) {
+            return response;
+        }
+
+        discard(response);
+        String challenge = response.headers().firstValue("WWW-Authenticate").orElse(null);
+        credential = authenticate(repository, challenge);
+        if (credential == null) {
+            return response;
+        }
+        credentials.put(repository, credential);
+        return execute(request(uri, method, accept, credential), handler);
+    }
+
+    private HttpRequest request(URI uri, String method, String accept, Credential credential) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .method(method, HttpRequest.BodyPublishers.noBody());
+        if (accept != null) {
+            builder.header("Accept", accept);
+        }
+        if (credential != null) {
+            builder.header("Authorization", credential.getAuthorization());
+        }
+        return builder.build();
+    }
+
+    private <T> HttpResponse<T> execute(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException {
+        try {
+            return httpClient.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while calling upstream: " + request.uri(), e);
+        }
+    }
+
+    /**
+     * 按WWW-Authenticate质询获取凭据
+     * 
+     * @return 凭据，无法认证时返回null
+     */
+    private Credential authenticate(String repository, String challenge) throws IOException {
+        if (challenge == null) {
+            return null;
+        }
+
+        RegistryProperties.Proxy config = registryProperties.getProxy();
+        String basic = basicAuthorization(config);
+        if (challenge.regionMatches(true, 0, "Basic", 0, 5)) {
+            return basic != null ? new Credential(basic, Long.MAX_VALUE) : null;
+        }
+        if (!challenge.regionMatches(true, 0, "Bearer", 0, 6)) {
+            log.warn("Unsupported upstream auth challenge: {}", challenge);
+            return null;
+        }
+
+        Map<String, String> params = parseChallenge(challenge.substring(6));
+        String realm = params.get("realm");
+        if (realm == null) {
+            throw new IOException("Upstream bearer challenge without realm: " + challenge);
+        }
+
+        StringBuilder url = new StringBuilder(realm).append(realm.contains("?") ? '&' : '?');
+        if (params.containsKey("service")) {
+            url.append("service=").append(encode(params.get("service"))).append('&');
+        }
+        // 质询中的scope与请求的仓库一致，缺失时按拉取权限构造
+        String scope = params.getOrDefault("scope", "repository:" + upstreamName(repository) + ":pull");
+        url.append("scope=").append(encode(scope));
+
+        Timer.Sample sample = registryMetrics.startSample();
+        boolean success = false;
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url.toString())).timeout(requestTimeout);
+            if (basic != null) {
+                builder.header("Authorization", basic);
+            }
+            HttpResponse<byte[]> response = execute(builder.GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+            checkStatus(response, "get token for " + repository);
+
+            JsonNode body = objectMapper.readTree(response.body());
+            String token = body.hasNonNull("token") ? body.get("token").asText() : body.path("access_token").asText(null);
+            if (token == null) {
+                throw new IOException("Upstream token response without token");
+            }
+            long expiresIn = body.path("expires_in").asLong(DEFAULT_TOKEN_TTL_SECONDS);
+            // 提前10秒过期，避免请求途中失效
+            long expiresAt = System.nanoTime() + Duration.ofSeconds(Math.max(expiresIn - 10, 1)).toNanos();
+            success = true;
+            return new Credential("Bearer " + token, expiresAt);
+        } finally {
+            registryMetrics.recordUpstream(sample, "token", success);
+        }
+    }
+
+    /**
+     * 解析质询参数，例如：realm="https://auth.docker.io/token",service="registry.docker.io"
+     */
+    private static Map<String, String> parseChallenge(String params) {
+        Map<String, String> result = new LinkedHashMap<>();
+        int i = 0;
+        while (i < params.length()) {
+            int eq = params.indexOf('=', i);
+            if (eq < 0) {
+                break;
+            }
+            String key = params.substring(i, eq).trim().replaceFirst("^,", "").trim();
+            String value;
+            if (eq + 1 < params.length() && params.charAt(eq + 1) == '"') {
+                int end = params.indexOf('"', eq + 2);
+                end = end < 0 ? params.length() : end;
+                value = params.substring(eq + 2, end);
+                i = end + 1;
+            } else {
+                int end = params.indexOf(',', eq + 1);
+                end = end < 0 ? params.length() : end;
+                value = params.substring(eq + 1, end).trim();
+                i = end;
+            }
+            result.put(key.toLowerCase(), value);
+            // 跳过分隔的逗号
+            while (i < params.length() && (params.charAt(i) == ',' || params.charAt(i) == ' ')) {
+                i++;
+            }
+        }
+        return result;
+    }
+
+    private static String basicAuthorization(RegistryProperties.Proxy config) {
+        if (config.getUsername() == null || config.getUsername().isEmpty()) {
+            return null;
+        }
+        String password = config.getPassword() != null ? config.getPassword() : "";
+        return "Basic " + Base64.getEncoder().encodeToString(
+                (config.getUsername() + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private URI manifestUri(String repository, String reference) {
+        return URI.create(remoteUrl + "/v2/" + upstreamName(repository) + "/manifests/" + reference);
+    }
+
+    private URI blobUri(String repository, String digest) {
+        return URI.create(remoteUrl + "/v2/" + upstreamName(repository) + "/blobs/" + digest);
+    }
+
+    private String upstreamName(String repository) {
+        return registryProperties.getProxy().getRepositoryPrefix() + repository;
+    }
+
+    private static boolean isRedirect(int status) {
+        return status == 301 || status == 302 || status == 303 || status == 307 || status == 308;
+    }
+
+    private static long contentLength(HttpResponse<?> response) {
+        return response.headers().firstValueAsLong("Content-Length").orElse(-1);
+    }
+
+    private static String contentType(HttpResponse<?> response) {
+        return response.headers().firstValue("Content-Type").orElse("application/octet-stream");
+    }
+
+    private static String stripParameters(String contentType) {
+        int semicolon = contentType.indexOf(';');
+        return (semicolon >= 0 ? contentType.substring(0, semicolon) : contentType).trim();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static void checkStatus(HttpResponse<?> response, String operation) throws IOException {
+        int status = response.statusCode();
+        if (status < 200 || status >= 300) {
+            throw new IOException("Upstream " + operation + " failed: status=" + status);
+        }
+    }
+
+    /**
+     * 丢弃不再读取的响应体，释放连接
+     */
+    private static void discard(HttpResponse<?> response) throws IOException {
+        if (response.body() instanceof InputStream body) {
+            body.close();
+        }
+    }
+
+    /**
+     * 上游manifest
+     */
+    @Data
+    @AllArgsConstructor
+    public static class UpstreamManifest {
+        private final String digest;
+        private final String mediaType;
+        private final byte[] content;
+    }
+
+    /**
+     * 上游blob
+     */
+    @Data
+    @AllArgsConstructor
+    public static class UpstreamBlob {
+        /**
+         * 大小，上游未返回Content-Length时为-1
+         */
+        private final long size;
+        private final String contentType;
+        /**
+         * 内容流，HEAD请求时为null
+         */
+        private final InputStream content;
+    }
+
+    /**
+     * 缓存的认证头
+     */
+    @Data
+    @AllArgsConstructor
+    private static class Credential {
+        private final String authorization;
+        private final long expiresAtNanos;
+
+        boolean isExpired() {
+            return expiresAtNanos != Long.MAX_VALUE && System.nanoTime() - expiresAtNanos > 0;
+        }
+    }
+}
@@ -4,6 +4,8 @@ import com.diy.entity.Blob;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Blob业务服务接口
@@ -22,6 +24,18 @@ public interface BlobService {
      */
     Blob getBlobByDigest(String digest);
 
+    /**
+     * 获取仓库中的blob
+     * 本地不存在且开启代理模式时查询上游仓库，此时返回的Blob尚未写入本地（ossObjectKey为null）
+     * 
+     * @param repository 仓库名
+     * @param digest     SHA256值
+     * @return Blob实体
+     * @throws com.diy.exception.BlobNotFoundException       当blob不存在时
+     * @throws com.diy.exception.UpstreamUnavailableException 代理模式下上游不可用时
+     */
+    Blob getBlob(String repository, String digest);
+
     /**
      * 检查blob是否存在
      * 
@@ -30,6 +44,25 @@ public interface BlobService {
      */
     boolean existsByDigest(String digest);
 
+    /**
+     * 批量检查blob是否存在
+     * 一次数据库查询覆盖所有未缓存的digest，按需并行校验存储
+     * 
+     * @param digests SHA256值集合
+     * @return 不存在的digest列表（保持输入顺序，已去重）
+     * @throws com.diy.exception.InvalidDigestException 当digest格式无效时
+     */
+    List<String> findMissingDigests(Collection<String> digests);
+
+    /**
+     * 在当前事务中锁定blob记录直到事务结束，防止GC并发删除（必须在事务中调用）
+     * 不读缓存，以数据库为准
+     * 
+     * @param digests SHA256值集合
+     * @return 不存在（或已被GC删除）的digest列表
+     */
+    List<String> lockBlobs(Collection<String> digests);
+
     /**
      * 获取blob的输入流（用于下载）
      * 
@@ -40,6 +73,19 @@ public interface BlobService {
      */
     InputStream getBlobInputStream(String digest) throws IOException;
 
+    /**
+     * 获取仓库中blob的输入流（用于下载）
+     * 本地不存在且开启代理模式时从上游拉取，边下载边返回，下载完成并校验digest后写入本地存储；
+     * 同一blob的并发请求共享一次上游下载
+     * 
+     * @param repository 仓库名
+     * @param digest     SHA256值
+     * @return 输入流
+     * @throws IOException                             IO异常（包括上游下载失败或digest校验失败）
+     * @throws com.diy.exception.BlobNotFoundException 当blob不存在时
+     */
+    InputStream getBlobInputStream(String repository, String digest) throws IOException;
+
     /**
      * 获取blob大小
      * 
@@ -56,18 +102,36 @@ public interface BlobService {
      * @param size         文件大小
      * @param ossObjectKey OSS存储key
      * @param contentType  MIME类型
-     * @return 创建的Blob实体
+     * @return 创建的Blob实体，blob已存在时返回已有记录
      */
     Blob createBlob(String digest, long size, String ossObjectKey, String contentType);
 
+    /**
+     * 创建分块存储的blob记录并登记分块引用（分块已由ChunkStorageService.storeChunks写入）
+     * 
+     * @param stored      分块写入结果，digest已校验
+     * @param contentType MIME类型
+     * @return 创建的Blob实体，blob已存在时返回已有记录
+     */
+    Blob createChunkedBlob(ChunkStorageService.StoredChunks stored, String contentType);
+
     /**
      * 删除blob
+     * 仍被manifest引用的blob不会被删除
      * 
      * @param digest SHA256值
      * @return 是否删除成功
      */
     boolean deleteBlob(String digest);
 
+    /**
+     * 获取引用了blob的仓库（影响分析）
+     * 
+     * @param digest SHA256值
+     * @return 仓库名列表
+     */
+    List<String> getReferencingRepositories(String digest);
+
     /**
      * 验证blob的完整性
      * 
@@ -0,0 +1,106 @@
+package com.diy.service;
+
+import com.diy.entity.Blob;
+import com.diy.entity.BlobChunk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * 内容定义分块存储服务接口
+ * blob按滚动哈希切分为分块，分块按SHA256寻址写入chunks/前缀下并登记到分块索引，相同分块只存储一份；
+ * blob记录保存分块列表，读取时按顺序拼接，对外的digest和内容与整体存储相同
+ * 
+ * 分块引用数随blob写入/删除在同一事务中维护，引用数为0的分块由垃圾回收在宽限期后删除
+ * 
+ * @author diy
+ */
+public interface ChunkStorageService {
+
+    /**
+     * 指定大小的blob是否应分块存储（storage.chunking开启且不小于min-blob-size）
+     * 
+     * @param size blob大小
+     * @return 是否分块存储
+     */
+    boolean shouldChunk(long size);
+
+    /**
+     * 读取一遍输入流：计算整体digest，同时切分分块并写入尚不存在的分块
+     * 新分块的索引记录以引用数0立即提交，不能在事务中调用；
+     * digest校验失败时应调用discardChunks删除，blob未写入的其他情况由垃圾回收在宽限期后删除
+     * 
+     * @param inputStream blob内容
+     * @return 整体digest、大小和分块列表
+     * @throws IOException 读取或写入存储失败时抛出
+     */
+    StoredChunks storeChunks(InputStream inputStream) throws IOException;
+
+    /**
+     * 登记blob对分块的引用并写入分块列表（必须在写入blob的事务中调用）
+     * 
+     * @param blobDigest blob的digest
+     * @param chunks     storeChunks返回的分块列表
+     * @throws IllegalStateException 分块在上传期间被垃圾回收删除时抛出，重新上传即可
+     */
+    void addReferences(String blobDigest, List<BlobChunk> chunks);
+
+    /**
+     * 删除storeChunks新写入、且仍未被引用的分块（digest校验失败时调用，不能在事务中调用）
+     * 客户端可以任意构造digest不符的上传，不等待垃圾回收的宽限期；
+     * 同时上传相同新分块的其他请求在登记引用时失败，重新上传即可
+     * 
+     * @param stored storeChunks的返回值
+     */
+    void discardChunks(StoredChunks stored);
+
+    /**
+     * 释放blob对分块的引用并删除分块列表（必须在删除blob的事务中调用）
+     * 
+     * @param blob 分块存储的blob
+     */
+    void releaseReferences(Blob blob);
+
+    /**
+     * 获取blob的分块列表
+     * 
+     * @param blobDigest blob的digest
+     * @return 分块列表（按seq排序）
+     */
+    List<BlobChunk> getChunks(String blobDigest);
+
+    /**
+     * 打开分块存储blob的输入流，分块在读到时才从存储读取
+     * 
+     * @param blob 分块存储的blob
+     * @return 拼接后的blob内容
+     * @throws IOException 分块列表不完整时抛出
+     */
+    InputStream openStream(Blob blob) throws IOException;
+
+    /**
+     * 分块写入结果
+     */
+    interface StoredChunks {
+        /**
+         * 整体内容的digest
+         */
+        String getDigest();
+
+        /**
+         * 整体大小（字节）
+         */
+        long getSize();
+
+        /**
+         * 分块列表（按seq排序）
+         */
+        List<BlobChunk> getChunks();
+
+        /**
+         * 本次新写入的分块digest（不含已存在的分块）
+         */
+        List<String> getWrittenChunks();
+    }
+}
@@ -0,0 +1,58 @@
+package com.diy.service;
+
+/**
+ * Blob垃圾回收服务接口
+ * 在线标记-清理：引用关系由manifest_blobs索引维护（标记），清理宽限期之前创建且未被引用的blob
+ * 
+ * @author diy
+ */
+public interface GarbageCollectionService {
+
+    /**
+     * 执行一轮垃圾回收
+     * 同一时刻只允许一轮执行，正在执行时直接返回null
+     * 
+     * @return 回收结果
+     */
+    GcResult collect();
+
+    /**
+     * 定时执行垃圾回收（storage.cleanup.enabled=false时跳过）
+     */
+    void scheduledCollect();
+
+    /**
+     * 垃圾回收结果
+     */
+    interface GcResult {
+        /**
+         * 本轮回填引用索引的历史manifest数
+         */
+        long getManifestsIndexed();
+
+        /**
+         * 未被引用的候选blob数
+         */
+        long getCandidateBlobs();
+
+        /**
+         * 删除的blob数
+         */
+        long getDeletedBlobs();
+
+        /**
+         * 删除的分块数（分块存储模式）
+         */
+        long getDeletedChunks();
+
+        /**
+         * 释放的存储空间（字节，整体存储的blob和删除的分块）
+         */
+        long getFreedBytes();
+
+        /**
+         * 耗时（毫秒）
+         */
+        long getElapsedMillis();
+    }
+}
@@ -23,6 +23,17 @@ public interface ManifestService {
      */
     Manifest getManifest(String repository, String reference);
 
+    /**
+     * 解析引用对应的manifest digest，不加载manifest内容
+     * 用于条件请求在读取内容之前判断是否可以返回304
+     * 
+     * @param repository 仓库名
+     * @param reference  引用（tag或digest）
+     * @return manifest的digest
+     * @throws com.diy.exception.ManifestNotFoundException 当manifest不存在时
+     */
+    String resolveDigest(String repository, String reference);
+
     /**
      * 检查manifest是否存在
      * 
@@ -37,16 +48,19 @@ public interface ManifestService {
      * 
      * @param repository      仓库名
      * @param reference       引用（通常是tag）
-     * @param manifestContent manifest JSON内容
+     * @param manifestContent manifest JSON内容（原始字节）
      * @param mediaType       媒体类型
      * @return 创建的Manifest实体
-     * @throws com.diy.exception.BlobNotFoundException 当依赖的blob不存在时
-     * @throws IllegalArgumentException                当manifest格式无效时
+     * @throws com.diy.exception.BlobNotFoundException       当依赖的blob不存在时
+     * @throws com.diy.exception.ManifestBlobUnknownException 当引用的子manifest不存在时
+     * @throws com.diy.exception.InvalidTagException         当标签格式无效时
+     * @throws IllegalArgumentException                      当manifest格式无效时
      */
-    Manifest putManifest(String repository, String reference, String manifestContent, String mediaType);
+    Manifest putManifest(String repository, String reference, byte[] manifestContent, String mediaType);
 
     /**
      * 删除manifest
+     * 通过digest删除时同时删除指向它的tag；通过tag删除时只删除tag本身
      * 
      * @param repository 仓库名
      * @param reference  引用（tag或digest）
@@ -63,13 +77,15 @@ public interface ManifestService {
     List<String> getRepositoryTags(String repository);
 
     /**
-     * 构建manifest list（当通过tag访问时）
+     * 分页获取仓库的tag（keyset分页）
      * 
      * @param repository 仓库名
-     * @param tag        标签
-     * @return manifest list JSON内容
+     * @param last       上一页最后一个tag（为空时从第一页开始）
+     * @param limit      最多返回的条数
+     * @return tag列表（按字典序）
+     * @throws com.diy.exception.RepositoryNotFoundException 当仓库不存在时
      */
-    String buildManifestList(String repository, String tag);
+    List<String> listTags(String repository, String last, int limit);
 
     /**
      * 验证manifest的依赖完整性
@@ -82,10 +98,10 @@ public interface ManifestService {
     /**
      * 计算manifest的digest
      * 
-     * @param manifestContent manifest JSON内容
+     * @param manifestContent manifest JSON内容（原始字节）
      * @return SHA256 digest
      */
-    String calculateManifestDigest(String manifestContent);
+    String calculateManifestDigest(byte[] manifestContent);
 
     /**
      * 判断引用是否为digest格式
@@ -3,13 +3,18 @@ package com.diy.service;
 import com.aliyun.oss.OSS;
 import com.aliyun.oss.model.*;
 import com.diy.config.OssProperties;
+import com.diy.metrics.RegistryMetrics;
 import com.diy.utils.DigestUtils;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 阿里云OSS存储服务
@@ -21,12 +26,24 @@ import java.io.InputStream;
 @Service
 public class OssStorageService {
 
+    /**
+     * OSS批量删除接口单次请求的最大key数
+     */
+    private static final int MAX_DELETE_BATCH = 1000;
+
+    /**
+     * 延迟解析：首次调用时才创建客户端，不拖慢启动
+     */
+    @Lazy
     @Autowired
     private OSS ossClient;
 
     @Autowired
     private OssProperties ossProperties;
 
+    @Autowired
+    private RegistryMetrics registryMetrics;
+
     /**
      * 生成blob的OSS存储key
      * 路径格式：blobs/ab/abc123def456.../data
@@ -49,6 +66,18 @@ public class OssStorageService {
                 ossProperties.getBlobPrefix(), prefix, hash);
     }
 
+    /**
+     * 生成分块的OSS存储key
+     * 路径格式：chunks/ab/abc123def456...
+     * 
+     * @param digest 分块的SHA256值
+     * @return OSS存储key
+     */
+    public String generateChunkKey(String digest) {
+        String hash = DigestUtils.extractHash(digest);
+        return ossProperties.getChunkPrefix() + hash.substring(0, 2) + "/" + hash;
+    }
+
     /**
      * 生成临时文件的OSS key
      * 路径格式：temp/{uuid}.tmp
@@ -69,6 +98,7 @@ public class OssStorageService {
      * @throws IOException IO异常
      */
     public void putObject(String key, InputStream inputStream, long contentLength) throws IOException {
+        Timer.Sample sample = registryMetrics.startSample();
         try {
             ObjectMetadata metadata = new ObjectMetadata();
             metadata.setContentLength(contentLength);
@@ -78,11 +108,13 @@ public class OssStorageService {
                     ossProperties.getBucketName(), key, inputStream, metadata);
 
             PutObjectResult result = ossClient.putObject(request);
+            registryMetrics.recordStorage(sample, "put", true);
 
             log.debug("Successfully uploaded object to OSS: key={}, etag={}",
                     key, result.getETag());
 
         } catch (Exception e) {
+            registryMetrics.recordStorage(sample, "put", false);
             log.error("Failed to upload object to OSS: key={}", key, e);
             throw new IOException("OSS upload failed: " + e.getMessage(), e);
         }
@@ -96,15 +128,46 @@ public class OssStorageService {
      * @throws IOException IO异常
      */
     public InputStream getObjectInputStream(String key) throws IOException {
+        // 只计入获取响应头的耗时，对象内容由调用方流式读取
+        Timer.Sample sample = registryMetrics.startSample();
         try {
             OSSObject ossObject = ossClient.getObject(ossProperties.getBucketName(), key);
+            registryMetrics.recordStorage(sample, "get", true);
             return ossObject.getObjectContent();
         } catch (Exception e) {
+            registryMetrics.recordStorage(sample, "get", false);
             log.error("Failed to get object from OSS: key={}", key, e);
             throw new IOException("OSS download failed: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * 从指定位置开始获取OSS对象的输入流（Range请求）
+     * 
+     * @param key    OSS对象key
+     * @param offset 起始位置，为0时读取整个对象
+     * @return 输入流
+     * @throws IOException IO异常
+     */
+    public InputStream getObjectInputStream(String key, long offset) throws IOException {
+        if (offset <= 0) {
+            return getObjectInputStream(key);
+        }
+
+        Timer.Sample sample = registryMetrics.startSample();
+        try {
+            GetObjectRequest request = new GetObjectRequest(ossProperties.getBucketName(), key);
+            request.setRange(offset, -1);
+            OSSObject ossObject = ossClient.getObject(request);
+            registryMetrics.recordStorage(sample, "get", true);
+            return ossObject.getObjectContent();
+        } catch (Exception e) {
+            registryMetrics.recordStorage(sample, "get", false);
+            log.error("Failed to get object range from OSS: key={}, offset={}", key, offset, e);
+            throw new IOException("OSS download failed: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * 获取OSS对象元数据
      * 
@@ -113,9 +176,13 @@ public class OssStorageService {
      * @throws IOException IO异常
      */
     public ObjectMetadata getObjectMetadata(String key) throws IOException {
+        Timer.Sample sample = registryMetrics.startSample();
         try {
-            return ossClient.getObjectMetadata(ossProperties.getBucketName(), key);
+            ObjectMetadata metadata = ossClient.getObjectMetadata(ossProperties.getBucketName(), key);
+            registryMetrics.recordStorage(sample, "head", true);
+            return metadata;
         } catch (Exception e) {
+            registryMetrics.recordStorage(sample, "head", false);
             log.error("Failed to get object metadata from OSS: key={}", key, e);
             throw new IOException("OSS metadata access failed: " + e.getMessage(), e);
         }
@@ -128,9 +195,13 @@ public class OssStorageService {
      * @return 是否存在
      */
     public boolean doesObjectExist(String key) {
+        Timer.Sample sample = registryMetrics.startSample();
         try {
-            return ossClient.doesObjectExist(ossProperties.getBucketName(), key);
+            boolean exists = ossClient.doesObjectExist(ossProperties.getBucketName(), key);
+            registryMetrics.recordStorage(sample, "exists", true);
+            return exists;
         } catch (Exception e) {
+            registryMetrics.recordStorage(sample, "exists", false);
             log.error("Failed to check object existence in OSS: key={}", key, e);
             return false;
         }
@@ -142,15 +213,46 @@ public class OssStorageService {
      * @param key OSS对象key
      */
     public void deleteObject(String key) {
+        Timer.Sample sample = registryMetrics.startSample();
         try {
             ossClient.deleteObject(ossProperties.getBucketName(), key);
+            registryMetrics.recordStorage(sample, "delete", true);
             log.debug("Successfully deleted object from OSS: key={}", key);
         } catch (Exception e) {
+            registryMetrics.recordStorage(sample, "delete", false);
             log.error("Failed to delete object from OSS: key={}", key, e);
             // 删除失败不抛异常，只记录日志
         }
     }
 
+    /**
+     * 批量删除OSS对象，每次请求最多删除1000个
+     * 
+     * @param keys OSS对象key列表
+     * @return 删除失败的key数量
+     */
+    public int deleteObjects(List<String> keys) {
+        int failed = 0;
+        for (int from = 0; from < keys.size(); from += MAX_DELETE_BATCH) {
+            List<String> batch = keys.subList(from, Math.min(from + MAX_DELETE_BATCH, keys.size()));
+            Timer.Sample sample = registryMetrics.startSample();
+            try {
+                DeleteObjectsRequest request = new DeleteObjectsRequest(ossProperties.getBucketName())
+                        .withKeys(new ArrayList<>(batch))
+                        .withQuiet(true);
+                ossClient.deleteObjects(request);
+                registryMetrics.recordStorage(sample, "delete_batch", true);
+                log.debug("Successfully deleted objects from OSS: count={}", batch.size());
+            } catch (Exception e) {
+                registryMetrics.recordStorage(sample, "delete_batch", false);
+                failed += batch.size();
+                log.error("Failed to delete objects from OSS: count={}", batch.size(), e);
+                // 删除失败不抛异常，只记录日志
+            }
+        }
+        return failed;
+    }
+
     /**
      * 复制OSS对象（临时文件移动到正式位置）
      * 
@@ -159,17 +261,20 @@ public class OssStorageService {
      * @throws IOException IO异常
      */
     public void copyObject(String sourceKey, String destKey) throws IOException {
+        Timer.Sample sample = registryMetrics.startSample();
         try {
             CopyObjectRequest copyRequest = new CopyObjectRequest(
                     ossProperties.getBucketName(), sourceKey,
                     ossProperties.getBucketName(), destKey);
 
             CopyObjectResult result = ossClient.copyObject(copyRequest);
+            registryMetrics.recordStorage(sample, "copy", true);
 
             log.debug("Successfully copied object in OSS: {} -> {}, etag={}",
                     sourceKey, destKey, result.getETag());
 
         } catch (Exception e) {
+            registryMetrics.recordStorage(sample, "copy", false);
             log.error("Failed to copy object in OSS: {} -> {}", sourceKey, destKey, e);
             throw new IOException("OSS copy failed: " + e.getMessage(), e);
         }
@@ -185,6 +290,7 @@ public class OssStorageService {
      * @throws IOException IO异常
      */
     public AppendObjectResult appendObject(String key, InputStream inputStream, long position) throws IOException {
+        Timer.Sample sample = null;
         try {
             // 先读取所有数据到字节数组，确保准确的长度
             byte[] data = inputStream.readAllBytes();
@@ -200,7 +306,10 @@ public class OssStorageService {
                     ossProperties.getBucketName(), key, byteArrayInputStream, metadata);
             appendRequest.setPosition(position);
 
+            // 读取客户端请求体的耗时不计入OSS调用
+            sample = registryMetrics.startSample();
             AppendObjectResult result = ossClient.appendObject(appendRequest);
+            registryMetrics.recordStorage(sample, "append", true);
 
             log.debug("Successfully appended to object in OSS: key={}, position={}, nextPosition={}",
                     key, position, result.getNextPosition());
@@ -208,6 +317,9 @@ public class OssStorageService {
             return result;
 
         } catch (Exception e) {
+            if (sample != null) {
+                registryMetrics.recordStorage(sample, "append", false);
+            }
             log.error("Failed to append to object in OSS: key={}, position={}", key, position, e);
             throw new IOException("OSS append failed: " + e.getMessage(), e);
         }
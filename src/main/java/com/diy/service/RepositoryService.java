@@ -0,0 +1,80 @@
+package com.diy.service;
+
+import com.diy.entity.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 仓库索引服务接口
+ * 维护仓库列表（供_catalog接口使用）及仓库级存储计数和配额
+ * 
+ * @author diy
+ */
+public interface RepositoryService {
+
+    /**
+     * 分页获取仓库名（keyset分页）
+     * 
+     * @param last  上一页最后一个仓库名（为空时从第一页开始）
+     * @param limit 最多返回的条数
+     * @return 仓库名列表（按字典序）
+     */
+    List<String> listRepositories(String last, int limit);
+
+    /**
+     * 获取仓库及其存储计数
+     * 
+     * @param name 仓库名
+     * @return 仓库实体，不存在时返回null
+     */
+    Repository getRepository(String name);
+
+    /**
+     * 仓库新增manifest时调用（需在manifest写入的同一事务中）
+     * 更新计数并写入manifest引用blob的记录；仓库新增引用的blob总大小超出存储配额时拒绝
+     * 
+     * @param repository     仓库名
+     * @param manifestDigest manifest的digest
+     * @param blobDigests    manifest引用的blob digest集合
+     * @throws com.diy.exception.QuotaExceededException 超出配额时抛出
+     */
+    void onManifestAdded(String repository, String manifestDigest, Collection<String> blobDigests);
+
+    /**
+     * 仓库删除manifest时调用（需在manifest删除的同一事务中）
+     * 更新计数并删除manifest引用blob的记录，仓库的最后一个manifest被删除时，仓库从索引中移除
+     * 
+     * @param repository     仓库名
+     * @param manifestDigest manifest的digest
+     */
+    void onManifestRemoved(String repository, String manifestDigest);
+
+    /**
+     * 代理模式下blob从上游写入本地后调用（需在blob写入的同一事务中）
+     * manifest先于blob写入时其引用的blob不计大小，此时补计到引用该blob的仓库；与推送相同，先锁仓库行
+     * 
+     * @param blobDigest blob的digest
+     * @param size       blob大小（字节）
+     */
+    void onBlobFilled(String blobDigest, long size);
+
+    /**
+     * 仓库tag数量变化时调用（需在tag写入的同一事务中）
+     * 
+     * @param repository 仓库名
+     * @param delta      增量（可为负数）
+     */
+    void onTagsChanged(String repository, long delta);
+
+    /**
+     * 检查向仓库写入blob是否超出存储配额
+     * 已被仓库引用的blob不重复计入
+     * 
+     * @param repository 仓库名
+     * @param blobDigest blob的digest
+     * @param size       blob大小（字节）
+     * @throws com.diy.exception.QuotaExceededException 超出配额时抛出
+     */
+    void checkQuota(String repository, String blobDigest, long size);
+}
@@ -0,0 +1,97 @@
+package com.diy.service;
+
+/**
+ * 全局存储计数服务接口
+ * 计数随写入在同一事务中增量维护，读取时不扫描数据表
+ * 
+ * @author diy
+ */
+public interface StorageAccountingService {
+
+    /**
+     * 累加blob数量和字节数（必须在写入blob的事务中调用）
+     * 
+     * @param count blob数量增量
+     * @param bytes 字节数增量
+     */
+    void addBlobs(long count, long bytes);
+
+    /**
+     * 累加manifest数量（必须在写入manifest的事务中调用）
+     * 
+     * @param count 增量
+     */
+    void addManifests(long count);
+
+    /**
+     * 累加tag数量（必须在写入tag的事务中调用）
+     * 
+     * @param count 增量
+     */
+    void addTags(long count);
+
+    /**
+     * 累加仓库数量（必须在写入仓库索引的事务中调用）
+     * 
+     * @param count 增量
+     */
+    void addRepositories(long count);
+
+    /**
+     * 累加分块索引中的分块数量和字节数（必须在写入/删除分块记录的事务中调用）
+     * 
+     * @param count 分块数量增量
+     * @param bytes 字节数增量
+     */
+    void addChunks(long count, long bytes);
+
+    /**
+     * 累加分块存储的blob数量和逻辑字节数（必须在写入blob的事务中调用，同时计入addBlobs）
+     * 
+     * @param count blob数量增量
+     * @param bytes 字节数增量
+     */
+    void addChunkedBlobs(long count, long bytes);
+
+    /**
+     * 获取全局存储统计
+     * 
+     * @return 统计信息
+     */
+    StorageStats getStorageStats();
+
+    /**
+     * 全局存储统计信息
+     */
+    interface StorageStats {
+        long getBlobCount();
+
+        long getBlobBytes();
+
+        long getManifestCount();
+
+        long getTagCount();
+
+        long getRepositoryCount();
+
+        /**
+         * 分块索引中的分块数
+         */
+        long getChunkCount();
+
+        /**
+         * 分块实际占用的存储字节数（每个分块只计一次）
+         */
+        long getChunkBytes();
+
+        /**
+         * 分块存储的blob数
+         */
+        long getChunkedBlobCount();
+
+        /**
+         * 分块存储的blob逻辑字节数，与getChunkBytes之差即去重节省的空间
+         */
+        long getChunkedBlobBytes();
+    }
+}
@@ -1,23 +1,52 @@
 package com.diy.service.impl;
 
+import com.diy.cache.BlobContentCache;
+import com.diy.cache.BlobMetadataCache;
+import com.diy.config.RegistryProperties;
 import com.diy.entity.Blob;
+import com.diy.entity.BlobChunk;
 import com.diy.exception.BlobNotFoundException;
 import com.diy.exception.InvalidDigestException;
+import com.diy.exception.UpstreamUnavailableException;
 import com.diy.mapper.BlobMapper;
+import com.diy.mapper.ManifestBlobMapper;
+import com.diy.proxy.BlobFill;
+import com.diy.proxy.PullThroughCache;
+import com.diy.proxy.UpstreamRegistryClient;
 import com.diy.service.BlobService;
+import com.diy.service.ChunkStorageService;
 import com.diy.service.OssStorageService;
+import com.diy.service.RepositoryService;
+import com.diy.service.StorageAccountingService;
 import com.diy.utils.DigestUtils;
+import com.diy.utils.TransactionUtils;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Blob业务服务实现类
@@ -31,27 +60,116 @@ public class BlobServiceImpl implements BlobService {
     @Autowired
     private BlobMapper blobMapper;
 
+    @Autowired
+    private ManifestBlobMapper manifestBlobMapper;
+
     @Autowired
     private OssStorageService ossStorageService;
 
+    @Autowired
+    private StorageAccountingService storageAccountingService;
+
+    @Autowired
+    private BlobMetadataCache blobMetadataCache;
+
+    @Autowired
+    private BlobContentCache blobContentCache;
+
+    @Autowired
+    private ChunkStorageService chunkStorageService;
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    @Autowired
+    @Qualifier("storageExecutor")
+    private TaskExecutor storageExecutor;
+
+    @Autowired
+    private PullThroughCache pullThroughCache;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Override
     public Blob getBlobByDigest(String digest) {
         validateDigest(digest);
 
-        Blob blob = blobMapper.findByDigest(digest);
-        if (blob == null) {
+        Blob blob = blobMetadataCache.get(digest);
+        if (blob != null) {
+            return blob;
+        }
+
+        if (blobMetadataCache.isKnownMissing(digest)) {
             throw new BlobNotFoundException(digest);
         }
 
-        // 验证OSS中文件是否存在
-        if (!ossStorageService.doesObjectExist(blob.getOssObjectKey())) {
-            log.warn("Blob exists in database but not in OSS: {}", digest);
-            throw new BlobNotFoundException(digest, "Blob file not found in storage");
+        // OSS中文件的存在性已在createBlob写入时验证，读取时只查数据库
+        blob = blobMapper.findByDigest(digest);
+        if (blob == null) {
+            blobMetadataCache.putMissing(digest);
+            throw new BlobNotFoundException(digest);
         }
 
+        blobMetadataCache.put(blob);
         return blob;
     }
 
+    @Override
+    public Blob getBlob(String repository, String digest) {
+        try {
+            return getBlobByDigest(digest);
+        } catch (BlobNotFoundException e) {
+            if (!pullThroughCache.isEnabled()) {
+                throw e;
+            }
+        }
+
+        try {
+            // 下载进行中时直接使用其响应头，否则只向上游查询元数据，内容在读取时才下载
+            BlobFill fill = pullThroughCache.getFill(digest);
+            if (fill != null) {
+                try {
+                    return upstreamBlob(digest, fill.awaitSize(), fill.getContentType());
+                } catch (BlobFill.RejectedException e) {
+                    // 下载未执行，改为向上游查询
+                }
+            }
+
+            UpstreamRegistryClient.UpstreamBlob upstream = pullThroughCache.getUpstream().headBlob(repository, digest);
+            if (upstream == null || upstream.getSize() < 0) {
+                throw new BlobNotFoundException(digest);
+            }
+            return upstreamBlob(digest, upstream.getSize(), upstream.getContentType());
+        } catch (IOException e) {
+            throw new UpstreamUnavailableException(repository, digest, e);
+        }
+    }
+
+    @Override
+    public InputStream getBlobInputStream(String repository, String digest) throws IOException {
+        if (!pullThroughCache.isEnabled() || existsByDigest(digest)) {
+            return getBlobInputStream(digest);
+        }
+
+        BlobFill fill = pullThroughCache.fill(repository, digest,
+                (spool, size, contentType) -> storeUpstreamBlob(digest, spool, size, contentType));
+        try {
+            if (fill != null) {
+                InputStream inputStream = fill.openStream();
+                // 下载刚好结束，blob已写入本地存储
+                return inputStream != null ? inputStream : getBlobInputStream(digest);
+            }
+        } catch (BlobFill.RejectedException e) {
+            // 加入的下载因排队已满未执行
+        }
+        // 下载线程池排队已满，本次直接转发上游内容
+        return pullThroughCache.openDirect(repository, digest);
+    }
+
     @Override
     public boolean existsByDigest(String digest) {
         validateDigest(digest);
@@ -64,12 +182,74 @@ public class BlobServiceImpl implements BlobService {
         }
     }
 
+    @Override
+    public List<String> findMissingDigests(Collection<String> digests) {
+        // 去重并跳过已缓存（已被证明存在）的digest
+        Set<String> pending = new LinkedHashSet<>();
+        for (String digest : digests) {
+            validateDigest(digest);
+            if (blobMetadataCache.get(digest) == null) {
+                pending.add(digest);
+            }
+        }
+
+        List<String> missing = new ArrayList<>();
+        if (pending.isEmpty()) {
+            return missing;
+        }
+
+        // 一次批量查询获取所有未缓存的blob记录
+        Map<String, Blob> found = new LinkedHashMap<>();
+        for (Blob blob : blobMapper.findByDigests(pending)) {
+            found.put(blob.getDigest(), blob);
+        }
+
+        for (String digest : pending) {
+            if (!found.containsKey(digest)) {
+                blobMetadataCache.putMissing(digest);
+                missing.add(digest);
+            }
+        }
+
+        if (registryProperties.getStorage().isEnableValidation()) {
+            missing.addAll(verifyStorage(found.values()));
+        } else {
+            found.values().forEach(blobMetadataCache::put);
+        }
+
+        log.debug("Batch blob existence check: requested={}, queried={}, missing={}",
+                digests.size(), pending.size(), missing.size());
+
+        return missing;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<String> lockBlobs(Collection<String> digests) {
+        Set<String> pending = new LinkedHashSet<>(digests);
+        List<String> missing = new ArrayList<>();
+        if (pending.isEmpty()) {
+            return missing;
+        }
+
+        Set<String> locked = new HashSet<>(blobMapper.lockByDigests(pending));
+        for (String digest : pending) {
+            if (!locked.contains(digest)) {
+                blobMetadataCache.invalidate(digest);
+                missing.add(digest);
+            }
+        }
+        return missing;
+    }
+
     @Override
     public InputStream getBlobInputStream(String digest) throws IOException {
         Blob blob = getBlobByDigest(digest);
 
         try {
-            InputStream inputStream = ossStorageService.getObjectInputStream(blob.getOssObjectKey());
+            InputStream inputStream = blob.isChunked()
+                    ? chunkStorageService.openStream(blob)
+                    : ossStorageService.getObjectInputStream(blob.getOssObjectKey());
             log.debug("Retrieved blob input stream: digest={}, size={}", digest, blob.getSize());
             return inputStream;
         } catch (IOException e) {
@@ -97,33 +277,92 @@ public class BlobServiceImpl implements BlobService {
             throw new IllegalArgumentException("OSS object key cannot be empty");
         }
 
-        // 检查是否已存在
-        if (blobMapper.existsByDigest(digest)) {
+        Blob blob = newBlob(digest, size, ossObjectKey, contentType);
+        Blob existing = insertBlob(blob);
+        if (existing != null) {
+            return existing;
+        }
+
+        log.info("Successfully created blob: digest={}, size={}, oss_key={}",
+                digest, size, ossObjectKey);
+
+        return blob;
+    }
+
+    @Override
+    @Transactional
+    public Blob createChunkedBlob(ChunkStorageService.StoredChunks stored, String contentType) {
+        String digest = stored.getDigest();
+        validateDigest(digest);
+
+        Blob blob = newBlob(digest, stored.getSize(), "", contentType);
+        blob.setChunkCount(stored.getChunks().size());
+        Blob existing = insertBlob(blob);
+        if (existing != null) {
+            return existing;
+        }
+
+        // 锁顺序与GC一致：blob行 -> 分块行
+        chunkStorageService.addReferences(digest, stored.getChunks());
+
+        log.info("Successfully created chunked blob: digest={}, size={}, chunks={}",
+                digest, blob.getSize(), blob.getChunkCount());
+
+        return blob;
+    }
+
+    /**
+     * 插入blob记录，digest已存在时返回已有记录
+     * 
+     * 不先做非加锁读取：GC正在删除同一digest时，一致性读仍能读到将被删除的行。直接插入时，
+     * 重复键检查等待GC提交，之后按不存在插入；已有记录在重复键检查后加共享锁读取，持有到本事务提交，
+     * GC无法在此期间删除。新记录或已有记录非分块存储时，在持有行锁后确认OSS对象存在
+     * （GC在提交前删除对象，见GarbageCollectionServiceImpl.deleteBatch）
+     * 
+     * 缓存在事务提交后写入，避免回滚后缓存中残留不存在的记录
+     * 
+     * @param blob 新的blob记录
+     * @return 已有记录，插入成功时返回null
+     */
+    private Blob insertBlob(Blob blob) {
+        String digest = blob.getDigest();
+        try {
+            if (blobMapper.insert(blob) <= 0) {
+                throw new RuntimeException("Failed to insert blob record: " + digest);
+            }
+        } catch (DuplicateKeyException e) {
+            Blob existing = blobMapper.lockByDigest(digest);
+            if (existing == null) {
+                throw new IllegalStateException("Blob record vanished after duplicate key: " + digest, e);
+            }
+            verifyObjectExists(existing);
             log.info("Blob already exists, returning existing: {}", digest);
-            return blobMapper.findByDigest(digest);
+            TransactionUtils.afterCommit(() -> blobMetadataCache.put(existing));
+            return existing;
         }
 
-        // 验证OSS中文件确实存在
-        if (!ossStorageService.doesObjectExist(ossObjectKey)) {
-            throw new IllegalStateException("OSS object does not exist: " + ossObjectKey);
+        verifyObjectExists(blob);
+        storageAccountingService.addBlobs(1, blob.getSize());
+        TransactionUtils.afterCommit(() -> blobMetadataCache.put(blob));
+        return null;
+    }
+
+    /**
+     * 确认非分块存储的blob在OSS中存在，不存在时回滚，由客户端重新上传
+     */
+    private void verifyObjectExists(Blob blob) {
+        if (!blob.isChunked() && !ossStorageService.doesObjectExist(blob.getOssObjectKey())) {
+            throw new IllegalStateException("OSS object does not exist: " + blob.getOssObjectKey());
         }
+    }
 
-        // 创建新的blob记录
+    private static Blob newBlob(String digest, long size, String ossObjectKey, String contentType) {
         Blob blob = new Blob();
         blob.setDigest(digest);
         blob.setSize(size);
         blob.setOssObjectKey(ossObjectKey);
         blob.setContentType(contentType != null ? contentType : "application/octet-stream");
         blob.setCreatedAt(LocalDateTime.now());
-
-        int inserted = blobMapper.insert(blob);
-        if (inserted <= 0) {
-            throw new RuntimeException("Failed to insert blob record: " + digest);
-        }
-
-        log.info("Successfully created blob: digest={}, size={}, oss_key={}",
-                digest, size, ossObjectKey);
-
         return blob;
     }
 
@@ -132,18 +371,35 @@ public class BlobServiceImpl implements BlobService {
     public boolean deleteBlob(String digest) {
         validateDigest(digest);
 
-        // 获取blob信息
-        Blob blob;
-        try {
-            blob = getBlobByDigest(digest);
-        } catch (BlobNotFoundException e) {
+        // 获取blob信息并加排他锁，之后再检查引用，与并发推送的共享锁互斥
+        List<Blob> locked = blobMapper.lockForDeletion(List.of(digest), null);
+        if (locked.isEmpty()) {
             log.warn("Attempted to delete non-existent blob: {}", digest);
             return false;
         }
+        Blob blob = locked.get(0);
+
+        if (manifestBlobMapper.existsByBlob(digest)) {
+            log.warn("Refused to delete blob still referenced by manifests: {}", digest);
+            return false;
+        }
 
         try {
             // 删除数据库记录
             int deleted = blobMapper.deleteByDigest(digest);
+            storageAccountingService.addBlobs(-deleted, -deleted * blob.getSize());
+            blobMetadataCache.invalidate(digest);
+            // 提交前可能有并发读取把旧记录重新放回缓存，提交后再失效一次
+            TransactionUtils.afterCommit(() -> {
+                blobMetadataCache.invalidate(digest);
+                blobContentCache.invalidate(digest);
+            });
+            if (deleted > 0 && blob.isChunked()) {
+                // 分块在引用数归零后由垃圾回收删除
+                chunkStorageService.releaseReferences(blob);
+                log.info("Successfully deleted chunked blob: digest={}, chunks={}", digest, blob.getChunkCount());
+                return true;
+            }
             if (deleted > 0) {
                 // 删除OSS文件
                 ossStorageService.deleteObject(blob.getOssObjectKey());
@@ -158,12 +414,22 @@ public class BlobServiceImpl implements BlobService {
         return false;
     }
 
+    @Override
+    public List<String> getReferencingRepositories(String digest) {
+        validateDigest(digest);
+        return manifestBlobMapper.findRepositoriesByBlob(digest);
+    }
+
     @Override
     public boolean validateBlobIntegrity(String digest) throws IOException {
         validateDigest(digest);
 
         Blob blob = getBlobByDigest(digest);
 
+        if (blob.isChunked()) {
+            return validateChunks(blob);
+        }
+
         try {
             // 验证OSS文件大小
             long actualSize = ossStorageService.getObjectSize(blob.getOssObjectKey());
@@ -188,16 +454,122 @@ public class BlobServiceImpl implements BlobService {
     @Override
     public BlobStats getBlobStats() {
         try {
-            long totalCount = blobMapper.countAll();
-            long totalSize = blobMapper.sumSize();
-
-            return new BlobStatsImpl(totalCount, totalSize);
+            // 计数随写入增量维护，读取时不扫描blobs表
+            StorageAccountingService.StorageStats stats = storageAccountingService.getStorageStats();
+            return new BlobStatsImpl(stats.getBlobCount(), stats.getBlobBytes());
         } catch (Exception e) {
             log.error("Failed to get blob stats", e);
             return new BlobStatsImpl(0, 0);
         }
     }
 
+    /**
+     * 校验分块列表与blob记录一致（分块数、连续性和总大小）
+     */
+    private boolean validateChunks(Blob blob) {
+        List<BlobChunk> chunks = chunkStorageService.getChunks(blob.getDigest());
+        long offset = 0;
+        for (BlobChunk chunk : chunks) {
+            if (chunk.getChunkOffset() != offset) {
+                log.warn("Chunk list not contiguous: digest={}, seq={}, expected_offset={}, actual_offset={}",
+                        blob.getDigest(), chunk.getSeq(), offset, chunk.getChunkOffset());
+                return false;
+            }
+            offset += chunk.getSize();
+        }
+        if (chunks.size() != blob.getChunkCount() || offset != blob.getSize()) {
+            log.warn("Chunk list mismatch: digest={}, expected_chunks={}, actual_chunks={}, expected={}, actual={}",
+                    blob.getDigest(), blob.getChunkCount(), chunks.size(), blob.getSize(), offset);
+            return false;
+        }
+        log.debug("Blob integrity validation passed: {}", blob.getDigest());
+        return true;
+    }
+
+    /**
+     * 将从上游下载并校验通过的blob写入OSS并创建记录
+     */
+    private void storeUpstreamBlob(String digest, Path spool, long size, String contentType) throws IOException {
+        if (chunkStorageService.shouldChunk(size)) {
+            storeUpstreamChunks(digest, spool, contentType);
+            return;
+        }
+
+        String blobKey = ossStorageService.generateBlobKey(digest);
+        try (InputStream inputStream = Files.newInputStream(spool)) {
+            ossStorageService.putObject(blobKey, inputStream, size);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // 其他实例可能已写入同一blob，此时仓库用量已计入
+            if (insertBlob(newBlob(digest, size, blobKey, contentType)) == null) {
+                repositoryService.onBlobFilled(digest, size);
+            }
+        });
+    }
+
+    /**
+     * 以分块方式写入上游blob
+     */
+    private void storeUpstreamChunks(String digest, Path spool, String contentType) throws IOException {
+        ChunkStorageService.StoredChunks stored;
+        try (InputStream inputStream = Files.newInputStream(spool)) {
+            stored = chunkStorageService.storeChunks(inputStream);
+        }
+        if (!digest.equals(stored.getDigest())) {
+            chunkStorageService.discardChunks(stored);
+            throw new IOException("Spooled upstream blob changed: expected=" + digest + ", actual=" + stored.getDigest());
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Blob blob = newBlob(digest, stored.getSize(), "", contentType);
+            blob.setChunkCount(stored.getChunks().size());
+            if (insertBlob(blob) == null) {
+                chunkStorageService.addReferences(digest, stored.getChunks());
+                repositoryService.onBlobFilled(digest, stored.getSize());
+            }
+        });
+    }
+
+    /**
+     * 构造尚未写入本地的上游blob
+     */
+    private static Blob upstreamBlob(String digest, long size, String contentType) {
+        Blob blob = new Blob();
+        blob.setDigest(digest);
+        blob.setSize(size);
+        blob.setContentType(contentType);
+        return blob;
+    }
+
+    /**
+     * 并行校验blob在OSS中是否存在，并发度由storageExecutor限制
+     * 校验通过的blob写入缓存，之后不再重复校验
+     * 
+     * @return 存储中缺失的digest列表
+     */
+    private List<String> verifyStorage(Collection<Blob> blobs) {
+        Map<Blob, CompletableFuture<Boolean>> checks = new LinkedHashMap<>();
+        for (Blob blob : blobs) {
+            // 分块由引用数保护，不逐个检查存储
+            checks.put(blob, blob.isChunked() ? CompletableFuture.completedFuture(true)
+                    : CompletableFuture.supplyAsync(
+                            () -> ossStorageService.doesObjectExist(blob.getOssObjectKey()), storageExecutor));
+        }
+
+        List<String> missing = new ArrayList<>();
+        checks.forEach((blob, check) -> {
+            if (check.join()) {
+                blobMetadataCache.put(blob);
+            } else {
+                log.warn("Blob exists in database but not in OSS: {}", blob.getDigest());
+                missing.add(blob.getDigest());
+            }
+        });
+
+        return missing;
+    }
+
     /**
      * 验证digest格式
      */
@@ -0,0 +1,278 @@
+package com.diy.service.impl;
+
+import com.diy.chunking.ChunkedBlobInputStream;
+import com.diy.chunking.GearChunker;
+import com.diy.config.RegistryProperties;
+import com.diy.entity.Blob;
+import com.diy.entity.BlobChunk;
+import com.diy.entity.Chunk;
+import com.diy.mapper.BlobChunkMapper;
+import com.diy.mapper.ChunkMapper;
+import com.diy.metrics.RegistryMetrics;
+import com.diy.service.ChunkStorageService;
+import com.diy.service.OssStorageService;
+import com.diy.service.StorageAccountingService;
+import com.diy.utils.DigestUtils;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 内容定义分块存储服务实现类
+ * 
+ * @author diy
+ */
+@Slf4j
+@Service
+public class ChunkStorageServiceImpl implements ChunkStorageService {
+
+    /**
+     * 单条SQL最多处理的分块数
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private ChunkMapper chunkMapper;
+
+    @Autowired
+    private BlobChunkMapper blobChunkMapper;
+
+    @Autowired
+    private OssStorageService ossStorageService;
+
+    @Autowired
+    private StorageAccountingService storageAccountingService;
+
+    @Autowired
+    private RegistryMetrics registryMetrics;
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    public boolean shouldChunk(long size) {
+        RegistryProperties.Chunking config = registryProperties.getStorage().getChunking();
+        return config.isEnabled() && size >= config.getMinBlobSize();
+    }
+
+    @Override
+    public StoredChunks storeChunks(InputStream inputStream) throws IOException {
+        RegistryProperties.Chunking config = registryProperties.getStorage().getChunking();
+        GearChunker chunker = new GearChunker(config.getMinChunkSize(), config.getAvgChunkSize(),
+                config.getMaxChunkSize());
+        MessageDigest blobDigest = DigestUtils.createSHA256Digest();
+
+        // 缓冲区保存当前分块从起始位置开始的数据，切分后把剩余数据移到开头
+        byte[] buffer = new byte[chunker.getMaxSize()];
+        List<BlobChunk> chunks = new ArrayList<>();
+        List<String> written = new ArrayList<>();
+        int duplicates = 0;
+        long size = 0;
+        int filled = 0;
+        boolean eof = false;
+
+        while (true) {
+            if (!eof && filled < buffer.length) {
+                int read = inputStream.read(buffer, filled, buffer.length - filled);
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    blobDigest.update(buffer, filled, read);
+                    filled += read;
+                }
+            }
+            if (filled == 0) {
+                if (eof) {
+                    break;
+                }
+                continue;
+            }
+
+            int cut = chunker.findBoundary(buffer, filled);
+            if (cut < 0) {
+                if (!eof) {
+                    continue;
+                }
+                // 输入结束，剩余数据作为最后一个分块
+                cut = filled;
+                chunker.reset();
+            }
+
+            String chunkDigest = digestOf(buffer, cut);
+            if (storeChunk(chunkDigest, buffer, cut)) {
+                written.add(chunkDigest);
+            } else {
+                duplicates++;
+            }
+            chunks.add(new BlobChunk(chunks.size(), chunkDigest, size, cut, null));
+            size += cut;
+            filled -= cut;
+            System.arraycopy(buffer, cut, buffer, 0, filled);
+        }
+
+        String digest = DigestUtils.toDigest(blobDigest.digest());
+        log.debug("Stored chunks: digest={}, size={}, chunks={}, deduplicated={}",
+                digest, size, chunks.size(), duplicates);
+        return new StoredChunksImpl(digest, size, chunks, written);
+    }
+
+    @Override
+    public void discardChunks(StoredChunks stored) {
+        Set<String> written = new TreeSet<>(stored.getWrittenChunks());
+        if (written.isEmpty()) {
+            return;
+        }
+
+        List<String> digests = new ArrayList<>(written);
+        for (int from = 0; from < digests.size(); from += BATCH_SIZE) {
+            List<String> batch = digests.subList(from, Math.min(from + BATCH_SIZE, digests.size()));
+            // 与GC相同：锁定仍未被引用的分块，持有行锁时删除记录和对象
+            Integer discarded = transactionTemplate.execute(status -> {
+                List<Chunk> locked = chunkMapper.lockReleased(batch);
+                if (locked.isEmpty()) {
+                    return 0;
+                }
+
+                chunkMapper.deleteByDigests(locked.stream().map(Chunk::getDigest).toList());
+                long bytes = 0;
+                List<String> keys = new ArrayList<>(locked.size());
+                for (Chunk chunk : locked) {
+                    bytes += chunk.getSize();
+                    keys.add(chunk.getOssObjectKey());
+                }
+                storageAccountingService.addChunks(-locked.size(), -bytes);
+                ossStorageService.deleteObjects(keys);
+                return locked.size();
+            });
+            log.info("Discarded chunks of rejected blob: digest={}, chunks={}", stored.getDigest(), discarded);
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addReferences(String blobDigest, List<BlobChunk> chunks) {
+        // 同一blob内重复的分块只计一次引用；按digest顺序加锁，减少并发写入之间的死锁
+        Set<String> distinct = new TreeSet<>();
+        long bytes = 0;
+        for (BlobChunk chunk : chunks) {
+            distinct.add(chunk.getChunkDigest());
+            bytes += chunk.getSize();
+        }
+
+        List<String> digests = new ArrayList<>(distinct);
+        int matched = 0;
+        for (int from = 0; from < digests.size(); from += BATCH_SIZE) {
+            matched += chunkMapper.addRefs(digests.subList(from, Math.min(from + BATCH_SIZE, digests.size())), 1);
+        }
+        if (matched != digests.size()) {
+            throw new IllegalStateException(String.format(
+                    "Chunks removed by garbage collection during upload: blob=%s, expected=%d, found=%d",
+                    blobDigest, digests.size(), matched));
+        }
+
+        for (int from = 0; from < chunks.size(); from += BATCH_SIZE) {
+            blobChunkMapper.insertAll(blobDigest, chunks.subList(from, Math.min(from + BATCH_SIZE, chunks.size())));
+        }
+        storageAccountingService.addChunkedBlobs(1, bytes);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void releaseReferences(Blob blob) {
+        chunkMapper.releaseByBlob(blob.getDigest());
+        blobChunkMapper.deleteByBlob(blob.getDigest());
+        storageAccountingService.addChunkedBlobs(-1, -blob.getSize());
+    }
+
+    @Override
+    public List<BlobChunk> getChunks(String blobDigest) {
+        return blobChunkMapper.findByBlob(blobDigest);
+    }
+
+    @Override
+    public InputStream openStream(Blob blob) throws IOException {
+        List<BlobChunk> chunks = blobChunkMapper.findByBlob(blob.getDigest());
+        if (chunks.size() != blob.getChunkCount()) {
+            throw new IOException(String.format("Chunk list incomplete: digest=%s, expected=%d, found=%d",
+                    blob.getDigest(), blob.getChunkCount(), chunks.size()));
+        }
+        return new ChunkedBlobInputStream(chunks, blob.getSize(), ossStorageService::getObjectInputStream,
+                registryMetrics::recordChunkedRead);
+    }
+
+    /**
+     * 写入一个分块：已存在时跳过，否则写入存储并登记索引（引用数为0）
+     * 
+     * @return 是否新写入
+     */
+    private boolean storeChunk(String digest, byte[] buffer, int length) throws IOException {
+        if (chunkMapper.existsByDigest(digest)) {
+            registryMetrics.recordChunk(true, length);
+            return false;
+        }
+
+        // 先登记再写对象：插入持有新行的锁直到对象写完，GC正在删除同一分块时插入等待其提交，
+        // 不会出现GC在登记之后删除刚写入的对象
+        String key = ossStorageService.generateChunkKey(digest);
+        Chunk chunk = new Chunk(digest, length, key, 0, LocalDateTime.now());
+        Boolean stored;
+        try {
+            stored = transactionTemplate.execute(status -> {
+                // 并发上传可能已登记同一分块，其对象在登记提交前已写入
+                if (chunkMapper.insertIgnore(chunk) == 0) {
+                    return false;
+                }
+                try {
+                    ossStorageService.putObject(key, new ByteArrayInputStream(buffer, 0, length), length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                storageAccountingService.addChunks(1, length);
+                return true;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        boolean duplicate = !Boolean.TRUE.equals(stored);
+        registryMetrics.recordChunk(duplicate, length);
+        return !duplicate;
+    }
+
+    private static String digestOf(byte[] buffer, int length) {
+        MessageDigest digest = DigestUtils.createSHA256Digest();
+        digest.update(buffer, 0, length);
+        return DigestUtils.toDigest(digest.digest());
+    }
+
+    /**
+     * 分块写入结果实现类
+     */
+    @Data
+    @AllArgsConstructor
+    private static class StoredChunksImpl implements StoredChunks {
+        private final String digest;
+        private final long size;
+        private final List<BlobChunk> chunks;
+        private final List<String> writtenChunks;
+    }
+}
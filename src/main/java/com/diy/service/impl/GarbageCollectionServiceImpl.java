@@ -0,0 +1,373 @@
+package com.diy.service.impl;
+
+import com.diy.cache.BlobContentCache;
+import com.diy.cache.BlobMetadataCache;
+import com.diy.config.RegistryProperties;
+import com.diy.dto.ManifestDto;
+import com.diy.entity.Blob;
+import com.diy.entity.Chunk;
+import com.diy.entity.Manifest;
+import com.diy.mapper.BlobMapper;
+import com.diy.mapper.ChunkMapper;
+import com.diy.mapper.ManifestBlobMapper;
+import com.diy.mapper.ManifestMapper;
+import com.diy.service.ChunkStorageService;
+import com.diy.service.GarbageCollectionService;
+import com.diy.service.OssStorageService;
+import com.diy.service.StorageAccountingService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Blob垃圾回收服务实现类
+ * 
+ * 标记：引用关系由manifest_blobs索引表随manifest写入/删除同步维护，
+ * 升级前的历史manifest在每轮开始时回填，回填未完成时不做任何删除
+ * 清理：按digest顺序分页查询宽限期之前创建、且在索引中没有引用的blob，分批删除
+ * 
+ * 并发安全性：
+ * 1. 宽限期（storage.cleanup.retention-days）内创建的blob不会被清理，覆盖"已上传、manifest未推送"的窗口
+ * 2. 每个删除批次在事务中先对候选blob加排他锁，再按索引复查引用，最后删除；
+ *    manifest写入事务对引用的blob持有共享锁直到提交（BlobService.lockBlobs），
+ *    因此并发推送要么先提交并在复查中被看到，要么等待删除完成后读不到blob而推送失败
+ * 3. OSS key由digest决定，同一digest重新上传会写到同一个key，因此OSS对象在持有行锁时、事务提交前删除；
+ *    重新上传的记录插入会等待删除事务提交，插入后才确认或写入对象
+ * 4. 分块存储的blob删除时释放分块引用，引用数为0且早于宽限期创建的分块在blob之后清理；
+ *    删除前对分块加排他锁并复查引用数，与上传时的引用数更新互斥
+ * 
+ * @author diy
+ */
+@Slf4j
+@Service
+public class GarbageCollectionServiceImpl implements GarbageCollectionService {
+
+    @Autowired
+    private ManifestMapper manifestMapper;
+
+    @Autowired
+    private ManifestBlobMapper manifestBlobMapper;
+
+    @Autowired
+    private BlobMapper blobMapper;
+
+    @Autowired
+    private ChunkMapper chunkMapper;
+
+    @Autowired
+    private ChunkStorageService chunkStorageService;
+
+    @Autowired
+    private OssStorageService ossStorageService;
+
+    @Autowired
+    private StorageAccountingService storageAccountingService;
+
+    @Autowired
+    private BlobMetadataCache blobMetadataCache;
+
+    @Autowired
+    private BlobContentCache blobContentCache;
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Override
+    @Scheduled(initialDelayString = "#{@registryProperties.storage.cleanup.intervalHours * 3600000}",
+            fixedDelayString = "#{@registryProperties.storage.cleanup.intervalHours * 3600000}")
+    public void scheduledCollect() {
+        if (!registryProperties.getStorage().getCleanup().isEnabled()) {
+            return;
+        }
+
+        try {
+            collect();
+        } catch (Exception e) {
+            log.error("Blob garbage collection failed", e);
+        }
+    }
+
+    @Override
+    public GcResult collect() {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Blob garbage collection already running, skipped");
+            return null;
+        }
+
+        try {
+            RegistryProperties.Cleanup config = registryProperties.getStorage().getCleanup();
+            long startTime = System.currentTimeMillis();
+            // 宽限期在清理开始前确定，之后上传的blob一定晚于该时间
+            LocalDateTime before = LocalDateTime.now().minusDays(config.getRetentionDays());
+
+            log.info("Blob garbage collection started: retention_days={}, page_size={}",
+                    config.getRetentionDays(), config.getPageSize());
+
+            long indexed = backfillReferences(config.getPageSize());
+            if (manifestMapper.existsUnindexed()) {
+                throw new IllegalStateException("Manifest references are not fully indexed, garbage collection aborted");
+            }
+
+            SweepState sweep = new SweepState();
+            sweep(sweep, before, config);
+            sweepChunks(sweep, before, config);
+
+            GcResultImpl result = new GcResultImpl(indexed, sweep.candidateBlobs,
+                    sweep.deletedBlobs, sweep.deletedChunks, sweep.freedBytes,
+                    System.currentTimeMillis() - startTime);
+
+            log.info("Blob garbage collection finished: manifests_indexed={}, candidate_blobs={}, " +
+                    "deleted_blobs={}, deleted_chunks={}, freed_bytes={}, elapsed={}ms",
+                    result.getManifestsIndexed(), result.getCandidateBlobs(), result.getDeletedBlobs(),
+                    result.getDeletedChunks(), result.getFreedBytes(), result.getElapsedMillis());
+
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 为升级前写入的manifest回填引用索引
+     * 
+     * @return 回填的manifest数
+     */
+    private long backfillReferences(int pageSize) {
+        long indexed = 0;
+        long afterId = 0;
+
+        while (true) {
+            List<Manifest> page = manifestMapper.findUnindexedPage(afterId, pageSize);
+            for (Manifest manifest : page) {
+                Set<String> references = new LinkedHashSet<>(parseReferences(manifest));
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (!references.isEmpty()) {
+                        manifestBlobMapper.insertAll(manifest.getRepository(), manifest.getDigest(), references);
+                    }
+                    manifestMapper.markRefsIndexed(manifest.getId());
+                });
+                afterId = manifest.getId();
+                indexed++;
+            }
+
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+
+        if (indexed > 0) {
+            log.info("Backfilled manifest references: count={}", indexed);
+        }
+        return indexed;
+    }
+
+    /**
+     * 清理阶段：分页获取未被引用的候选blob，分批删除
+     */
+    private void sweep(SweepState sweep, LocalDateTime before, RegistryProperties.Cleanup config) {
+        String last = null;
+
+        while (true) {
+            List<Blob> page = blobMapper.findUnreferencedPage(last, before, config.getPageSize());
+            if (page.isEmpty()) {
+                return;
+            }
+            sweep.candidateBlobs += page.size();
+
+            for (int from = 0; from < page.size(); from += config.getDeleteBatchSize()) {
+                List<Blob> batch = page.subList(from, Math.min(from + config.getDeleteBatchSize(), page.size()));
+                deleteBatch(batch.stream().map(Blob::getDigest).toList(), sweep, before);
+            }
+
+            last = page.get(page.size() - 1).getDigest();
+            if (page.size() < config.getPageSize()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 删除一批候选blob
+     * 事务内：锁定候选 -> 按索引复查引用 -> 删除仍未被引用的记录 -> 删除OSS对象
+     * 
+     * blob的OSS key由digest决定，对象必须在持有行锁时删除：并发上传同一digest时插入记录会等待本事务提交，
+     * 插入后再检查对象是否存在（见BlobServiceImpl.insertBlob），不会在对象已删除时登记成功
+     */
+    private void deleteBatch(List<String> candidates, SweepState sweep, LocalDateTime before) {
+        List<Blob> deleted = transactionTemplate.execute(status -> {
+            List<Blob> locked = blobMapper.lockForDeletion(candidates, before);
+            if (locked.isEmpty()) {
+                return locked;
+            }
+
+            // 持有排他锁后复查，已提交的并发推送在此可见
+            Set<String> referenced = new HashSet<>(manifestBlobMapper.findReferencedDigests(
+                    locked.stream().map(Blob::getDigest).toList()));
+
+            List<Blob> unreferenced = new ArrayList<>();
+            for (Blob blob : locked) {
+                if (!referenced.contains(blob.getDigest())) {
+                    unreferenced.add(blob);
+                }
+            }
+            if (unreferenced.isEmpty()) {
+                return unreferenced;
+            }
+
+            blobMapper.deleteByDigests(unreferenced.stream().map(Blob::getDigest).toList());
+            long bytes = 0;
+            List<String> keys = new ArrayList<>(unreferenced.size());
+            for (Blob blob : unreferenced) {
+                bytes += blob.getSize() != null ? blob.getSize() : 0;
+                if (blob.isChunked()) {
+                    // 分块存储的blob在分块清理时才释放空间
+                    chunkStorageService.releaseReferences(blob);
+                } else {
+                    keys.add(blob.getOssObjectKey());
+                }
+            }
+            storageAccountingService.addBlobs(-unreferenced.size(), -bytes);
+
+            // 删除失败的对象成为无记录的孤儿，只占用空间，不影响读取
+            int failed = keys.isEmpty() ? 0 : ossStorageService.deleteObjects(keys);
+            log.info("Garbage collected blobs: count={}, oss_failures={}", unreferenced.size(), failed);
+            return unreferenced;
+        });
+
+        if (deleted == null || deleted.isEmpty()) {
+            return;
+        }
+
+        for (Blob blob : deleted) {
+            blobMetadataCache.invalidate(blob.getDigest());
+            blobContentCache.invalidate(blob.getDigest());
+            if (!blob.isChunked()) {
+                sweep.freedBytes += blob.getSize() != null ? blob.getSize() : 0;
+            }
+        }
+        sweep.deletedBlobs += deleted.size();
+    }
+
+    /**
+     * 分块清理阶段：分页获取引用数为0的分块，分批删除
+     */
+    private void sweepChunks(SweepState sweep, LocalDateTime before, RegistryProperties.Cleanup config) {
+        String last = null;
+
+        while (true) {
+            List<Chunk> page = chunkMapper.findReleasedPage(last, before, config.getPageSize());
+            if (page.isEmpty()) {
+                return;
+            }
+
+            for (int from = 0; from < page.size(); from += config.getDeleteBatchSize()) {
+                List<Chunk> batch = page.subList(from, Math.min(from + config.getDeleteBatchSize(), page.size()));
+                deleteChunkBatch(batch.stream().map(Chunk::getDigest).toList(), sweep);
+            }
+
+            last = page.get(page.size() - 1).getDigest();
+            if (page.size() < config.getPageSize()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 删除一批候选分块
+     * 事务内：锁定仍未被引用的分块 -> 删除记录 -> 删除OSS对象
+     * 
+     * 分块的OSS key同样由digest决定，对象在持有行锁时删除；并发上传登记同一分块时插入会等待本事务提交，
+     * 插入成功后才写入对象（见ChunkStorageServiceImpl.storeChunk）
+     */
+    private void deleteChunkBatch(List<String> candidates, SweepState sweep) {
+        List<Chunk> deleted = transactionTemplate.execute(status -> {
+            List<Chunk> locked = chunkMapper.lockReleased(candidates);
+            if (locked.isEmpty()) {
+                return locked;
+            }
+
+            chunkMapper.deleteByDigests(locked.stream().map(Chunk::getDigest).toList());
+            long bytes = 0;
+            List<String> keys = new ArrayList<>(locked.size());
+            for (Chunk chunk : locked) {
+                bytes += chunk.getSize();
+                keys.add(chunk.getOssObjectKey());
+            }
+            storageAccountingService.addChunks(-locked.size(), -bytes);
+
+            int failed = ossStorageService.deleteObjects(keys);
+            log.info("Garbage collected chunks: count={}, oss_failures={}", locked.size(), failed);
+            return locked;
+        });
+
+        if (deleted == null || deleted.isEmpty()) {
+            return;
+        }
+
+        for (Chunk chunk : deleted) {
+            sweep.freedBytes += chunk.getSize();
+        }
+        sweep.deletedChunks += deleted.size();
+    }
+
+    /**
+     * 解析manifest引用的blob
+     * 解析失败时中止本轮GC，避免漏标导致误删
+     */
+    private List<String> parseReferences(Manifest manifest) {
+        try {
+            ManifestDto manifestDto = objectMapper.readValue(manifest.getContent(), ManifestDto.class);
+            return ManifestServiceImpl.collectBlobReferences(manifestDto);
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format(
+                    "Failed to parse manifest during garbage collection: repository=%s, digest=%s",
+                    manifest.getRepository(), manifest.getDigest()), e);
+        }
+    }
+
+    /**
+     * 清理阶段状态
+     */
+    private static class SweepState {
+        private long candidateBlobs;
+        private long deletedBlobs;
+        private long deletedChunks;
+        private long freedBytes;
+    }
+
+    /**
+     * 垃圾回收结果实现类
+     */
+    @Data
+    @AllArgsConstructor
+    private static class GcResultImpl implements GcResult {
+        private final long manifestsIndexed;
+        private final long candidateBlobs;
+        private final long deletedBlobs;
+        private final long deletedChunks;
+        private final long freedBytes;
+        private final long elapsedMillis;
+    }
+}
@@ -1,27 +1,46 @@
 package com.diy.service.impl;
 
+import com.diy.cache.ManifestCache;
 import com.diy.config.WebConfig;
 import com.diy.dto.ManifestDto;
 import com.diy.entity.Manifest;
+import com.diy.entity.Repository;
 import com.diy.exception.BlobNotFoundException;
+import com.diy.exception.InvalidTagException;
+import com.diy.exception.ManifestBlobUnknownException;
 import com.diy.exception.ManifestNotFoundException;
+import com.diy.exception.RepositoryNotFoundException;
+import com.diy.exception.UpstreamUnavailableException;
+import com.diy.handler.CompressedBytesTypeHandler;
 import com.diy.mapper.ManifestMapper;
+import com.diy.mapper.TagMapper;
+import com.diy.metrics.RequestTiming;
+import com.diy.proxy.PullThroughCache;
+import com.diy.proxy.UpstreamRegistryClient;
 import com.diy.service.BlobService;
 import com.diy.service.ManifestService;
+import com.diy.service.RepositoryService;
+import com.diy.service.StorageAccountingService;
 import com.diy.utils.DigestUtils;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.diy.utils.TransactionUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 /**
  * Manifest业务服务实现类
@@ -32,15 +51,38 @@ import java.util.stream.Collectors;
 @Service
 public class ManifestServiceImpl implements ManifestService {
 
+    /**
+     * 标签格式，最长128个字符，与tags.tag列宽一致
+     */
+    private static final Pattern TAG_PATTERN = Pattern.compile("[A-Za-z0-9_][A-Za-z0-9_.-]{0,127}");
+
     @Autowired
     private ManifestMapper manifestMapper;
 
+    @Autowired
+    private TagMapper tagMapper;
+
     @Autowired
     private BlobService blobService;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ManifestCache manifestCache;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private StorageAccountingService storageAccountingService;
+
+    @Autowired
+    private PullThroughCache pullThroughCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Override
     public Manifest getManifest(String repository, String reference) {
         validateRepository(repository);
@@ -49,12 +91,15 @@ public class ManifestServiceImpl implements ManifestService {
         Manifest manifest;
 
         if (isDigestReference(reference)) {
-            // 通过digest获取
-            manifest = manifestMapper.findByRepositoryAndDigest(repository, reference);
+            // 通过digest获取，代理模式下本地不存在时从上游拉取
+            manifest = findByDigest(repository, reference);
+            if (manifest == null && pullThroughCache.isEnabled()) {
+                manifest = fetchUpstreamManifest(repository, reference);
+            }
         } else {
-            // 通过tag获取，返回最新的manifest
-            List<Manifest> manifests = manifestMapper.findByRepositoryAndTag(repository, reference);
-            manifest = manifests.isEmpty() ? null : manifests.get(0);
+            // 通过tag获取：先解析tag指向的digest，再按digest读取内容
+            String digest = resolveTag(repository, reference);
+            manifest = digest != null ? findByDigest(repository, digest) : null;
         }
 
         if (manifest == null) {
@@ -64,6 +109,29 @@ public class ManifestServiceImpl implements ManifestService {
         return manifest;
     }
 
+    @Override
+    public String resolveDigest(String repository, String reference) {
+        validateRepository(repository);
+        validateReference(reference);
+
+        if (isDigestReference(reference)) {
+            if (manifestCache.get(repository, reference) != null
+                    || manifestMapper.existsByRepositoryAndDigest(repository, reference)) {
+                return reference;
+            }
+            if (pullThroughCache.isEnabled() && fetchUpstreamManifest(repository, reference) != null) {
+                return reference;
+            }
+            throw new ManifestNotFoundException(repository, reference);
+        }
+
+        String digest = resolveTag(repository, reference);
+        if (digest == null) {
+            throw new ManifestNotFoundException(repository, reference);
+        }
+        return digest;
+    }
+
     @Override
     public boolean existsManifest(String repository, String reference) {
         try {
@@ -76,53 +144,86 @@ public class ManifestServiceImpl implements ManifestService {
 
     @Override
     @Transactional
-    public Manifest putManifest(String repository, String reference, String manifestContent, String mediaType) {
+    public Manifest putManifest(String repository, String reference, byte[] manifestContent, String mediaType) {
         validateRepository(repository);
         validateReference(reference);
+        if (!isDigestReference(reference)) {
+            validateTag(reference);
+        }
         validateManifestContent(manifestContent);
         validateMediaType(mediaType);
 
         // 解析manifest内容
         ManifestDto manifestDto;
+        long parseStart = RequestTiming.start();
         try {
             manifestDto = objectMapper.readValue(manifestContent, ManifestDto.class);
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new IllegalArgumentException("Invalid manifest JSON format", e);
+        } finally {
+            RequestTiming.stop(RequestTiming.Phase.JSON, parseStart);
         }
 
         // 验证依赖的blob是否存在
+        // 代理模式下HEAD请求会命中上游，客户端因此跳过上传的blob在拉取时从上游填充
         ManifestValidationResult validation = validateManifestDependencies(manifestDto);
+        List<String> upstreamBlobs = new ArrayList<>();
         if (!validation.isValid()) {
-            throw new BlobNotFoundException("",
-                    "Missing required blobs: " + String.join(", ", validation.getMissingBlobs()));
+            if (!pullThroughCache.isEnabled() || !existsUpstream(repository, validation.getMissingBlobs())) {
+                throw new BlobNotFoundException("",
+                        "Missing required blobs: " + String.join(", ", validation.getMissingBlobs()));
+            }
+            upstreamBlobs.addAll(validation.getMissingBlobs());
+        }
+
+        // 在事务中锁定依赖的blob直到提交，防止GC在此期间将其删除
+        List<String> blobReferences = collectBlobReferences(manifestDto);
+        List<String> localBlobs = new ArrayList<>(blobReferences);
+        localBlobs.removeAll(upstreamBlobs);
+        if (!localBlobs.isEmpty()) {
+            List<String> swept = blobService.lockBlobs(localBlobs);
+            if (!swept.isEmpty()) {
+                throw new BlobNotFoundException("", "Missing required blobs: " + String.join(", ", swept));
+            }
+        }
+
+        // manifest list / OCI index按原样存储，引用的子manifest必须已存在于仓库中
+        if (manifestDto.getManifests() != null) {
+            List<String> missingManifests = findMissingManifests(repository, manifestDto.getManifests());
+            if (!missingManifests.isEmpty()) {
+                throw new ManifestBlobUnknownException(repository, missingManifests.get(0));
+            }
         }
 
         // 计算manifest的digest
         String manifestDigest = calculateManifestDigest(manifestContent);
 
-        // 检查是否已存在相同的manifest
-        if (manifestMapper.existsByRepositoryAndDigest(repository, manifestDigest)) {
+        // 相同内容在仓库内只存一份，已存在时只需更新tag
+        Manifest manifest = manifestMapper.findByRepositoryAndDigest(repository, manifestDigest);
+        if (manifest != null) {
             log.info("Manifest already exists: repository={}, digest={}", repository, manifestDigest);
-            return manifestMapper.findByRepositoryAndDigest(repository, manifestDigest);
+        } else {
+            manifest = new Manifest();
+            manifest.setRepository(repository);
+            manifest.setDigest(manifestDigest);
+            manifest.setContent(manifestContent);
+            manifest.setGzipContent(CompressedBytesTypeHandler.gzipOrNull(manifestContent));
+            manifest.setMediaType(mediaType);
+            manifest.setCreatedAt(LocalDateTime.now());
+
+            // 并发推送相同内容时不重复计数
+            if (insertManifest(manifest)) {
+                repositoryService.onManifestAdded(repository, manifestDigest, blobReferences);
+            }
         }
 
-        // 创建新的manifest记录
-        Manifest manifest = new Manifest();
-        manifest.setRepository(repository);
-        manifest.setDigest(manifestDigest);
-        manifest.setContent(manifestContent);
-        manifest.setMediaType(mediaType);
-        manifest.setCreatedAt(LocalDateTime.now());
-
-        // 如果reference不是digest，则设置为tag
-        if (!isDigestReference(reference)) {
-            manifest.setTag(reference);
+        // 如果reference不是digest，则创建tag或将tag移动到新的digest
+        String tag = isDigestReference(reference) ? null : reference;
+        if (tag != null) {
+            pointTag(repository, tag, manifestDigest);
         }
 
-        int inserted = manifestMapper.insert(manifest);
-        if (inserted <= 0) {
-            throw new RuntimeException("Failed to insert manifest record");
-        }
+        cacheAfterCommit(manifest, tag);
 
         log.info("Successfully created manifest: repository={}, reference={}, digest={}, media_type={}",
                 repository, reference, manifestDigest, mediaType);
@@ -136,27 +237,32 @@ public class ManifestServiceImpl implements ManifestService {
         validateRepository(repository);
         validateReference(reference);
 
-        try {
-            Manifest manifest = getManifest(repository, reference);
-
-            int deleted;
-            if (isDigestReference(reference)) {
-                deleted = manifestMapper.deleteByDigest(reference);
-            } else {
-                deleted = manifestMapper.deleteByRepositoryAndTag(repository, reference);
+        int deleted;
+        if (isDigestReference(reference)) {
+            // 删除manifest，同时删除指向它的所有tag
+            // 加锁顺序与推送一致：manifest -> 仓库行 -> tag
+            deleted = manifestMapper.deleteByRepositoryAndDigest(repository, reference);
+            if (deleted > 0) {
+                repositoryService.onManifestRemoved(repository, reference);
+                repositoryService.onTagsChanged(repository, -tagMapper.deleteByDigest(repository, reference));
+                evictAfterCommit(repository, reference, null);
             }
-
+        } else {
+            // 删除tag，manifest本身保留，仍可通过digest访问
+            deleted = tagMapper.delete(repository, reference);
             if (deleted > 0) {
-                log.info("Successfully deleted manifest: repository={}, reference={}, digest={}",
-                        repository, reference, manifest.getDigest());
-                return true;
+                repositoryService.onTagsChanged(repository, -deleted);
+                evictAfterCommit(repository, null, reference);
             }
+        }
 
-        } catch (ManifestNotFoundException e) {
-            log.warn("Attempted to delete non-existent manifest: repository={}, reference={}",
-                    repository, reference);
+        if (deleted > 0) {
+            log.info("Successfully deleted manifest: repository={}, reference={}", repository, reference);
+            return true;
         }
 
+        log.warn("Attempted to delete non-existent manifest: repository={}, reference={}",
+                repository, reference);
         return false;
     }
 
@@ -165,7 +271,7 @@ public class ManifestServiceImpl implements ManifestService {
         validateRepository(repository);
 
         try {
-            return manifestMapper.findTagsByRepository(repository);
+            return tagMapper.findByRepository(repository);
         } catch (Exception e) {
             log.error("Failed to get repository tags: repository={}", repository, e);
             return new ArrayList<>();
@@ -173,37 +279,22 @@ public class ManifestServiceImpl implements ManifestService {
     }
 
     @Override
-    public String buildManifestList(String repository, String tag) {
+    public List<String> listTags(String repository, String last, int limit) {
         validateRepository(repository);
 
-        if (tag == null || tag.trim().isEmpty()) {
-            throw new IllegalArgumentException("Tag cannot be empty");
+        if (limit <= 0) {
+            return new ArrayList<>();
         }
 
-        // 获取该tag下的所有manifest
-        List<Manifest> manifests = manifestMapper.findByRepositoryAndTag(repository, tag);
+        String cursor = (last == null || last.isEmpty()) ? null : last;
+        List<String> tags = tagMapper.findPage(repository, cursor, limit);
 
-        if (manifests.isEmpty()) {
-            throw new ManifestNotFoundException(repository, tag);
+        // 第一页为空时区分"仓库不存在"和"仓库没有tag"
+        if (tags.isEmpty() && cursor == null && !manifestMapper.existsByRepository(repository)) {
+            throw new RepositoryNotFoundException(repository);
         }
 
-        // 构建manifest list
-        try {
-            ManifestListDto manifestList = new ManifestListDto();
-            manifestList.setSchemaVersion(2);
-            manifestList.setMediaType(WebConfig.MANIFEST_LIST_V2_MEDIA_TYPE);
-
-            List<ManifestListDto.ManifestReferenceDto> manifestRefs = manifests.stream()
-                    .map(this::convertToManifestReference)
-                    .collect(Collectors.toList());
-
-            manifestList.setManifests(manifestRefs);
-
-            return objectMapper.writeValueAsString(manifestList);
-
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to build manifest list JSON", e);
-        }
+        return tags;
     }
 
     @Override
@@ -211,24 +302,11 @@ public class ManifestServiceImpl implements ManifestService {
         List<String> missingBlobs = new ArrayList<>();
 
         try {
-            // 检查config blob（如果存在且不是内联数据）
-            if (manifestDto.getConfig() != null &&
-                    manifestDto.getConfig().getDigest() != null &&
-                    manifestDto.getConfig().getData() == null) {
+            // 收集所有依赖的blob，一次批量检查
+            List<String> referencedDigests = collectBlobReferences(manifestDto);
 
-                if (!blobService.existsByDigest(manifestDto.getConfig().getDigest())) {
-                    missingBlobs.add(manifestDto.getConfig().getDigest());
-                }
-            }
-
-            // 检查所有层的blob
-            if (manifestDto.getLayers() != null) {
-                for (ManifestDto.LayerDto layer : manifestDto.getLayers()) {
-                    if (layer.getDigest() != null &&
-                            !blobService.existsByDigest(layer.getDigest())) {
-                        missingBlobs.add(layer.getDigest());
-                    }
-                }
+            if (!referencedDigests.isEmpty()) {
+                missingBlobs.addAll(blobService.findMissingDigests(referencedDigests));
             }
 
             boolean isValid = missingBlobs.isEmpty();
@@ -243,12 +321,17 @@ public class ManifestServiceImpl implements ManifestService {
     }
 
     @Override
-    public String calculateManifestDigest(String manifestContent) {
-        if (manifestContent == null || manifestContent.trim().isEmpty()) {
+    public String calculateManifestDigest(byte[] manifestContent) {
+        if (manifestContent == null || manifestContent.length == 0) {
             throw new IllegalArgumentException("Manifest content cannot be empty");
         }
 
-        return DigestUtils.calculateSHA256(manifestContent);
+        long start = RequestTiming.start();
+        try {
+            return DigestUtils.calculateSHA256(manifestContent);
+        } finally {
+            RequestTiming.stop(RequestTiming.Phase.DIGEST, start);
+        }
     }
 
     @Override
@@ -259,11 +342,16 @@ public class ManifestServiceImpl implements ManifestService {
     @Override
     public ManifestStats getManifestStats(String repository) {
         try {
-            // 可以根据需要实现更详细的统计
-            // 这里提供基础实现
-            long totalCount = repository != null ? manifestMapper.findByRepository(repository).size() : 0; // 需要添加全局统计的mapper方法
+            // 计数随写入增量维护，读取时不扫描manifests和tags表
+            if (repository != null) {
+                Repository repo = repositoryService.getRepository(repository);
+                return repo != null
+                        ? new ManifestStatsImpl(repo.getManifestCount(), 1L, repo.getTagCount())
+                        : new ManifestStatsImpl(0L, 0L, 0L);
+            }
 
-            return new ManifestStatsImpl(totalCount, 0L, 0L);
+            StorageAccountingService.StorageStats stats = storageAccountingService.getStorageStats();
+            return new ManifestStatsImpl(stats.getManifestCount(), stats.getRepositoryCount(), stats.getTagCount());
 
         } catch (Exception e) {
             log.error("Failed to get manifest stats", e);
@@ -271,6 +359,277 @@ public class ManifestServiceImpl implements ManifestService {
         }
     }
 
+    /**
+     * 按digest查找manifest，优先读缓存
+     */
+    private Manifest findByDigest(String repository, String digest) {
+        Manifest manifest = manifestCache.get(repository, digest);
+        if (manifest != null) {
+            return manifest;
+        }
+
+        manifest = manifestMapper.findByRepositoryAndDigest(repository, digest);
+        if (manifest != null) {
+            manifestCache.put(manifest);
+        }
+        return manifest;
+    }
+
+    /**
+     * 收集manifest引用的blob：config（非内联时）和所有层
+     */
+    static List<String> collectBlobReferences(ManifestDto manifestDto) {
+        List<String> digests = new ArrayList<>();
+
+        // config blob（如果存在且不是内联数据）
+        if (manifestDto.getConfig() != null &&
+                manifestDto.getConfig().getDigest() != null &&
+                manifestDto.getConfig().getData() == null) {
+            digests.add(manifestDto.getConfig().getDigest());
+        }
+
+        // 所有层的blob
+        if (manifestDto.getLayers() != null) {
+            for (ManifestDto.LayerDto layer : manifestDto.getLayers()) {
+                if (layer.getDigest() != null) {
+                    digests.add(layer.getDigest());
+                }
+            }
+        }
+        return digests;
+    }
+
+    /**
+     * 找出manifest list中引用但仓库里不存在的子manifest（一次批量查询）
+     */
+    private List<String> findMissingManifests(String repository, List<ManifestDto.ManifestReferenceDto> references) {
+        Set<String> digests = new LinkedHashSet<>();
+        for (ManifestDto.ManifestReferenceDto reference : references) {
+            if (reference.getDigest() == null || !isDigestReference(reference.getDigest())) {
+                throw new IllegalArgumentException("Invalid manifest reference digest: " + reference.getDigest());
+            }
+            digests.add(reference.getDigest());
+        }
+
+        if (digests.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<String> existing = new HashSet<>(manifestMapper.findExistingDigests(repository, digests));
+        List<String> missing = new ArrayList<>();
+        for (String digest : digests) {
+            if (!existing.contains(digest)) {
+                missing.add(digest);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * 创建tag或将tag移动到新的digest
+     */
+    private void pointTag(String repository, String tag, String digest) {
+        try {
+            tagMapper.insert(repository, tag, digest);
+            repositoryService.onTagsChanged(repository, 1);
+        } catch (DuplicateKeyException e) {
+            tagMapper.updateDigest(repository, tag, digest);
+        }
+    }
+
+    /**
+     * 插入manifest记录，(repository, digest)已存在时视为已写入
+     * 只处理重复键，超长等其他错误照常抛出
+     * 
+     * @return 是否为新写入的记录
+     */
+    private boolean insertManifest(Manifest manifest) {
+        try {
+            return manifestMapper.insert(manifest) > 0;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 事务提交后写入内容缓存并更新tag索引
+     */
+    private void cacheAfterCommit(Manifest manifest, String tag) {
+        TransactionUtils.afterCommit(() -> {
+            manifestCache.put(manifest);
+            if (tag != null) {
+                manifestCache.putTag(manifest.getRepository(), tag, manifest.getDigest());
+            }
+        });
+    }
+
+    /**
+     * 解析tag指向的digest
+     * 代理模式下本地没有该tag或已过新鲜期时向上游确认
+     */
+    private String resolveTag(String repository, String tag) {
+        String digest = resolveLocalTag(repository, tag);
+        if (!pullThroughCache.isEnabled() || (digest != null && pullThroughCache.isTagFresh(repository, tag))) {
+            return digest;
+        }
+        return refreshUpstreamTag(repository, tag, digest);
+    }
+
+    /**
+     * 向上游确认tag的指向，tag已移动时拉取并写入新的manifest
+     * 同一tag的并发请求只访问一次上游；上游不可用时继续使用本地记录
+     * 
+     * @param localDigest 本地记录的digest，没有时为null
+     * @return tag指向的digest，本地和上游都不存在时返回null
+     */
+    private String refreshUpstreamTag(String repository, String tag, String localDigest) {
+        try {
+            return pullThroughCache.singleFlight("tag:" + repository + ":" + tag, () -> {
+                UpstreamRegistryClient upstream = pullThroughCache.getUpstream();
+
+                // 已有本地记录时先用HEAD确认，未移动时不下载manifest
+                if (localDigest != null) {
+                    String upstreamDigest = upstream.headManifest(repository, tag);
+                    if (upstreamDigest == null || upstreamDigest.equals(localDigest)) {
+                        // 上游没有该tag时保留本地推送的tag
+                        pullThroughCache.markTagFresh(repository, tag);
+                        return localDigest;
+                    }
+                }
+
+                UpstreamRegistryClient.UpstreamManifest manifest = upstream.getManifest(repository, tag);
+                if (manifest == null) {
+                    return localDigest;
+                }
+                storeUpstreamManifest(repository, tag, manifest);
+                pullThroughCache.markTagFresh(repository, tag);
+                return manifest.getDigest();
+            });
+        } catch (IOException e) {
+            if (localDigest != null) {
+                log.warn("Upstream unavailable, serving cached tag: repository={}, tag={}, digest={}, error={}",
+                        repository, tag, localDigest, e.getMessage());
+                return localDigest;
+            }
+            throw new UpstreamUnavailableException(repository, tag, e);
+        }
+    }
+
+    /**
+     * 检查本地缺失的blob是否都存在于上游
+     * 
+     * @param digests 本地缺失的blob，为空时返回false
+     */
+    private boolean existsUpstream(String repository, List<String> digests) {
+        if (digests.isEmpty()) {
+            return false;
+        }
+        try {
+            for (String digest : digests) {
+                if (pullThroughCache.getUpstream().headBlob(repository, digest) == null) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UpstreamUnavailableException(repository, digests.get(0), e);
+        }
+    }
+
+    /**
+     * 从上游拉取指定digest的manifest并写入本地
+     * 
+     * @return Manifest实体，上游不存在时返回null
+     */
+    private Manifest fetchUpstreamManifest(String repository, String digest) {
+        try {
+            return pullThroughCache.singleFlight("manifest:" + repository + "@" + digest, () -> {
+                UpstreamRegistryClient.UpstreamManifest manifest =
+                        pullThroughCache.getUpstream().getManifest(repository, digest);
+                return manifest != null ? storeUpstreamManifest(repository, null, manifest) : null;
+            });
+        } catch (IOException e) {
+            throw new UpstreamUnavailableException(repository, digest, e);
+        }
+    }
+
+    /**
+     * 写入从上游拉取的manifest，tag不为空时将tag指向它
+     * 不要求引用的blob和子manifest已存在，它们在客户端拉取时才从上游下载
+     */
+    private Manifest storeUpstreamManifest(String repository, String tag,
+            UpstreamRegistryClient.UpstreamManifest upstream) throws IOException {
+        ManifestDto manifestDto;
+        long parseStart = RequestTiming.start();
+        try {
+            manifestDto = objectMapper.readValue(upstream.getContent(), ManifestDto.class);
+        } finally {
+            RequestTiming.stop(RequestTiming.Phase.JSON, parseStart);
+        }
+        List<String> blobReferences = collectBlobReferences(manifestDto);
+
+        Manifest stored = transactionTemplate.execute(status -> {
+            Manifest manifest = manifestMapper.findByRepositoryAndDigest(repository, upstream.getDigest());
+            if (manifest == null) {
+                manifest = new Manifest();
+                manifest.setRepository(repository);
+                manifest.setDigest(upstream.getDigest());
+                manifest.setContent(upstream.getContent());
+                manifest.setGzipContent(CompressedBytesTypeHandler.gzipOrNull(upstream.getContent()));
+                manifest.setMediaType(upstream.getMediaType());
+                manifest.setCreatedAt(LocalDateTime.now());
+
+                if (insertManifest(manifest)) {
+                    repositoryService.onManifestAdded(repository, upstream.getDigest(), blobReferences);
+                }
+            }
+
+            if (tag != null) {
+                pointTag(repository, tag, upstream.getDigest());
+            }
+            cacheAfterCommit(manifest, tag);
+            return manifest;
+        });
+
+        log.info("Stored manifest from upstream: repository={}, tag={}, digest={}, media_type={}",
+                repository, tag, upstream.getDigest(), upstream.getMediaType());
+        return stored;
+    }
+
+    /**
+     * 从本地解析tag指向的digest，优先读tag索引
+     */
+    private String resolveLocalTag(String repository, String tag) {
+        String digest = manifestCache.resolveTag(repository, tag);
+        if (digest != null) {
+            return digest;
+        }
+
+        digest = tagMapper.findDigest(repository, tag);
+        if (digest != null) {
+            manifestCache.putTag(repository, tag, digest);
+        }
+        return digest;
+    }
+
+    /**
+     * 删除manifest或tag后使相关缓存失效
+     * 提交前立即失效一次，提交后再失效一次，防止并发读取把旧数据放回缓存
+     */
+    private void evictAfterCommit(String repository, String digest, String tag) {
+        Runnable evict = () -> {
+            if (digest != null) {
+                manifestCache.invalidate(repository, digest);
+                manifestCache.invalidateTagsPointingTo(repository, digest);
+            }
+            if (tag != null) {
+                manifestCache.invalidateTag(repository, tag);
+            }
+        };
+        evict.run();
+        TransactionUtils.afterCommit(evict);
+    }
+
     /**
      * 验证仓库名
      */
@@ -289,11 +648,20 @@ public class ManifestServiceImpl implements ManifestService {
         }
     }
 
+    /**
+     * 验证标签格式（distribution规范：[A-Za-z0-9_][A-Za-z0-9_.-]{0,127}）
+     */
+    private void validateTag(String tag) {
+        if (!TAG_PATTERN.matcher(tag).matches()) {
+            throw new InvalidTagException(tag);
+        }
+    }
+
     /**
      * 验证manifest内容
      */
-    private void validateManifestContent(String manifestContent) {
-        if (manifestContent == null || manifestContent.trim().isEmpty()) {
+    private void validateManifestContent(byte[] manifestContent) {
+        if (manifestContent == null || manifestContent.length == 0) {
             throw new IllegalArgumentException("Manifest content cannot be empty");
         }
     }
@@ -317,24 +685,6 @@ public class ManifestServiceImpl implements ManifestService {
         }
     }
 
-    /**
-     * 转换Manifest为ManifestReference
-     */
-    private ManifestListDto.ManifestReferenceDto convertToManifestReference(Manifest manifest) {
-        ManifestListDto.ManifestReferenceDto ref = new ManifestListDto.ManifestReferenceDto();
-        ref.setDigest(manifest.getDigest());
-        ref.setMediaType(manifest.getMediaType());
-        ref.setSize((long) manifest.getContent().length()); // 简化的大小计算
-
-        // 可以根据需要添加platform信息
-        ManifestListDto.PlatformDto platform = new ManifestListDto.PlatformDto();
-        platform.setArchitecture("amd64"); // 默认值
-        platform.setOs("linux"); // 默认值
-        ref.setPlatform(platform);
-
-        return ref;
-    }
-
     /**
      * Manifest验证结果实现类
      */
@@ -356,28 +706,4 @@ public class ManifestServiceImpl implements ManifestService {
         private final long repositoryCount;
         private final long tagCount;
     }
-
-    /**
-     * Manifest List DTO（内部使用）
-     */
-    @Data
-    private static class ManifestListDto {
-        private Integer schemaVersion;
-        private String mediaType;
-        private List<ManifestReferenceDto> manifests;
-
-        @Data
-        public static class ManifestReferenceDto {
-            private String digest;
-            private String mediaType;
-            private Long size;
-            private PlatformDto platform;
-        }
-
-        @Data
-        public static class PlatformDto {
-            private String architecture;
-            private String os;
-        }
-    }
 }
@@ -0,0 +1,191 @@
+package com.diy.service.impl;
+
+import com.diy.config.RegistryProperties;
+import com.diy.entity.Repository;
+import com.diy.exception.QuotaExceededException;
+import com.diy.mapper.BlobMapper;
+import com.diy.mapper.ManifestBlobMapper;
+import com.diy.mapper.RepositoryMapper;
+import com.diy.service.RepositoryService;
+import com.diy.service.StorageAccountingService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 仓库索引服务实现类
+ * 
+ * 仓库行上的计数与manifest、tag、引用记录在同一事务中增量维护。
+ * 加锁顺序固定为：仓库行 -> 引用记录 -> 全局计数分片，避免并发推送与删除间的死锁
+ * 
+ * @author diy
+ */
+@Slf4j
+@Service
+public class RepositoryServiceImpl implements RepositoryService {
+
+    @Autowired
+    private RepositoryMapper repositoryMapper;
+
+    @Autowired
+    private ManifestBlobMapper manifestBlobMapper;
+
+    @Autowired
+    private BlobMapper blobMapper;
+
+    @Autowired
+    private StorageAccountingService storageAccountingService;
+
+    @Autowired
+    private RegistryProperties registryProperties;
+
+    @Override
+    public List<String> listRepositories(String last, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        String cursor = (last == null || last.isEmpty()) ? null : last;
+        return repositoryMapper.findPage(cursor, limit);
+    }
+
+    @Override
+    public Repository getRepository(String name) {
+        return repositoryMapper.findByName(name);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onManifestAdded(String repository, String manifestDigest, Collection<String> blobDigests) {
+        // 先锁仓库行，同一仓库的并发推送在此串行，下面的不重复blob计算不会重复计入
+        if (repositoryMapper.increment(repository, 1) == 1) {
+            storageAccountingService.addRepositories(1);
+            log.info("Repository added to catalog: {}", repository);
+        }
+        storageAccountingService.addManifests(1);
+
+        if (blobDigests.isEmpty()) {
+            return;
+        }
+
+        // 写入引用记录之前计算仓库中新增的blob
+        Set<String> referencedBlobs = new LinkedHashSet<>(blobDigests);
+        Set<String> newBlobs = new LinkedHashSet<>(referencedBlobs);
+        newBlobs.removeAll(manifestBlobMapper.lockReferencedInRepository(repository, referencedBlobs));
+        if (!newBlobs.isEmpty()) {
+            long newBytes = blobMapper.sumSizes(newBlobs);
+            // 上传blob时只检查单个blob，引用多个blob的manifest在此按总量检查，仓库行已加锁
+            enforceQuota(repository, newBytes);
+            repositoryMapper.addBlobs(repository, newBlobs.size(), newBytes);
+        }
+
+        manifestBlobMapper.insertAll(repository, manifestDigest, referencedBlobs);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onManifestRemoved(String repository, String manifestDigest) {
+        repositoryMapper.decrement(repository, 1);
+        storageAccountingService.addManifests(-1);
+
+        // 删除引用记录之后计算仓库中不再被引用的blob
+        List<String> blobDigests = manifestBlobMapper.findBlobsByManifest(repository, manifestDigest);
+        if (!blobDigests.isEmpty()) {
+            manifestBlobMapper.deleteByManifest(repository, manifestDigest);
+            Set<String> releasedBlobs = new LinkedHashSet<>(blobDigests);
+            releasedBlobs.removeAll(manifestBlobMapper.lockReferencedInRepository(repository, releasedBlobs));
+            if (!releasedBlobs.isEmpty()) {
+                repositoryMapper.addBlobs(repository, -releasedBlobs.size(), -blobMapper.sumSizes(releasedBlobs));
+            }
+        }
+
+        if (repositoryMapper.deleteIfEmpty(repository) > 0) {
+            storageAccountingService.addRepositories(-1);
+            log.info("Repository removed from catalog: {}", repository);
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onBlobFilled(String blobDigest, long size) {
+        // 与推送一致先锁仓库行：已锁定仓库中进行中的推送要么已提交（下面的加锁读取可见其引用），
+        // 要么尚未计算新增blob；本事务的blob行未提交，推送计算时按0字节计入，大小由此处补计
+        Set<String> locked = new HashSet<>();
+        List<String> repositories = manifestBlobMapper.findRepositoriesByBlob(blobDigest);
+        while (true) {
+            for (String repository : repositories) {
+                if (locked.add(repository)) {
+                    repositoryMapper.lockByName(repository);
+                }
+            }
+            // 加锁读取期间可能有其他仓库的推送刚提交引用，锁定后重新读取
+            repositories = manifestBlobMapper.lockRepositoriesByBlob(blobDigest);
+            if (locked.containsAll(repositories)) {
+                break;
+            }
+        }
+
+        for (String repository : repositories) {
+            repositoryMapper.addBlobs(repository, 0, size);
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onTagsChanged(String repository, long delta) {
+        if (delta == 0) {
+            return;
+        }
+
+        repositoryMapper.addTags(repository, delta);
+        storageAccountingService.addTags(delta);
+    }
+
+    /**
+     * manifest新增的blob超出仓库配额时拒绝写入（需已锁定仓库行）
+     */
+    private void enforceQuota(String repository, long newBytes) {
+        long limit = registryProperties.getQuota().getLimit(repository);
+        if (limit <= 0 || newBytes <= 0) {
+            return;
+        }
+
+        Repository repo = repositoryMapper.findByName(repository);
+        long used = repo != null ? repo.getBlobBytes() : 0;
+        if (used + newBytes > limit) {
+            log.warn("Quota exceeded by manifest: repository={}, used={}, requested={}, limit={}",
+                    repository, used, newBytes, limit);
+            throw new QuotaExceededException(repository, used, newBytes, limit);
+        }
+    }
+
+    @Override
+    public void checkQuota(String repository, String blobDigest, long size) {
+        long limit = registryProperties.getQuota().getLimit(repository);
+        if (limit <= 0) {
+            return;
+        }
+
+        // 仓库已引用的blob（例如重复推送的层）不占用新的配额
+        if (manifestBlobMapper.existsByRepositoryAndBlob(repository, blobDigest)) {
+            return;
+        }
+
+        Repository repo = repositoryMapper.findByName(repository);
+        long used = repo != null ? repo.getBlobBytes() : 0;
+        if (used + size > limit) {
+            log.warn("Quota exceeded: repository={}, used={}, requested={}, limit={}",
+                    repository, used, size, limit);
+            throw new QuotaExceededException(repository, used, size, limit);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.diy.service.impl;
+
+import com.diy.mapper.StorageCounterMapper;
+import com.diy.service.StorageAccountingService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 全局存储计数服务实现类
+ * 
+ * @author diy
+ */
+@Slf4j
+@Service
+public class StorageAccountingServiceImpl implements StorageAccountingService {
+
+    private static final String BLOBS = "blobs";
+    private static final String BLOB_BYTES = "blob_bytes";
+    private static final String MANIFESTS = "manifests";
+    private static final String TAGS = "tags";
+    private static final String REPOSITORIES = "repositories";
+    private static final String CHUNKS = "chunks";
+    private static final String CHUNK_BYTES = "chunk_bytes";
+    private static final String CHUNKED_BLOBS = "chunked_blobs";
+    private static final String CHUNKED_BYTES = "chunked_bytes";
+
+    /**
+     * 每个计数器的分片数，并发写入分散到不同的行
+     */
+    private static final int SHARDS = 16;
+
+    @Autowired
+    private StorageCounterMapper storageCounterMapper;
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addBlobs(long count, long bytes) {
+        int shard = randomShard();
+        add(BLOBS, shard, count);
+        add(BLOB_BYTES, shard, bytes);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addManifests(long count) {
+        add(MANIFESTS, randomShard(), count);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addTags(long count) {
+        add(TAGS, randomShard(), count);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addRepositories(long count) {
+        add(REPOSITORIES, randomShard(), count);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addChunks(long count, long bytes) {
+        int shard = randomShard();
+        add(CHUNKS, shard, count);
+        add(CHUNK_BYTES, shard, bytes);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addChunkedBlobs(long count, long bytes) {
+        int shard = randomShard();
+        add(CHUNKED_BLOBS, shard, count);
+        add(CHUNKED_BYTES, shard, bytes);
+    }
+
+    @Override
+    public StorageStats getStorageStats() {
+        return new StorageStatsImpl(
+                storageCounterMapper.sum(BLOBS),
+                storageCounterMapper.sum(BLOB_BYTES),
+                storageCounterMapper.sum(MANIFESTS),
+                storageCounterMapper.sum(TAGS),
+                storageCounterMapper.sum(REPOSITORIES),
+                storageCounterMapper.sum(CHUNKS),
+                storageCounterMapper.sum(CHUNK_BYTES),
+                storageCounterMapper.sum(CHUNKED_BLOBS),
+                storageCounterMapper.sum(CHUNKED_BYTES));
+    }
+
+    private void add(String name, int shard, long delta) {
+        if (delta != 0) {
+            storageCounterMapper.add(name, shard, delta);
+        }
+    }
+
+    private static int randomShard() {
+        return ThreadLocalRandom.current().nextInt(SHARDS);
+    }
+
+    /**
+     * 全局存储统计实现类
+     */
+    @Data
+    @AllArgsConstructor
+    private static class StorageStatsImpl implements StorageStats {
+        private final long blobCount;
+        private final long blobBytes;
+        private final long manifestCount;
+        private final long tagCount;
+        private final long repositoryCount;
+        private final long chunkCount;
+        private final long chunkBytes;
+        private final long chunkedBlobCount;
+        private final long chunkedBlobBytes;
+    }
+}
@@ -7,8 +7,12 @@ import com.diy.entity.UploadSession;
 import com.diy.exception.InvalidDigestException;
 import com.diy.exception.UploadSessionNotFoundException;
 import com.diy.mapper.UploadSessionMapper;
+import com.diy.metrics.RegistryMetrics;
+import com.diy.metrics.RequestTiming;
 import com.diy.service.BlobService;
+import com.diy.service.ChunkStorageService;
 import com.diy.service.OssStorageService;
+import com.diy.service.RepositoryService;
 import com.diy.service.UploadService;
 import com.diy.utils.DigestUtils;
 import com.diy.utils.RangeUtils;
@@ -19,6 +23,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -45,9 +50,21 @@ public class UploadServiceImpl implements UploadService {
     @Autowired
     private BlobService blobService;
 
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private RegistryMetrics registryMetrics;
+
     @Autowired
     private RegistryProperties registryProperties;
 
+    @Autowired
+    private ChunkStorageService chunkStorageService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Override
     @Transactional
     public UploadSession startUploadSession(String repository) {
@@ -134,6 +151,7 @@ public class UploadServiceImpl implements UploadService {
             // 获取实际写入的字节数
             long actualNewSize = appendResult.getNextPosition();
             long actualBytesWritten = actualNewSize - position;
+            registryMetrics.recordBytesReceived("blob", session.getRepository(), actualBytesWritten);
 
             // 验证写入的字节数是否符合预期
             if (actualBytesWritten != expectedBytes) {
@@ -158,7 +176,6 @@ public class UploadServiceImpl implements UploadService {
     }
 
     @Override
-    @Transactional
     public Blob completeUpload(String uuid, String expectedDigest) throws IOException {
         UploadSession session = getUploadSession(uuid);
 
@@ -166,38 +183,20 @@ public class UploadServiceImpl implements UploadService {
             throw new InvalidDigestException(expectedDigest);
         }
 
-        try {
-            // 验证上传文件的完整性
-            String actualDigest = calculateTempFileDigest(session.getOssTempKey());
-            if (!expectedDigest.equals(actualDigest)) {
-                throw new InvalidDigestException(expectedDigest,
-                        "Digest mismatch: expected=" + expectedDigest + ", actual=" + actualDigest);
-            }
+        // 先检查仓库配额，超限时无需再计算digest；digest不符时后续校验仍会失败
+        repositoryService.checkQuota(session.getRepository(), expectedDigest, session.getCurrentSize());
 
-            // 生成最终的blob存储key
-            String finalBlobKey = ossStorageService.generateBlobKey(expectedDigest);
-
-            // 移动临时文件到最终位置
-            ossStorageService.copyObject(session.getOssTempKey(), finalBlobKey);
-
-            // 创建blob记录
-            Blob blob = blobService.createBlob(
-                    expectedDigest,
-                    session.getCurrentSize(),
-                    finalBlobKey,
-                    "application/octet-stream");
+        // 读取临时文件和写入存储不在事务中进行，只有最后写入记录时占用数据库连接
+        try {
+            Blob blob = chunkStorageService.shouldChunk(session.getCurrentSize())
+                    ? completeChunked(session, expectedDigest)
+                    : completeWhole(session, expectedDigest);
 
             // 清理临时文件
             ossStorageService.deleteObject(session.getOssTempKey());
 
-            // 标记会话为完成
-            uploadSessionMapper.updateStatus(uuid, "COMPLETED", LocalDateTime.now());
-
-            // 删除完成的会话记录
-            uploadSessionMapper.deleteByUuid(uuid);
-
-            log.info("Successfully completed upload: uuid={}, digest={}, size={}",
-                    uuid, expectedDigest, session.getCurrentSize());
+            log.info("Successfully completed upload: uuid={}, digest={}, size={}, chunks={}",
+                    uuid, expectedDigest, session.getCurrentSize(), blob.getChunkCount());
 
             return blob;
 
@@ -318,12 +317,84 @@ public class UploadServiceImpl implements UploadService {
         return session.getLastActivity().isBefore(expireTime);
     }
 
+    /**
+     * 整体存储：校验digest后把临时文件复制到blob的最终位置
+     */
+    private Blob completeWhole(UploadSession session, String expectedDigest) throws IOException {
+        // 验证上传文件的完整性
+        String actualDigest = calculateTempFileDigest(session.getOssTempKey());
+        verifyDigest(expectedDigest, actualDigest);
+
+        // 生成最终的blob存储key
+        String finalBlobKey = ossStorageService.generateBlobKey(expectedDigest);
+
+        // 移动临时文件到最终位置
+        ossStorageService.copyObject(session.getOssTempKey(), finalBlobKey);
+
+        return transactionTemplate.execute(status -> {
+            // 创建blob记录
+            Blob blob = blobService.createBlob(
+                    expectedDigest,
+                    session.getCurrentSize(),
+                    finalBlobKey,
+                    "application/octet-stream");
+            finishSession(session.getUuid());
+            return blob;
+        });
+    }
+
+    /**
+     * 分块存储：读取一遍临时文件，同时计算digest和写入新分块，校验通过后登记分块列表
+     */
+    private Blob completeChunked(UploadSession session, String expectedDigest) throws IOException {
+        ChunkStorageService.StoredChunks stored;
+        long start = RequestTiming.start();
+        try (InputStream inputStream = ossStorageService.getObjectInputStream(session.getOssTempKey())) {
+            stored = chunkStorageService.storeChunks(inputStream);
+        } finally {
+            // 包含从OSS读取临时文件和写入新分块的时间
+            RequestTiming.stop(RequestTiming.Phase.DIGEST, start);
+        }
+        try {
+            verifyDigest(expectedDigest, stored.getDigest());
+        } catch (InvalidDigestException e) {
+            // 客户端可任意构造不符的digest，新分块不留到GC宽限期之后
+            chunkStorageService.discardChunks(stored);
+            throw e;
+        }
+
+        return transactionTemplate.execute(status -> {
+            Blob blob = blobService.createChunkedBlob(stored, "application/octet-stream");
+            finishSession(session.getUuid());
+            return blob;
+        });
+    }
+
+    private static void verifyDigest(String expectedDigest, String actualDigest) {
+        if (!expectedDigest.equals(actualDigest)) {
+            throw new InvalidDigestException(expectedDigest,
+                    "Digest mismatch: expected=" + expectedDigest + ", actual=" + actualDigest);
+        }
+    }
+
+    /**
+     * 标记会话完成并删除会话记录
+     */
+    private void finishSession(String uuid) {
+        uploadSessionMapper.updateStatus(uuid, "COMPLETED", LocalDateTime.now());
+        uploadSessionMapper.deleteByUuid(uuid);
+    }
+
     /**
      * 计算临时文件的SHA256值
      */
     private String calculateTempFileDigest(String tempKey) throws IOException {
+        long start = RequestTiming.start();
         try (InputStream inputStream = ossStorageService.getObjectInputStream(tempKey)) {
             return DigestUtils.calculateSHA256(inputStream);
+        } finally {
+            // 包含从OSS读取临时文件的时间
+            RequestTiming.stop(RequestTiming.Phase.DIGEST, start);
         }
     }
 
@@ -0,0 +1,63 @@
+package com.diy.utils;
+
+import java.util.Locale;
+
+/**
+ * HTTP内容编码（Accept-Encoding）协商工具
+ * 
+ * @author diy
+ */
+public class ContentEncodingUtils {
+
+    public static final String GZIP = "gzip";
+
+    /**
+     * 判断客户端是否接受gzip编码
+     * 按RFC 9110解析q值：gzip（或x-gzip）q>0时接受；未列出gzip时按*的q值判断
+     * 
+     * @param acceptEncoding Accept-Encoding头值
+     * @return 是否接受gzip
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return false;
+        }
+
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = quality(parts);
+
+            if (GZIP.equals(coding) || "x-gzip".equals(coding)) {
+                gzipQuality = quality;
+            } else if ("*".equals(coding)) {
+                wildcardQuality = quality;
+            }
+        }
+
+        if (gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+        return wildcardQuality != null && wildcardQuality > 0;
+    }
+
+    /**
+     * 解析q参数，缺省或格式错误时为1
+     */
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.length() > 2 && (parameter.charAt(0) == 'q' || parameter.charAt(0) == 'Q')
+                    && parameter.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 1;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -1,16 +1,16 @@
 package com.diy.utils;
 
-// 不导入，直接使用完全限定名避免冲突
-
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.regex.Pattern;
+import java.security.NoSuchProviderException;
+import java.security.Security;
 
 /**
  * SHA256摘要计算工具类
+ * 热路径上复用线程本地的MessageDigest实例和读缓冲区，digest校验与hex编码不依赖正则
  * 
  * @author registry
  */
@@ -22,10 +22,87 @@ public class DigestUtils {
     public static final String SHA256_PREFIX = "sha256:";
 
     /**
-     * SHA256 digest格式验证正则
-     * 格式：sha256: + 64位16进制字符
+     * SHA256算法名
+     */
+    public static final String SHA256_ALGORITHM = "SHA-256";
+
+    /**
+     * SHA256哈希值的16进制长度
+     */
+    public static final int SHA256_HEX_LENGTH = 64;
+
+    /**
+     * 默认流读取缓冲区大小（64KB）
+     * commons-codec默认只有1KB，大块读取可以显著减少read调用次数
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+
+    /**
+     * JCA提供者名称，null表示使用JDK默认（SUN提供者在支持的CPU上走SHA指令intrinsic）
+     */
+    private static volatile String providerName;
+
+    /**
+     * 流读取缓冲区大小
+     */
+    private static volatile int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    /**
+     * 线程本地的MessageDigest，避免每次计算都走Provider查找
      */
-    private static final Pattern DIGEST_PATTERN = Pattern.compile("^sha256:[a-f0-9]{64}$");
+    private static final ThreadLocal<MessageDigest> LOCAL_DIGEST = ThreadLocal.withInitial(DigestUtils::createSHA256Digest);
+
+    /**
+     * 线程本地的读缓冲区，避免每次计算都分配大数组
+     */
+    private static final ThreadLocal<byte[]> LOCAL_BUFFER = ThreadLocal.withInitial(() -> new byte[bufferSize]);
+
+    /**
+     * 设置SHA256使用的JCA提供者
+     * 
+     * @param name 提供者名称，为空时恢复JDK默认
+     * @throws IllegalArgumentException 当提供者不存在或不支持SHA-256时
+     */
+    public static void setProvider(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            providerName = null;
+            return;
+        }
+
+        String trimmed = name.trim();
+        if (Security.getProvider(trimmed) == null) {
+            throw new IllegalArgumentException("Security provider not installed: " + trimmed);
+        }
+        try {
+            MessageDigest.getInstance(SHA256_ALGORITHM, trimmed);
+        } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
+            throw new IllegalArgumentException("Security provider does not support SHA-256: " + trimmed, e);
+        }
+        providerName = trimmed;
+    }
+
+    /**
+     * 获取当前使用的JCA提供者名称
+     * 
+     * @return 提供者名称
+     */
+    public static String getProviderName() {
+        return LOCAL_DIGEST.get().getProvider().getName();
+    }
+
+    /**
+     * 设置流读取缓冲区大小
+     * 
+     * @param size 缓冲区大小（字节）
+     */
+    public static void setBufferSize(int size) {
+        if (size < 4096) {
+            throw new IllegalArgumentException("Digest buffer size must be at least 4096: " + size);
+        }
+        bufferSize = size;
+    }
 
     /**
      * 计算字符串的SHA256值
@@ -34,8 +111,7 @@ public class DigestUtils {
      * @return SHA256值，格式：sha256:abc123...
      */
     public static String calculateSHA256(String content) {
-        return SHA256_PREFIX
-                + org.apache.commons.codec.digest.DigestUtils.sha256Hex(content.getBytes(StandardCharsets.UTF_8));
+        return calculateSHA256(content.getBytes(StandardCharsets.UTF_8));
     }
 
     /**
@@ -45,7 +121,8 @@ public class DigestUtils {
      * @return SHA256值，格式：sha256:abc123...
      */
     public static String calculateSHA256(byte[] bytes) {
-        return SHA256_PREFIX + org.apache.commons.codec.digest.DigestUtils.sha256Hex(bytes);
+        MessageDigest digest = localDigest();
+        return toDigest(digest.digest(bytes));
     }
 
     /**
@@ -56,7 +133,20 @@ public class DigestUtils {
      * @throws IOException IO异常
      */
     public static String calculateSHA256(InputStream inputStream) throws IOException {
-        return SHA256_PREFIX + org.apache.commons.codec.digest.DigestUtils.sha256Hex(inputStream);
+        MessageDigest digest = localDigest();
+        byte[] buffer = localBuffer();
+
+        try {
+            int read;
+            while ((read = inputStream.read(buffer, 0, buffer.length)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            digest.reset();
+            throw e;
+        }
+
+        return toDigest(digest.digest());
     }
 
     /**
@@ -65,21 +155,46 @@ public class DigestUtils {
      * @return MessageDigest实例
      */
     public static MessageDigest createSHA256Digest() {
+        String name = providerName;
         try {
-            return MessageDigest.getInstance("SHA-256");
-        } catch (NoSuchAlgorithmException e) {
+            return name == null
+                    ? MessageDigest.getInstance(SHA256_ALGORITHM)
+                    : MessageDigest.getInstance(SHA256_ALGORITHM, name);
+        } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
             throw new RuntimeException("SHA-256 algorithm not available", e);
         }
     }
 
+    /**
+     * 将SHA256哈希结果编码为digest字符串
+     * 
+     * @param hash 32字节哈希结果
+     * @return 完整的digest，格式：sha256:abc123...
+     */
+    public static String toDigest(byte[] hash) {
+        char[] chars = new char[SHA256_PREFIX.length() + hash.length * 2];
+        SHA256_PREFIX.getChars(0, SHA256_PREFIX.length(), chars, 0);
+
+        int pos = SHA256_PREFIX.length();
+        for (byte b : hash) {
+            chars[pos++] = HEX_CHARS[(b >> 4) & 0x0f];
+            chars[pos++] = HEX_CHARS[b & 0x0f];
+        }
+        return new String(chars);
+    }
+
     /**
      * 验证digest格式是否正确
+     * 格式：sha256: + 64位小写16进制字符
      * 
      * @param digest 要验证的digest
      * @return 是否有效
      */
     public static boolean isValidDigest(String digest) {
-        return digest != null && DIGEST_PATTERN.matcher(digest).matches();
+        return digest != null
+                && digest.length() == SHA256_PREFIX.length() + SHA256_HEX_LENGTH
+                && digest.startsWith(SHA256_PREFIX)
+                && isLowerHex(digest, SHA256_PREFIX.length());
     }
 
     /**
@@ -102,9 +217,48 @@ public class DigestUtils {
      * @return 完整的digest
      */
     public static String buildDigest(String hash) {
-        if (hash == null || hash.length() != 64 || !hash.matches("[a-f0-9]{64}")) {
+        if (hash == null || hash.length() != SHA256_HEX_LENGTH || !isLowerHex(hash, 0)) {
             throw new IllegalArgumentException("Invalid hash format: " + hash);
         }
         return SHA256_PREFIX + hash;
     }
+
+    /**
+     * 检查从offset开始的字符是否全部为小写16进制
+     */
+    private static boolean isLowerHex(String value, int offset) {
+        for (int i = offset; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 获取线程本地的MessageDigest，提供者变更后自动重建
+     */
+    private static MessageDigest localDigest() {
+        MessageDigest digest = LOCAL_DIGEST.get();
+        String name = providerName;
+        if (name != null && !name.equals(digest.getProvider().getName())) {
+            digest = createSHA256Digest();
+            LOCAL_DIGEST.set(digest);
+        }
+        digest.reset();
+        return digest;
+    }
+
+    /**
+     * 获取线程本地的读缓冲区，缓冲区大小变更后自动重建
+     */
+    private static byte[] localBuffer() {
+        byte[] buffer = LOCAL_BUFFER.get();
+        if (buffer.length != bufferSize) {
+            buffer = new byte[bufferSize];
+            LOCAL_BUFFER.set(buffer);
+        }
+        return buffer;
+    }
 }
@@ -0,0 +1,95 @@
+package com.diy.utils;
+
+/**
+ * HTTP条件请求（ETag）处理工具
+ * Registry中的内容都以digest寻址，digest即为强ETag
+ * 
+ * @author diy
+ */
+public class ETagUtils {
+
+    /**
+     * 由digest生成强ETag
+     * 
+     * @param digest SHA256值
+     * @return ETag，例如："sha256:abc123..."
+     */
+    public static String fromDigest(String digest) {
+        return "\"" + digest + "\"";
+    }
+
+    /**
+     * 由digest生成弱ETag，用于同一内容的其他编码表示（如gzip）
+     * 弱比较下与强ETag等价，If-None-Match仍能命中；If-Range要求强ETag，不会命中
+     * 
+     * @param digest SHA256值
+     * @return ETag，例如：W/"sha256:abc123..."
+     */
+    public static String weakFromDigest(String digest) {
+        return "W/" + fromDigest(digest);
+    }
+
+    /**
+     * 判断If-None-Match是否命中（弱比较）
+     * 支持 * 和逗号分隔的多个ETag
+     * 
+     * @param ifNoneMatch If-None-Match头值
+     * @param etag        当前资源的ETag
+     * @return 是否命中（命中时应返回304）
+     */
+    public static boolean matchesIfNoneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+
+        String expected = opaqueTag(etag);
+        int start = 0;
+        while (start < ifNoneMatch.length()) {
+            int end = ifNoneMatch.indexOf(',', start);
+            if (end < 0) {
+                end = ifNoneMatch.length();
+            }
+
+            String candidate = ifNoneMatch.substring(start, end).trim();
+            if ("*".equals(candidate)) {
+                return true;
+            }
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (expected.equals(opaqueTag(candidate))) {
+                return true;
+            }
+
+            start = end + 1;
+        }
+        return false;
+    }
+
+    /**
+     * 判断If-Range是否命中（强比较）
+     * If-Range为HTTP日期或弱ETag时视为不命中，此时应返回完整内容
+     * 
+     * @param ifRange If-Range头值
+     * @param etag    当前资源的ETag
+     * @return 是否命中（命中时才处理Range）
+     */
+    public static boolean matchesIfRange(String ifRange, String etag) {
+        if (ifRange == null) {
+            return true;
+        }
+
+        String candidate = ifRange.trim();
+        return candidate.startsWith("\"") && candidate.equals(etag);
+    }
+
+    /**
+     * 去除ETag两侧的引号
+     */
+    private static String opaqueTag(String etag) {
+        if (etag.length() >= 2 && etag.startsWith("\"") && etag.endsWith("\"")) {
+            return etag.substring(1, etag.length() - 1);
+        }
+        return etag;
+    }
+}
@@ -0,0 +1,49 @@
+package com.diy.utils;
+
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * 列表接口分页工具
+ * 实现Registry API规范中的 n / last 分页参数和 Link 头
+ * 
+ * @author diy
+ */
+public class PaginationUtils {
+
+    /**
+     * 计算实际页大小
+     * 
+     * @param n               客户端请求的条数（可为空）
+     * @param defaultPageSize 默认页大小
+     * @param maxPageSize     最大页大小
+     * @return 实际页大小
+     * @throws IllegalArgumentException 当n为负数时
+     */
+    public static int resolvePageSize(Integer n, int defaultPageSize, int maxPageSize) {
+        if (n == null) {
+            return Math.min(defaultPageSize, maxPageSize);
+        }
+        if (n < 0) {
+            throw new IllegalArgumentException("Invalid pagination number: " + n);
+        }
+        return Math.min(n, maxPageSize);
+    }
+
+    /**
+     * 生成下一页的Link头
+     * 格式：</v2/name/tags/list?n=100&last=v1.0>; rel="next"
+     * 
+     * @param path     列表接口路径
+     * @param pageSize 页大小
+     * @param last     当前页最后一个元素
+     * @return Link头值
+     */
+    public static String buildNextLink(String path, int pageSize, String last) {
+        String url = UriComponentsBuilder.fromPath(path)
+                .queryParam("n", pageSize)
+                .queryParam("last", last)
+                .encode()
+                .toUriString();
+        return "<" + url + ">; rel=\"next\"";
+    }
+}
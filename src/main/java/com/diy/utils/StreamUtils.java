@@ -0,0 +1,123 @@
+package com.diy.utils;
+
+import com.diy.metrics.RequestTiming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 流复制工具
+ * 
+ * @author diy
+ */
+public class StreamUtils {
+
+    /**
+     * 默认复制缓冲区大小
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * 跳过输入流开头的数据，skip返回0时改用read跳过
+     * 
+     * @param inputStream 输入流
+     * @param count       要跳过的字节数
+     * @param buffer      read方式跳过时使用的缓冲区
+     * @return 实际跳过的字节数（流提前结束时小于count）
+     * @throws IOException IO异常
+     */
+    public static long skipFully(InputStream inputStream, long count, byte[] buffer) throws IOException {
+        long skipped = 0;
+        while (skipped < count) {
+            long toSkip = count - skipped;
+            long actualSkipped = inputStream.skip(toSkip);
+            if (actualSkipped <= 0) {
+                int readBytes = inputStream.read(buffer, 0, (int) Math.min(buffer.length, toSkip));
+                if (readBytes <= 0) {
+                    break;
+                }
+                skipped += readBytes;
+            } else {
+                skipped += actualSkipped;
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * 从输入流复制指定长度的数据到输出流
+     * timing不为null时分别累计读取（STORAGE）和写出（WRITE）的耗时
+     * 
+     * @param inputStream  输入流
+     * @param outputStream 输出流
+     * @param length       最多复制的字节数
+     * @param buffer       复制缓冲区
+     * @param timing       请求计时上下文，可为null
+     * @return 实际复制的字节数（流提前结束时小于length）
+     * @throws IOException IO异常
+     */
+    public static long copyRange(InputStream inputStream, OutputStream outputStream, long length,
+            byte[] buffer, RequestTiming timing) throws IOException {
+        return copyRange(inputStream, outputStream, length, buffer, timing, null);
+    }
+
+    /**
+     * 从输入流复制指定长度的数据到输出流，每次写出前按读到的字节数等待限速
+     * timing不为null时分别累计读取（STORAGE）、限速等待（THROTTLE）和写出（WRITE）的耗时
+     * 
+     * @param inputStream  输入流
+     * @param outputStream 输出流
+     * @param length       最多复制的字节数
+     * @param buffer       复制缓冲区
+     * @param timing       请求计时上下文，可为null
+     * @param throttle     限速，可为null
+     * @return 实际复制的字节数（流提前结束时小于length）
+     * @throws IOException IO异常
+     */
+    public static long copyRange(InputStream inputStream, OutputStream outputStream, long length,
+            byte[] buffer, RequestTiming timing, Throttle throttle) throws IOException {
+        long remainingBytes = length;
+        long copied = 0;
+        int bytesRead;
+        long readStart = timing != null ? System.nanoTime() : 0;
+        while (remainingBytes > 0 && (bytesRead = inputStream.read(buffer, 0,
+                (int) Math.min(buffer.length, remainingBytes))) != -1) {
+
+            if (timing == null) {
+                if (throttle != null) {
+                    throttle.acquire(bytesRead);
+                }
+                outputStream.write(buffer, 0, bytesRead);
+            } else {
+                long writeStart = System.nanoTime();
+                timing.add(RequestTiming.Phase.STORAGE, writeStart - readStart);
+                if (throttle != null) {
+                    throttle.acquire(bytesRead);
+                    long throttleEnd = System.nanoTime();
+                    timing.add(RequestTiming.Phase.THROTTLE, throttleEnd - writeStart);
+                    writeStart = throttleEnd;
+                }
+                outputStream.write(buffer, 0, bytesRead);
+                readStart = System.nanoTime();
+                timing.add(RequestTiming.Phase.WRITE, readStart - writeStart);
+            }
+            remainingBytes -= bytesRead;
+            copied += bytesRead;
+        }
+        return copied;
+    }
+
+    /**
+     * 写出限速
+     */
+    public interface Throttle {
+        /**
+         * 等待直到允许写出指定字节数
+         * 
+         * @param bytes 即将写出的字节数
+         * @throws IOException 等待被中断
+         */
+        void acquire(int bytes) throws IOException;
+    }
+}
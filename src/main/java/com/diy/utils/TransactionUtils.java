@@ -0,0 +1,32 @@
+package com.diy.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务辅助工具类
+ * 
+ * @author diy
+ */
+public class TransactionUtils {
+
+    /**
+     * 在当前事务提交后执行操作，无事务时立即执行
+     * 用于缓存更新等不能随事务回滚的副作用
+     * 
+     * @param action 要执行的操作
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package com.diy.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * 单个操作类型的耗时记录
+ * 保存全部样本后排序求分位数，压测规模下样本数有限，无需近似算法
+ * 
+ * @author diy
+ */
+public class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+
+    private int count;
+
+    private long errors;
+
+    /**
+     * 记录一次成功操作
+     * 
+     * @param nanos 耗时（纳秒）
+     */
+    public synchronized void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    /**
+     * 记录一次失败操作
+     */
+    public synchronized void recordError() {
+        errors++;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public synchronized long getErrors() {
+        return errors;
+    }
+
+    /**
+     * 计算分位数
+     * 
+     * @param percentiles 分位点（0~100）
+     * @return 对应的耗时（纳秒），无样本时为0
+     */
+    public synchronized long[] percentiles(double... percentiles) {
+        long[] result = new long[percentiles.length];
+        if (count == 0) {
+            return result;
+        }
+
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        for (int i = 0; i < percentiles.length; i++) {
+            int index = (int) Math.ceil(percentiles[i] / 100.0 * count) - 1;
+            result[i] = sorted[Math.max(0, Math.min(count - 1, index))];
+        }
+        return result;
+    }
+}
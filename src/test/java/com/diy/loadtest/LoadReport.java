@@ -0,0 +1,191 @@
+package com.diy.loadtest;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadInfo;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测报告
+ * 在测量窗口内采样堆占用，统计GC次数/耗时和线程分配量；
+ * 线程分配按名称区分压测客户端（loadtest-、HttpClient-前缀）与服务端，客户端的开销不计入服务端
+ * 
+ * @author diy
+ */
+public class LoadReport implements AutoCloseable {
+
+    private static final double[] PERCENTILES = { 50, 90, 99, 100 };
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "loadtest-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final OssStandIn oss;
+
+    private final long ossCallsAtStart;
+
+    private final long ossErrorsAtStart;
+
+    private final long startNanos;
+
+    private final long gcCountAtStart;
+
+    private final long gcMillisAtStart;
+
+    private final Map<Long, Long> allocatedAtStart = new TreeMap<>();
+
+    private volatile long peakHeapUsed;
+
+    private volatile long peakHeapCommitted;
+
+    private long elapsedNanos;
+
+    private long gcCount;
+
+    private long gcMillis;
+
+    private long serverAllocated;
+
+    private long clientAllocated;
+
+    /**
+     * 开始测量
+     * 
+     * @param oss OSS替身，统计测量窗口内的调用次数
+     */
+    public LoadReport(OssStandIn oss) {
+        this.oss = oss;
+        this.ossCallsAtStart = oss.getCalls();
+        this.ossErrorsAtStart = oss.getInjectedErrors();
+        threads.setThreadAllocatedMemoryEnabled(true);
+        for (long id : threads.getAllThreadIds()) {
+            long allocated = threads.getThreadAllocatedBytes(id);
+            if (allocated >= 0) {
+                allocatedAtStart.put(id, allocated);
+            }
+        }
+        this.gcCountAtStart = gcTotals()[0];
+        this.gcMillisAtStart = gcTotals()[1];
+        this.startNanos = System.nanoTime();
+        sampler.scheduleAtFixedRate(this::sampleHeap, 0, 100, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 结束测量：记录耗时、GC和各线程的分配量
+     * 测量期间已退出的线程不会被统计，压测线程和服务端工作线程在测量期间均保持存活
+     */
+    @Override
+    public void close() {
+        this.elapsedNanos = System.nanoTime() - startNanos;
+        sampler.shutdownNow();
+        sampleHeap();
+
+        long[] gc = gcTotals();
+        this.gcCount = gc[0] - gcCountAtStart;
+        this.gcMillis = gc[1] - gcMillisAtStart;
+
+        long[] ids = threads.getAllThreadIds();
+        ThreadInfo[] infos = threads.getThreadInfo(ids);
+        for (int i = 0; i < ids.length; i++) {
+            if (infos[i] == null) {
+                continue;
+            }
+            long allocated = threads.getThreadAllocatedBytes(ids[i]);
+            if (allocated < 0) {
+                continue;
+            }
+            long delta = allocated - allocatedAtStart.getOrDefault(ids[i], 0L);
+            String name = infos[i].getThreadName();
+            if (name.startsWith("loadtest-") || name.startsWith("HttpClient-")) {
+                clientAllocated += delta;
+            } else {
+                serverAllocated += delta;
+            }
+        }
+    }
+
+    private void sampleHeap() {
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        peakHeapUsed = Math.max(peakHeapUsed, heap.getUsed());
+        peakHeapCommitted = Math.max(peakHeapCommitted, heap.getCommitted());
+    }
+
+    private static long[] gcTotals() {
+        long count = 0;
+        long millis = 0;
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        for (GarbageCollectorMXBean collector : collectors) {
+            count += Math.max(0, collector.getCollectionCount());
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return new long[] { count, millis };
+    }
+
+    /**
+     * 输出报告
+     * 
+     * @param out      输出流
+     * @param scenario 场景
+     * @param client   压测客户端
+     */
+    public void print(PrintStream out, Scenario scenario, RegistryClient client) {
+        double seconds = elapsedNanos / 1e9;
+        out.println();
+        out.println("=== " + scenario + " ===");
+        out.printf("%-14s %8s %7s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "errors", "ops/s", "p50(ms)", "p90(ms)", "p99(ms)", "max(ms)");
+        for (Map.Entry<String, LatencyRecorder> entry : new TreeMap<>(client.getRecorders()).entrySet()) {
+            LatencyRecorder recorder = entry.getValue();
+            long[] p = recorder.percentiles(PERCENTILES);
+            out.printf("%-14s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey(), recorder.getCount(), recorder.getErrors(), recorder.getCount() / seconds,
+                    p[0] / 1e6, p[1] / 1e6, p[2] / 1e6, p[3] / 1e6);
+        }
+
+        out.printf("throughput     upload %s/s, download %s/s%n",
+                formatBytes((long) (client.getBytesUploaded() / seconds)),
+                formatBytes((long) (client.getBytesDownloaded() / seconds)));
+        out.printf("heap           peak used %s, peak committed %s%n",
+                formatBytes(peakHeapUsed), formatBytes(peakHeapCommitted));
+        out.printf("gc             %d collections, %d ms (%.2f%% of wall time)%n",
+                gcCount, gcMillis, gcMillis / 10.0 / seconds);
+        out.printf("allocation     server %s/s, client %s/s%n",
+                formatBytes((long) (serverAllocated / seconds)), formatBytes((long) (clientAllocated / seconds)));
+        out.printf("oss            %d calls, %d injected errors%n",
+                oss.getCalls() - ossCallsAtStart, oss.getInjectedErrors() - ossErrorsAtStart);
+    }
+
+    /**
+     * 格式化字节数
+     * 
+     * @param bytes 字节数
+     * @return 例如：512KB、4.0MB
+     */
+    public static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + "B";
+        }
+        if (bytes < 1024 * 1024) {
+            return bytes / 1024 + "KB";
+        }
+        if (bytes < 1024L * 1024 * 1024) {
+            return String.format("%.1fMB", bytes / (1024.0 * 1024));
+        }
+        return String.format("%.2fGB", bytes / (1024.0 * 1024 * 1024));
+    }
+}
@@ -0,0 +1,284 @@
+package com.diy.loadtest;
+
+import com.aliyun.oss.OSS;
+import com.diy.Diy;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 端到端压测入口
+ * 在同一进程内启动registry（H2内存库 + OSS替身），通过HTTP按场景模拟docker push/pull，
+ * 输出各操作的延迟分位数、吞吐量、堆峰值、GC和分配速率
+ * 
+ * 运行：mvn -Ploadtest test-compile exec:java -Dexec.args="--scenario ci-push --duration 20"
+ * 
+ * 参数：
+ * --scenario a,b           场景名，默认全部内置场景
+ * --duration 秒           覆盖场景持续时间
+ * --concurrency N          覆盖场景并发数
+ * --oss-latency-ms N       OSS每次调用的固定延迟，默认0
+ * --oss-bandwidth-mbps N   OSS传输带宽上限（MB/s），默认不限
+ * --oss-error-rate R       OSS调用随机失败的比例，默认0
+ * --replicas N             读写分离：配置N个从库（指向同一H2库，复制延迟为0），验证路由开销
+ * --proxy                  代理模式：另启一个registry作为上游，拉取目标推送到上游，压测请求发往代理
+ * --list                   列出内置场景
+ * 
+ * @author diy
+ */
+public class LoadTestHarness {
+
+    private static final int SEED_ATTEMPTS = 5;
+
+    public static void main(String[] args) throws Exception {
+        List<String> scenarioNames = new ArrayList<>(Scenario.BUILT_IN.keySet());
+        Duration duration = null;
+        int concurrency = 0;
+        long ossLatency = 0;
+        long ossBandwidth = 0;
+        double ossErrorRate = 0;
+        boolean proxy = false;
+        int replicas = 0;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--scenario" -> scenarioNames = Arrays.asList(args[++i].split(","));
+                case "--duration" -> duration = Duration.ofSeconds(Long.parseLong(args[++i]));
+                case "--concurrency" -> concurrency = Integer.parseInt(args[++i]);
+                case "--oss-latency-ms" -> ossLatency = Long.parseLong(args[++i]);
+                case "--oss-bandwidth-mbps" -> ossBandwidth = Long.parseLong(args[++i]) * 1024 * 1024;
+                case "--oss-error-rate" -> ossErrorRate = Double.parseDouble(args[++i]);
+                case "--proxy" -> proxy = true;
+                case "--replicas" -> replicas = Integer.parseInt(args[++i]);
+                case "--list" -> {
+                    Scenario.BUILT_IN.values().forEach(System.out::println);
+                    return;
+                }
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        List<Scenario> scenarios = new ArrayList<>();
+        for (String name : scenarioNames) {
+            Scenario scenario = Scenario.BUILT_IN.get(name.trim());
+            if (scenario == null) {
+                throw new IllegalArgumentException("Unknown scenario: " + name
+                        + ", available: " + Scenario.BUILT_IN.keySet());
+            }
+            scenarios.add(scenario.with(concurrency, duration));
+        }
+
+        Path root = Files.createTempDirectory("registry-loadtest-");
+        OSS oss = OssStandIn.create(root.resolve("registry"),
+                new OssStandIn.Settings(ossLatency, ossBandwidth, ossErrorRate));
+        ConfigurableApplicationContext upstream = null;
+        ConfigurableApplicationContext context = null;
+        try {
+            String seedUrl = null;
+            List<String> arguments = new ArrayList<>(List.of("--spring.profiles.active=loadtest"));
+            if (proxy) {
+                // 上游不注入故障，使用独立的H2库和OSS目录
+                OSS upstreamOss = OssStandIn.create(root.resolve("upstream"), new OssStandIn.Settings(0, 0, 0));
+                upstream = start(upstreamOss, List.of("--spring.profiles.active=loadtest",
+                        "--spring.datasource.url=jdbc:h2:mem:upstream;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+                                + "NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1"));
+                seedUrl = "http://localhost:" + port(upstream);
+                arguments.add("--docker-registry.proxy.enabled=true");
+                arguments.add("--docker-registry.proxy.remote-url=" + seedUrl);
+                arguments.add("--docker-registry.proxy.spool-directory=" + root.resolve("spool"));
+                System.out.printf("Upstream registry started on %s%n", seedUrl);
+            }
+
+            if (replicas > 0) {
+                arguments.add("--docker-registry.read-replicas.enabled=true");
+                for (int i = 0; i < replicas; i++) {
+                    arguments.add("--docker-registry.read-replicas.nodes[" + i + "].url=${spring.datasource.url}");
+                }
+            }
+
+            context = start(oss, arguments);
+            String baseUrl = "http://localhost:" + port(context);
+            System.out.printf("Registry started on %s, OSS stand-in at %s (latency=%dms, bandwidth=%s/s, "
+                            + "error_rate=%.3f)%n", baseUrl, root, ossLatency,
+                    ossBandwidth > 0 ? LoadReport.formatBytes(ossBandwidth) : "unlimited", ossErrorRate);
+
+            for (Scenario scenario : scenarios) {
+                run(scenario, seedUrl != null ? seedUrl : baseUrl, baseUrl, OssStandIn.of(oss));
+            }
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            if (upstream != null) {
+                upstream.close();
+            }
+            deleteRecursively(root);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(OSS oss, List<String> arguments) {
+        return new SpringApplicationBuilder(Diy.class)
+                .initializers(c -> c.getBeanFactory().registerSingleton("ossClient", oss))
+                .run(arguments.toArray(new String[0]));
+    }
+
+    private static int port(ConfigurableApplicationContext context) {
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    /**
+     * 运行单个场景：先为每个仓库推送一个镜像作为拉取目标，再在测量窗口内并发执行
+     * 代理模式下拉取目标推送到上游，代理在测量窗口内首次拉取时从上游填充
+     */
+    private static void run(Scenario scenario, String seedUrl, String baseUrl, OssStandIn oss) throws Exception {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        Workload workload = new Workload(scenario, runId);
+
+        RegistryClient seedClient = new RegistryClient(seedUrl);
+        List<RegistryClient.Image> images = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < scenario.repositories(); i++) {
+            images.add(seed(workload, seedClient, i));
+        }
+
+        RegistryClient client = new RegistryClient(baseUrl);
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(scenario.concurrency(), runnable -> {
+            Thread thread = new Thread(runnable, "loadtest-client-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long deadline = System.nanoTime() + scenario.duration().toNanos();
+        AtomicLong failures = new AtomicLong();
+        Map<String, String> lastErrors = new ConcurrentHashMap<>();
+
+        LoadReport report = new LoadReport(oss);
+        for (int i = 0; i < scenario.concurrency(); i++) {
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    try {
+                        if (random.nextDouble() < scenario.pullRatio()) {
+                            client.pull(images.get(random.nextInt(images.size())));
+                        } else {
+                            images.add(workload.push(client, random.nextInt(scenario.repositories())));
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                        lastErrors.put(e.getClass().getSimpleName(), String.valueOf(e.getMessage()));
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(scenario.duration().toSeconds() + 300, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+        report.close();
+
+        report.print(System.out, scenario, client);
+        System.out.printf("failed iterations: %d%n", failures.get());
+        lastErrors.forEach((type, message) -> System.out.printf("  last %s: %s%n", type, message));
+    }
+
+    /**
+     * 推送拉取目标镜像，注入OSS故障时重试
+     */
+    private static RegistryClient.Image seed(Workload workload, RegistryClient client, int repositoryIndex)
+            throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return workload.push(client, repositoryIndex);
+            } catch (IOException e) {
+                if (attempt == SEED_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 按场景生成镜像内容
+     * 基础层每个仓库固定一组，独有层复用同一份随机模板，仅首块写入唯一标记，避免压测客户端自身占用大量内存
+     */
+    private static class Workload {
+
+        private final Scenario scenario;
+
+        private final String runId;
+
+        private final byte[] baseTemplate;
+
+        private final byte[] uniqueTemplate;
+
+        private final List<List<RegistryClient.Layer>> baseLayers = new ArrayList<>();
+
+        private final AtomicLong sequence = new AtomicLong();
+
+        Workload(Scenario scenario, String runId) {
+            this.scenario = scenario;
+            this.runId = runId;
+            Random random = new Random(42);
+            this.baseTemplate = new byte[scenario.baseLayerSize()];
+            random.nextBytes(baseTemplate);
+            this.uniqueTemplate = new byte[scenario.uniqueLayerSize()];
+            random.nextBytes(uniqueTemplate);
+
+            for (int r = 0; r < scenario.repositories(); r++) {
+                List<RegistryClient.Layer> layers = new ArrayList<>();
+                for (int l = 0; l < scenario.baseLayers(); l++) {
+                    layers.add(layer(baseTemplate, "base-" + runId + "-" + r + "-" + l));
+                }
+                baseLayers.add(layers);
+            }
+        }
+
+        RegistryClient.Image push(RegistryClient client, int repositoryIndex) throws Exception {
+            long id = sequence.incrementAndGet();
+            List<RegistryClient.Layer> layers = new ArrayList<>(baseLayers.get(repositoryIndex));
+            for (int l = 0; l < scenario.uniqueLayers(); l++) {
+                layers.add(layer(uniqueTemplate, "unique-" + runId + "-" + id + "-" + l));
+            }
+            String repository = "loadtest-" + scenario.name() + "-" + repositoryIndex;
+            return client.push(repository, "v" + id, layers, scenario.chunkSize());
+        }
+
+        private RegistryClient.Layer layer(byte[] template, String marker) {
+            byte[] first = Arrays.copyOf(template, Math.min(scenario.chunkSize(), template.length));
+            byte[] id = marker.getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(id, 0, first, 0, Math.min(id.length, first.length));
+            return new RegistryClient.Layer(RegistryClient.sha256(first, template, template.length),
+                    first, template, template.length);
+        }
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.diy.loadtest;
+
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.model.*;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内OSS替身
+ * 以动态代理实现OSS接口中registry用到的操作，对象存放在本地临时目录（不占用被测进程的堆）
+ * 
+ * 可注入：每次调用的固定延迟、传输带宽上限、按比例随机失败
+ * 
+ * @author diy
+ */
+public class OssStandIn implements InvocationHandler {
+
+    /**
+     * 替身配置
+     * 
+     * @param latencyMillis  每次调用的固定延迟（毫秒）
+     * @param bytesPerSecond 上传/下载带宽上限，0表示不限
+     * @param errorRate      调用随机失败的比例（0~1）
+     */
+    public record Settings(long latencyMillis, long bytesPerSecond, double errorRate) {
+    }
+
+    private final Path root;
+
+    private final Settings settings;
+
+    private final AtomicLong calls = new AtomicLong();
+
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    private OssStandIn(Path root, Settings settings) {
+        this.root = root;
+        this.settings = settings;
+    }
+
+    /**
+     * 创建替身客户端
+     * 
+     * @param root     对象存放目录
+     * @param settings 替身配置
+     * @return OSS客户端代理
+     */
+    public static OSS create(Path root, Settings settings) {
+        return (OSS) Proxy.newProxyInstance(OSS.class.getClassLoader(), new Class<?>[] { OSS.class },
+                new OssStandIn(root, settings));
+    }
+
+    /**
+     * 获取代理背后的替身实例
+     */
+    public static OssStandIn of(OSS client) {
+        return (OssStandIn) Proxy.getInvocationHandler(client);
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            try {
+                return method.invoke(this, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        String name = method.getName();
+        if ("shutdown".equals(name)) {
+            return null;
+        }
+        if ("doesBucketExist".equals(name)) {
+            return true;
+        }
+        if ("generatePresignedUrl".equals(name)) {
+            return presignedUrl((String) args[1]);
+        }
+
+        calls.incrementAndGet();
+        sleep(settings.latencyMillis());
+        if (settings.errorRate() > 0 && ThreadLocalRandom.current().nextDouble() < settings.errorRate()) {
+            injectedErrors.incrementAndGet();
+            throw new ClientException("Injected failure: " + name);
+        }
+
+        switch (name) {
+            case "putObject":
+                if (args.length == 1 && args[0] instanceof PutObjectRequest request) {
+                    return putObject(request);
+                }
+                break;
+            case "getObject":
+                if (args.length == 2 && args[1] instanceof String key) {
+                    return getObject(key, 0);
+                }
+                if (args.length == 1 && args[0] instanceof GetObjectRequest request) {
+                    long[] range = request.getRange();
+                    return getObject(request.getKey(), range != null ? range[0] : 0);
+                }
+                break;
+            case "getObjectMetadata":
+                if (args.length == 2 && args[1] instanceof String key) {
+                    return metadata(key, size(key));
+                }
+                break;
+            case "doesObjectExist":
+                if (args.length == 2 && args[1] instanceof String key) {
+                    return Files.exists(path(key));
+                }
+                break;
+            case "deleteObject":
+                if (args.length == 2 && args[1] instanceof String key) {
+                    Files.deleteIfExists(path(key));
+                    return new VoidResult();
+                }
+                break;
+            case "deleteObjects":
+                if (args.length == 1 && args[0] instanceof DeleteObjectsRequest request) {
+                    for (String key : request.getKeys()) {
+                        Files.deleteIfExists(path(key));
+                    }
+                    return new DeleteObjectsResult(new ArrayList<>());
+                }
+                break;
+            case "copyObject":
+                if (args.length == 1 && args[0] instanceof CopyObjectRequest request) {
+                    return copyObject(request);
+                }
+                break;
+            case "appendObject":
+                if (args.length == 1 && args[0] instanceof AppendObjectRequest request) {
+                    return appendObject(request);
+                }
+                break;
+            default:
+                break;
+        }
+
+        throw new UnsupportedOperationException("OSS stand-in does not implement: " + method);
+    }
+
+    private PutObjectResult putObject(PutObjectRequest request) throws IOException {
+        Path target = path(request.getKey());
+        Files.createDirectories(target.getParent());
+        try (InputStream inputStream = request.getInputStream();
+                OutputStream outputStream = Files.newOutputStream(target)) {
+            throttledCopy(inputStream, outputStream);
+        }
+        return new PutObjectResult();
+    }
+
+    private OSSObject getObject(String key, long offset) throws IOException {
+        long size = size(key);
+        InputStream content = Files.newInputStream(path(key));
+        content.skipNBytes(offset);
+
+        OSSObject object = new OSSObject();
+        object.setKey(key);
+        object.setObjectMetadata(metadata(key, size));
+        object.setObjectContent(settings.bytesPerSecond() > 0 ? new ThrottledInputStream(content) : content);
+        return object;
+    }
+
+    private CopyObjectResult copyObject(CopyObjectRequest request) throws IOException {
+        Path source = path(request.getSourceKey());
+        Path target = path(request.getDestinationKey());
+        if (!Files.exists(source)) {
+            throw noSuchKey(request.getSourceKey());
+        }
+        Files.createDirectories(target.getParent());
+        // 服务端复制不受带宽限制
+        Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        return new CopyObjectResult();
+    }
+
+    private AppendObjectResult appendObject(AppendObjectRequest request) throws IOException {
+        Path target = path(request.getKey());
+        Files.createDirectories(target.getParent());
+
+        // 与OSS一致：追加位置必须等于对象当前长度（同一上传会话的追加由客户端串行发起）
+        long current = Files.exists(target) ? Files.size(target) : 0;
+        long position = request.getPosition() != null ? request.getPosition() : 0;
+        if (position != current) {
+            throw new OSSException("Position is not equal to file length",
+                    OSSErrorCode.POSITION_NOT_EQUAL_TO_LENGTH, null, null, null, null, null);
+        }
+
+        try (InputStream inputStream = request.getInputStream();
+                OutputStream outputStream = Files.newOutputStream(target,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            throttledCopy(inputStream, outputStream);
+        }
+
+        AppendObjectResult result = new AppendObjectResult();
+        result.setNextPosition(Files.size(target));
+        return result;
+    }
+
+    private ObjectMetadata metadata(String key, long size) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(size);
+        metadata.setContentType("application/octet-stream");
+        return metadata;
+    }
+
+    private long size(String key) throws IOException {
+        try {
+            return Files.size(path(key));
+        } catch (NoSuchFileException e) {
+            throw noSuchKey(key);
+        }
+    }
+
+    private URL presignedUrl(String key) {
+        try {
+            return new URL("http://oss-stand-in.local/" + key);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * key中包含'/'，按hex编码成单个文件名，避免在目录层级上产生冲突
+     */
+    private Path path(String key) {
+        return root.resolve(HexFormat.of().formatHex(key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private long throttledCopy(InputStream inputStream, OutputStream outputStream) throws IOException {
+        InputStream source = settings.bytesPerSecond() > 0 ? new ThrottledInputStream(inputStream) : inputStream;
+        return source.transferTo(outputStream);
+    }
+
+    private static OSSException noSuchKey(String key) {
+        return new OSSException("The specified key does not exist: " + key, OSSErrorCode.NO_SUCH_KEY,
+                null, null, null, null, null);
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new IOException("Interrupted"));
+        }
+    }
+
+    /**
+     * 按带宽上限限速的输入流：每读取一段数据后，睡眠到与带宽相符的时间点
+     */
+    private class ThrottledInputStream extends FilterInputStream {
+        private final long startNanos = System.nanoTime();
+        private long transferred;
+
+        ThrottledInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                pace(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                pace(n);
+            }
+            return n;
+        }
+
+        private void pace(int bytes) {
+            transferred += bytes;
+            long expectedNanos = transferred * 1_000_000_000L / settings.bytesPerSecond();
+            long aheadNanos = expectedNanos - (System.nanoTime() - startNanos);
+            if (aheadNanos > 1_000_000) {
+                sleep(TimeUnit.NANOSECONDS.toMillis(aheadNanos));
+            }
+        }
+    }
+}
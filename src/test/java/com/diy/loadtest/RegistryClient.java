@@ -0,0 +1,283 @@
+package com.diy.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 压测客户端，按Docker客户端的请求顺序推送和拉取镜像
+ * 每个HTTP操作的耗时按操作类型记录
+ * 
+ * @author diy
+ */
+public class RegistryClient {
+
+    static final String MANIFEST_MEDIA_TYPE = "application/vnd.docker.distribution.manifest.v2+json";
+    static final String CONFIG_MEDIA_TYPE = "application/vnd.docker.container.image.v1+json";
+    static final String LAYER_MEDIA_TYPE = "application/vnd.docker.image.rootfs.diff.tar.gzip";
+
+    /**
+     * 层内容：first为首块（长度为min(chunkSize, size)，独有层在其中写入唯一标记），其余数据取自template
+     */
+    record Layer(String digest, byte[] first, byte[] template, int size) {
+    }
+
+    /**
+     * 已推送的镜像
+     */
+    record Image(String repository, String tag, String configDigest, int configSize, List<Layer> layers) {
+    }
+
+    private final HttpClient httpClient;
+
+    private final String baseUrl;
+
+    private final Map<String, LatencyRecorder> recorders = new ConcurrentHashMap<>();
+
+    private final AtomicLong bytesUploaded = new AtomicLong();
+
+    private final AtomicLong bytesDownloaded = new AtomicLong();
+
+    public RegistryClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    public Map<String, LatencyRecorder> getRecorders() {
+        return recorders;
+    }
+
+    public long getBytesUploaded() {
+        return bytesUploaded.get();
+    }
+
+    public long getBytesDownloaded() {
+        return bytesDownloaded.get();
+    }
+
+    /**
+     * 推送镜像：逐层HEAD检查并上传缺失的层，再上传config和manifest
+     * 
+     * @param repository 仓库名
+     * @param tag        标签
+     * @param layers     镜像层
+     * @param chunkSize  分片大小
+     * @return 推送的镜像
+     */
+    public Image push(String repository, String tag, List<Layer> layers, int chunkSize)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        try {
+            for (Layer layer : layers) {
+                if (!timed("blob.head", () -> headBlob(repository, layer.digest()))) {
+                    timed("blob.upload", () -> upload(repository, layer, chunkSize));
+                }
+            }
+
+            byte[] config = ("{\"architecture\":\"amd64\",\"os\":\"linux\",\"created\":\""
+                    + System.nanoTime() + "-" + Thread.currentThread().getId() + "\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            Layer configBlob = new Layer(sha256(config, null, 0), config, config, config.length);
+            timed("blob.upload", () -> upload(repository, configBlob, chunkSize));
+
+            byte[] manifest = manifest(configBlob, layers);
+            timed("manifest.put", () -> putManifest(repository, tag, manifest));
+
+            record("image.push", System.nanoTime() - start);
+            return new Image(repository, tag, configBlob.digest(), configBlob.size(), layers);
+        } catch (IOException | RuntimeException e) {
+            recorder("image.push").recordError();
+            throw e;
+        }
+    }
+
+    /**
+     * 拉取镜像：获取manifest，再依次下载config和各层
+     * 
+     * @param image 镜像
+     */
+    public void pull(Image image) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        try {
+            timed("manifest.get", () -> getManifest(image.repository(), image.tag()));
+            timed("blob.get", () -> getBlob(image.repository(), image.configDigest()));
+            for (Layer layer : image.layers()) {
+                timed("blob.get", () -> getBlob(image.repository(), layer.digest()));
+            }
+            record("image.pull", System.nanoTime() - start);
+        } catch (IOException | RuntimeException e) {
+            recorder("image.pull").recordError();
+            throw e;
+        }
+    }
+
+    private boolean headBlob(String repository, String digest) throws IOException, InterruptedException {
+        HttpResponse<Void> response = httpClient.send(request("/v2/" + repository + "/blobs/" + digest)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 200) {
+            return true;
+        }
+        if (response.statusCode() == 404) {
+            return false;
+        }
+        throw unexpected("HEAD blob", response);
+    }
+
+    private boolean upload(String repository, Layer layer, int chunkSize) throws IOException, InterruptedException {
+        HttpResponse<Void> started = httpClient.send(request("/v2/" + repository + "/blobs/uploads/")
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding());
+        if (started.statusCode() != 202) {
+            throw unexpected("start upload", started);
+        }
+        String location = started.headers().firstValue("Location")
+                .orElseThrow(() -> new IOException("Upload location missing"));
+
+        for (int offset = 0; offset < layer.size(); offset += chunkSize) {
+            int length = Math.min(chunkSize, layer.size() - offset);
+            // 首块取自first（包含独有层的唯一标记），其余块共享template
+            HttpRequest.BodyPublisher body = offset == 0
+                    ? HttpRequest.BodyPublishers.ofByteArray(layer.first(), 0, length)
+                    : HttpRequest.BodyPublishers.ofByteArray(layer.template(), offset, length);
+
+            HttpResponse<Void> patched = httpClient.send(request(location)
+                    .header("Content-Range", offset + "-" + (offset + length - 1))
+                    .header("Content-Type", "application/octet-stream")
+                    .method("PATCH", body).build(), HttpResponse.BodyHandlers.discarding());
+            if (patched.statusCode() != 202) {
+                throw unexpected("upload chunk", patched);
+            }
+            bytesUploaded.addAndGet(length);
+        }
+
+        HttpResponse<Void> completed = httpClient.send(request(location + "?digest=" + layer.digest())
+                .PUT(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding());
+        if (completed.statusCode() != 201) {
+            throw unexpected("complete upload", completed);
+        }
+        return true;
+    }
+
+    private boolean putManifest(String repository, String tag, byte[] manifest)
+            throws IOException, InterruptedException {
+        HttpResponse<Void> response = httpClient.send(request("/v2/" + repository + "/manifests/" + tag)
+                .header("Content-Type", MANIFEST_MEDIA_TYPE)
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(manifest)).build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 201) {
+            throw unexpected("put manifest", response);
+        }
+        bytesUploaded.addAndGet(manifest.length);
+        return true;
+    }
+
+    private boolean getManifest(String repository, String tag) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(request("/v2/" + repository + "/manifests/" + tag)
+                .header("Accept", MANIFEST_MEDIA_TYPE).GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException("get manifest failed: status=" + response.statusCode());
+        }
+        bytesDownloaded.addAndGet(response.body().length);
+        return true;
+    }
+
+    private boolean getBlob(String repository, String digest) throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = httpClient.send(request("/v2/" + repository + "/blobs/" + digest)
+                .GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new IOException("get blob failed: status=" + response.statusCode());
+            }
+            byte[] buffer = new byte[64 * 1024];
+            long total = 0;
+            int n;
+            while ((n = body.read(buffer)) != -1) {
+                total += n;
+            }
+            bytesDownloaded.addAndGet(total);
+        }
+        return true;
+    }
+
+    private static byte[] manifest(Layer config, List<Layer> layers) {
+        StringBuilder json = new StringBuilder(256 + layers.size() * 160);
+        json.append("{\"schemaVersion\":2,\"mediaType\":\"").append(MANIFEST_MEDIA_TYPE).append("\",")
+                .append("\"config\":{\"mediaType\":\"").append(CONFIG_MEDIA_TYPE).append("\",")
+                .append("\"size\":").append(config.size()).append(",\"digest\":\"").append(config.digest())
+                .append("\"},\"layers\":[");
+        for (int i = 0; i < layers.size(); i++) {
+            Layer layer = layers.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"mediaType\":\"").append(LAYER_MEDIA_TYPE).append("\",")
+                    .append("\"size\":").append(layer.size()).append(",\"digest\":\"").append(layer.digest())
+                    .append("\"}");
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 计算层的digest：first覆盖开头的字节，其余取自template
+     */
+    static String sha256(byte[] first, byte[] template, int size) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(first);
+            if (template != null && size > first.length) {
+                digest.update(template, first.length, size - first.length);
+            }
+            return "sha256:" + HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        boolean run() throws IOException, InterruptedException;
+    }
+
+    private boolean timed(String name, Operation operation) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        try {
+            boolean result = operation.run();
+            record(name, System.nanoTime() - start);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            recorder(name).recordError();
+            throw e;
+        }
+    }
+
+    private void record(String name, long nanos) {
+        recorder(name).record(nanos);
+    }
+
+    private LatencyRecorder recorder(String name) {
+        return recorders.computeIfAbsent(name, key -> new LatencyRecorder());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofMinutes(5));
+    }
+
+    private static IOException unexpected(String operation, HttpResponse<?> response) {
+        return new IOException(operation + " failed: status=" + response.statusCode());
+    }
+}
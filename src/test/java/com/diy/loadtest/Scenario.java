@@ -0,0 +1,72 @@
+package com.diy.loadtest;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 压测场景
+ * 每个虚拟客户端循环执行：按pullRatio随机选择拉取一个已推送的镜像，或推送一个新镜像。
+ * 新镜像由baseLayers个共享基础层（仓库内已存在时按HEAD跳过上传）和uniqueLayers个独有层组成
+ * 
+ * @param name            场景名
+ * @param concurrency     并发客户端数
+ * @param duration        持续时间
+ * @param pullRatio       拉取操作的比例（0~1）
+ * @param repositories    仓库数
+ * @param baseLayers      每个镜像的共享基础层数
+ * @param baseLayerSize   基础层大小（字节）
+ * @param uniqueLayers    每个镜像的独有层数
+ * @param uniqueLayerSize 独有层大小（字节）
+ * @param chunkSize       分片上传的块大小（字节）
+ * @author diy
+ */
+public record Scenario(String name, int concurrency, Duration duration, double pullRatio, int repositories,
+        int baseLayers, int baseLayerSize, int uniqueLayers, int uniqueLayerSize, int chunkSize) {
+
+    private static final int KB = 1024;
+    private static final int MB = 1024 * 1024;
+
+    /**
+     * 内置场景
+     */
+    public static final Map<String, Scenario> BUILT_IN = new LinkedHashMap<>();
+
+    static {
+        // CI流水线：大量小镜像并发推送，基础层高度共享
+        register(new Scenario("ci-push", 16, Duration.ofSeconds(30), 0.2, 20,
+                3, 4 * MB, 2, 512 * KB, MB));
+        // 部署高峰：以拉取为主
+        register(new Scenario("deploy-pull", 32, Duration.ofSeconds(30), 0.95, 10,
+                3, 8 * MB, 1, 2 * MB, 5 * MB));
+        // 大层镜像（如模型、数据镜像）：少量并发、接近单块上限的分片
+        register(new Scenario("large-layers", 4, Duration.ofSeconds(30), 0.5, 4,
+                1, 64 * MB, 1, 96 * MB, 10 * MB));
+    }
+
+    private static void register(Scenario scenario) {
+        BUILT_IN.put(scenario.name(), scenario);
+    }
+
+    /**
+     * 覆盖并发数和持续时间
+     * 
+     * @param concurrency 并发客户端数，小于等于0时保持不变
+     * @param duration    持续时间，为null时保持不变
+     * @return 新场景
+     */
+    public Scenario with(int concurrency, Duration duration) {
+        return new Scenario(name, concurrency > 0 ? concurrency : this.concurrency,
+                duration != null ? duration : this.duration, pullRatio, repositories,
+                baseLayers, baseLayerSize, uniqueLayers, uniqueLayerSize, chunkSize);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: concurrency=%d, duration=%ds, pull=%.0f%%, repos=%d, "
+                        + "base=%dx%s, unique=%dx%s, chunk=%s",
+                name, concurrency, duration.toSeconds(), pullRatio * 100, repositories,
+                baseLayers, LoadReport.formatBytes(baseLayerSize), uniqueLayers,
+                LoadReport.formatBytes(uniqueLayerSize), LoadReport.formatBytes(chunkSize));
+    }
+}
@@ -0,0 +1,97 @@
+-- 压测用H2表结构（MySQL兼容模式），与sql/diy.sql保持一致
+
+CREATE TABLE IF NOT EXISTS blobs (
+    digest VARCHAR(71) PRIMARY KEY,
+    size BIGINT NOT NULL,
+    oss_object_key VARCHAR(500) NOT NULL,
+    content_type VARCHAR(100) DEFAULT 'application/octet-stream',
+    chunk_count INT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_blobs_created_at ON blobs (created_at);
+
+CREATE TABLE IF NOT EXISTS chunks (
+    digest VARCHAR(71) PRIMARY KEY,
+    size INT NOT NULL,
+    oss_object_key VARCHAR(500) NOT NULL,
+    ref_count INT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_ref_count ON chunks (ref_count, digest);
+
+CREATE TABLE IF NOT EXISTS blob_chunks (
+    blob_digest VARCHAR(71) NOT NULL,
+    seq INT NOT NULL,
+    chunk_digest VARCHAR(71) NOT NULL,
+    chunk_offset BIGINT NOT NULL,
+    size INT NOT NULL,
+    PRIMARY KEY (blob_digest, seq)
+);
+
+CREATE TABLE IF NOT EXISTS manifests (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    digest VARCHAR(71) NOT NULL,
+    repository VARCHAR(255) NOT NULL,
+    content BLOB NOT NULL,
+    media_type VARCHAR(100) NOT NULL,
+    refs_indexed BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_repo_digest UNIQUE (repository, digest)
+);
+CREATE INDEX IF NOT EXISTS idx_refs_indexed ON manifests (refs_indexed, id);
+CREATE INDEX IF NOT EXISTS idx_manifests_created_at ON manifests (created_at);
+
+CREATE TABLE IF NOT EXISTS manifest_blobs (
+    repository VARCHAR(255) NOT NULL,
+    manifest_digest VARCHAR(71) NOT NULL,
+    blob_digest VARCHAR(71) NOT NULL,
+    PRIMARY KEY (repository, manifest_digest, blob_digest)
+);
+CREATE INDEX IF NOT EXISTS idx_blob_digest ON manifest_blobs (blob_digest);
+CREATE INDEX IF NOT EXISTS idx_repo_blob ON manifest_blobs (repository, blob_digest);
+
+CREATE TABLE IF NOT EXISTS tags (
+    repository VARCHAR(255) NOT NULL,
+    tag VARCHAR(128) NOT NULL,
+    digest VARCHAR(71) NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (repository, tag)
+);
+CREATE INDEX IF NOT EXISTS idx_repo_digest ON tags (repository, digest);
+
+CREATE TABLE IF NOT EXISTS repositories (
+    name VARCHAR(255) PRIMARY KEY,
+    manifest_count BIGINT NOT NULL DEFAULT 0,
+    tag_count BIGINT NOT NULL DEFAULT 0,
+    blob_count BIGINT NOT NULL DEFAULT 0,
+    blob_bytes BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS storage_counters (
+    name VARCHAR(32) NOT NULL,
+    shard TINYINT NOT NULL,
+    value BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (name, shard)
+);
+
+CREATE TABLE IF NOT EXISTS replication_heartbeat (
+    id TINYINT NOT NULL,
+    beat_at BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+MERGE INTO replication_heartbeat (id, beat_at) KEY (id) VALUES (1, 0);
+
+CREATE TABLE IF NOT EXISTS upload_sessions (
+    uuid VARCHAR(36) PRIMARY KEY,
+    repository VARCHAR(255) NOT NULL,
+    oss_temp_key VARCHAR(500),
+    current_size BIGINT DEFAULT 0,
+    started_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    last_activity TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    status VARCHAR(16) DEFAULT 'ACTIVE'
+);
+CREATE INDEX IF NOT EXISTS idx_status ON upload_sessions (status);
+CREATE INDEX IF NOT EXISTS idx_last_activity ON upload_sessions (last_activity);
+CREATE INDEX IF NOT EXISTS idx_repository ON upload_sessions (repository);
@@ -0,0 +1,61 @@
+#!/usr/bin/env bash
+# 生成AppCDS归档（JDK 17动态归档）
+# 1. 将可执行jar解压为普通classpath（CDS不能归档从嵌套jar或目录加载的类，应用类重新打成application.jar）
+# 2. 训练运行：启动到Spring上下文刷新完成后退出（spring.context.exit=onRefresh），记录加载的类
+# 3. 生成run.sh，以相同classpath加载归档启动
+#
+# 用法：mvn -Pfast-startup package && tool/build-cds.sh [jar] [输出目录]
+# 运行：target/fast-startup/run.sh --spring.profiles.active=linux,fast-startup
+#
+# jar由fast-startup profile构建时同时开启Spring AOT；训练运行不连接MySQL和OSS
+set -euo pipefail
+
+JAR=$(realpath "${1:-target/docker-it-yourself-0.0.1-SNAPSHOT.jar}")
+OUT=${2:-target/fast-startup}
+MAIN_CLASS=com.diy.Diy
+
+rm -rf "$OUT"
+mkdir -p "$OUT/app"
+OUT=$(realpath "$OUT")
+(cd "$OUT/app" && jar -xf "$JAR")
+
+# classpath使用相对路径，顺序固定（CDS要求运行时classpath与训练时一致）
+cd "$OUT"
+jar -cf app/application.jar -C app/BOOT-INF/classes .
+CLASSPATH="app/application.jar"
+while read -r lib; do
+    CLASSPATH="$CLASSPATH:app/BOOT-INF/lib/$lib"
+done < <(sed -n 's/^- "\(.*\)"$/\1/p' app/BOOT-INF/classpath.idx | sed 's#^BOOT-INF/lib/##')
+echo "$CLASSPATH" > classpath
+
+JAVA_OPTS=""
+if ls app/BOOT-INF/classes/com/diy/Diy__ApplicationContextInitializer.class > /dev/null 2>&1; then
+    JAVA_OPTS="-Dspring.aot.enabled=true"
+fi
+
+echo "Training run ($JAVA_OPTS)..."
+java -XX:ArchiveClassesAtExit=app.jsa -Dspring.context.exit=onRefresh $JAVA_OPTS \
+    -cp "$CLASSPATH" "$MAIN_CLASS" \
+    --spring.profiles.active=fast-startup \
+    --spring.datasource.url=jdbc:mysql://127.0.0.1:1/cds_training \
+    --spring.datasource.hikari.connection-timeout=250 \
+    --spring.datasource.hikari.initialization-fail-timeout=-1 \
+    --mybatis.mapper-locations='classpath:mapper/*.xml' \
+    --aliyun.oss.bucket-name=cds-training \
+    --aliyun.oss.startup-check=none \
+    > training.log 2>&1 || true
+
+if [ ! -s app.jsa ]; then
+    echo "CDS archive was not created, see $OUT/training.log" >&2
+    exit 1
+fi
+
+cat > run.sh <<RUN
+#!/usr/bin/env bash
+# 使用AppCDS归档启动，参数传给应用
+cd "\$(dirname "\$0")"
+exec java -XX:SharedArchiveFile=app.jsa $JAVA_OPTS \${JAVA_TOOL_OPTS:-} -cp "\$(cat classpath)" $MAIN_CLASS "\$@"
+RUN
+chmod +x run.sh
+
+echo "CDS archive: $OUT/app.jsa ($(du -h app.jsa | cut -f1)), start with $OUT/run.sh"
@@ -0,0 +1,31 @@
+#!/usr/bin/env bash
+# 测量从进程启动到第一个/v2/请求成功的时间
+#
+# 用法：tool/measure-startup.sh <端口> <启动命令...>
+# 示例：
+#   tool/measure-startup.sh 8080 java -jar target/docker-it-yourself-0.0.1-SNAPSHOT.jar --spring.profiles.active=linux
+#   tool/measure-startup.sh 8080 target/fast-startup/run.sh --spring.profiles.active=linux,fast-startup
+#
+# 应用输出写入startup.log；测量结束后进程被停止
+# 应用自身记录的时间见日志"First request served"和指标registry_startup_first_request_time_seconds
+set -uo pipefail
+
+PORT=$1
+shift
+
+START=$(date +%s%N)
+"$@" > startup.log 2>&1 &
+PID=$!
+trap 'kill $PID 2> /dev/null; wait $PID 2> /dev/null' EXIT
+
+until curl -sf -o /dev/null "http://127.0.0.1:$PORT/v2/"; do
+    if ! kill -0 $PID 2> /dev/null; then
+        echo "Application exited before serving a request, see startup.log" >&2
+        exit 1
+    fi
+    sleep 0.05
+done
+END=$(date +%s%N)
+
+echo "First /v2/ response after $(( (END - START) / 1000000 ))ms"
+grep -h "First request served" startup.log || true
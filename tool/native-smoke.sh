@@ -0,0 +1,86 @@
+#!/usr/bin/env bash
+# 原生镜像冒烟测试：启动可执行文件，推送一个镜像（1层 + config + manifest）再拉取并校验摘要
+# 需要可用的MySQL和OSS，连接参数与jar启动相同
+#
+# 用法：mvn -Pnative -DskipTests native:compile
+#       tool/native-smoke.sh [端口] -- --spring.profiles.active=linux,fast-startup [其他应用参数]
+#
+# 环境变量BINARY可指定可执行文件，默认target/docker-it-yourself
+set -euo pipefail
+
+PORT=${1:-8080}
+shift || true
+[ "${1:-}" = "--" ] && shift
+
+BINARY=${BINARY:-target/docker-it-yourself}
+BASE="http://127.0.0.1:$PORT"
+REPO="native-smoke-$(date +%s)"
+WORK=$(mktemp -d)
+
+START=$(date +%s%N)
+"$BINARY" --server.port="$PORT" "$@" > "$WORK/app.log" 2>&1 &
+PID=$!
+trap 'kill $PID 2> /dev/null; wait $PID 2> /dev/null; rm -rf "$WORK"' EXIT
+
+fail() {
+    echo "FAIL: $*" >&2
+    tail -50 "$WORK/app.log" >&2
+    exit 1
+}
+
+until curl -sf -o /dev/null "$BASE/v2/"; do
+    kill -0 $PID 2> /dev/null || fail "application exited during startup"
+    sleep 0.01
+done
+echo "Started in $(( ($(date +%s%N) - START) / 1000000 ))ms"
+
+# 等待OSS检查通过（async模式下启动后进行）
+for _ in $(seq 1 100); do
+    curl -sf -o /dev/null "$BASE/actuator/health/readiness" && break
+    sleep 0.1
+done
+
+digest() {
+    echo "sha256:$(sha256sum "$1" | cut -d' ' -f1)"
+}
+
+push_blob() {
+    local file=$1 location status
+    location=$(curl -sf -o /dev/null -X POST -w '%header{location}' "$BASE/v2/$REPO/blobs/uploads/") \
+        || fail "start upload"
+    case "$location" in http*) ;; *) location="$BASE$location" ;; esac
+    status=$(curl -s -o /dev/null -w '%{http_code}' -X PATCH -H 'Content-Type: application/octet-stream' \
+        -H "Content-Range: 0-$(( $(stat -c %s "$file") - 1 ))" --data-binary "@$file" "$location")
+    [ "$status" = 202 ] || fail "upload chunk: $status"
+    status=$(curl -s -o /dev/null -w '%{http_code}' -X PUT "$location?digest=$(digest "$file")")
+    [ "$status" = 201 ] || fail "complete upload: $status"
+}
+
+# 推送
+head -c 1048576 /dev/urandom > "$WORK/layer"
+echo '{"architecture":"amd64","os":"linux","rootfs":{"type":"layers","diff_ids":[]}}' > "$WORK/config"
+push_blob "$WORK/layer"
+push_blob "$WORK/config"
+
+cat > "$WORK/manifest" <<MANIFEST
+{"schemaVersion":2,"mediaType":"application/vnd.docker.distribution.manifest.v2+json",\
+"config":{"mediaType":"application/vnd.docker.container.image.v1+json","size":$(stat -c %s "$WORK/config"),\
+"digest":"$(digest "$WORK/config")"},"layers":[{"mediaType":"application/vnd.docker.image.rootfs.diff.tar.gzip",\
+"size":1048576,"digest":"$(digest "$WORK/layer")"}]}
+MANIFEST
+status=$(curl -s -o /dev/null -w '%{http_code}' -X PUT \
+    -H 'Content-Type: application/vnd.docker.distribution.manifest.v2+json' \
+    --data-binary "@$WORK/manifest" "$BASE/v2/$REPO/manifests/latest")
+[ "$status" = 201 ] || fail "put manifest: $status"
+
+# 拉取
+curl -sf -H 'Accept: application/vnd.docker.distribution.manifest.v2+json' \
+    -o "$WORK/pulled-manifest" "$BASE/v2/$REPO/manifests/latest" || fail "get manifest"
+[ "$(digest "$WORK/pulled-manifest")" = "$(digest "$WORK/manifest")" ] || fail "manifest digest mismatch"
+for blob in layer config; do
+    curl -sfL -o "$WORK/pulled-$blob" "$BASE/v2/$REPO/blobs/$(digest "$WORK/$blob")" || fail "get $blob"
+    [ "$(digest "$WORK/pulled-$blob")" = "$(digest "$WORK/$blob")" ] || fail "$blob digest mismatch"
+done
+curl -sf "$BASE/v2/$REPO/tags/list" | grep -q '"latest"' || fail "tag list"
+
+echo "Push and pull OK: repository=$REPO, rss=$(ps -o rss= -p $PID | tr -d ' ')KB"